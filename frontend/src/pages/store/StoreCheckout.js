@@ -26,6 +26,8 @@ const StoreCheckout = () => {
   const [showAuthModal, setShowAuthModal] = useState(false);
   const [authMode, setAuthMode] = useState('login'); // 'login' or 'signup'
   const [user, setUser] = useState(null);
+  // Une clé par tentative de checkout : un renvoi de la même commande ne crée pas de doublon
+  const [cleIdempotence, setCleIdempotence] = useState(() => crypto.randomUUID());
   
   // Form states
   const [formData, setFormData] = useState({
@@ -227,7 +229,7 @@ const StoreCheckout = () => {
       };
 
       console.log('Sending order data:', commandeData);
-      await storeService.passerCommande(commandeData);
+      await storeService.passerCommande(commandeData, cleIdempotence);
       
       // Le panier est déjà vidé côté backend par CommandeService
       // On vide simplement le state local sans appeler l'API
@@ -237,6 +239,11 @@ const StoreCheckout = () => {
     } catch (err) {
       console.error('Order error:', err);
       console.error('Error response:', err.response);
+
+      // Le serveur a répondu : la prochaine tentative est une nouvelle commande
+      if (err.response) {
+        setCleIdempotence(crypto.randomUUID());
+      }
       
       if (err.response?.status === 403) {
         // Supprimer le token invalide et forcer une reconnexion
@@ -55,7 +55,7 @@ const StoreHome = () => {
       setLoading(true);
       const [categoriesData, productsData] = await Promise.all([
         storeService.getAllCategories(),
-        storeService.getProduitsApprouves()
+        storeService.getVedettes()
       ]);
       setCategories(categoriesData);
       setProducts(productsData);
@@ -139,16 +139,11 @@ const StoreHome = () => {
         return;
       }
 
-      // Récupérer les détails des produits
-      const allProducts = await storeService.getProduitsApprouves();
-      const foundProducts = allProducts.filter(product =>
-        productIds.includes(String(product.id))
-      );
-
-      // Trier selon l'ordre de pertinence
-      foundProducts.sort((a, b) => {
-        return productIds.indexOf(String(a.id)) - productIds.indexOf(String(b.id));
-      });
+      // Récupérer les détails des seuls produits trouvés, dans l'ordre de pertinence
+      const details = await Promise.all(productIds.map(id =>
+        storeService.getProduitById(id).catch(() => null)
+      ));
+      const foundProducts = details.filter(product => product && product.id);
 
       setSearchResults(foundProducts);
       setShowSemanticResults(true);
@@ -500,6 +495,47 @@ export const StoreHeader = ({ searchTerm, setSearchTerm, cartCount, onCartClick,
   const [showImageModal, setShowImageModal] = useState(false);
   const [imageUrl, setImageUrl] = useState('');
   const [isImageSearching, setIsImageSearching] = useState(false);
+  const [suggestions, setSuggestions] = useState([]);
+  const [showSuggestions, setShowSuggestions] = useState(false);
+
+  // Suggestions de saisie : une requête par pause de frappe, les réponses d'une saisie dépassée sont ignorées
+  useEffect(() => {
+    const terme = (searchTerm || '').trim();
+    if (terme.length < 2) {
+      setSuggestions([]);
+      return undefined;
+    }
+
+    let annulee = false;
+    const delai = setTimeout(async () => {
+      try {
+        const resultats = await storeService.getSuggestions(terme);
+        if (!annulee) {
+          setSuggestions(resultats || []);
+        }
+      } catch (error) {
+        if (!annulee) {
+          setSuggestions([]);
+        }
+      }
+    }, 200);
+
+    return () => {
+      annulee = true;
+      clearTimeout(delai);
+    };
+  }, [searchTerm]);
+
+  const handleSuggestionSelect = (suggestion) => {
+    setShowSuggestions(false);
+    if (suggestion.type === 'OFFRE') {
+      navigate(`/store/product/${suggestion.id}`);
+    } else if (suggestion.type === 'CATEGORIE') {
+      navigate(`/store/shop?category=${suggestion.id}`);
+    } else {
+      setSearchTerm(suggestion.libelle);
+    }
+  };
 
   const handleImageSearch = async () => {
     if (!imageUrl.trim()) return;
@@ -541,7 +577,13 @@ export const StoreHeader = ({ searchTerm, setSearchTerm, cartCount, onCartClick,
                   className="store-search-input"
                   placeholder="Recherchez avec vos mots... ex: 'quelque chose pour ma peau sèche'"
                   value={searchTerm}
-                  onChange={(e) => setSearchTerm(e.target.value)}
+                  onChange={(e) => {
+                    setSearchTerm(e.target.value);
+                    setShowSuggestions(true);
+                  }}
+                  onFocus={() => setShowSuggestions(true)}
+                  onBlur={() => setShowSuggestions(false)}
+                  onKeyDown={(e) => e.key === 'Escape' && setShowSuggestions(false)}
                 />
                 {isSearching && (
                   <div className="store-search-loader"></div>
@@ -551,6 +593,24 @@ export const StoreHeader = ({ searchTerm, setSearchTerm, cartCount, onCartClick,
                     <FiX />
                   </button>
                 )}
+                {showSuggestions && suggestions.length > 0 && (
+                  <ul className="store-search-suggestions">
+                    {suggestions.map(suggestion => (
+                      <li
+                        key={`${suggestion.type}-${suggestion.id}`}
+                        className="store-search-suggestion"
+                        onMouseDown={(e) => {
+                          // mousedown plutôt que click : la sélection passe avant la perte du focus
+                          e.preventDefault();
+                          handleSuggestionSelect(suggestion);
+                        }}
+                      >
+                        {suggestion.type === 'CATEGORIE' ? <FiGrid /> : suggestion.type === 'OFFRE' ? <FiShoppingBag /> : <FiSearch />}
+                        <span>{suggestion.libelle}</span>
+                      </li>
+                    ))}
+                  </ul>
+                )}
               </div>
               <button 
                 className="store-image-search-btn"
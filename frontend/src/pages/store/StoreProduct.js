@@ -39,6 +39,8 @@ const StoreProduct = () => {
 
   // États pour les avis
   const [avis, setAvis] = useState([]);
+  const [avisCurseur, setAvisCurseur] = useState(null);
+  const [avisSuiteLoading, setAvisSuiteLoading] = useState(false);
   const [statsAvis, setStatsAvis] = useState({ moyenne: 0, nombreAvis: 0 });
   const [newAvis, setNewAvis] = useState({ note: 5, commentaire: '' });
   const [avisLoading, setAvisLoading] = useState(false);
@@ -63,22 +65,26 @@ const StoreProduct = () => {
     fetchProduct();
   }, [id]);
 
-  useEffect(() => {
-    if (product) {
-      fetchAvis();
-    }
-  }, [product]);
+  // Applique la page agrégée du produit : offre, stock, offres concurrentes, notes et premiers avis
+  const appliquerPage = (page) => {
+    setProduct({ ...page.offre, quantiteStock: page.stock });
+    setRelatedProducts(page.offresConcurrentes || []);
+    setAvis(page.avis?.elements || []);
+    setAvisCurseur(page.avis?.curseurSuivant || null);
+    setStatsAvis({ moyenne: page.moyenne, nombreAvis: page.nombreAvis });
+  };
 
-  const fetchAvis = async () => {
+  const fetchAvisSuite = async () => {
+    if (!avisCurseur || avisSuiteLoading) return;
     try {
-      const [avisData, statsData] = await Promise.all([
-        storeService.getAvisProduit(product.id),
-        storeService.getStatsAvis(product.id)
-      ]);
-      setAvis(avisData);
-      setStatsAvis(statsData);
+      setAvisSuiteLoading(true);
+      const page = await storeService.getPageAvis(product.id, avisCurseur);
+      setAvis(prev => [...prev, ...page.elements]);
+      setAvisCurseur(page.curseurSuivant || null);
     } catch (error) {
       console.error('Erreur lors du chargement des avis:', error);
+    } finally {
+      setAvisSuiteLoading(false);
     }
   };
 
@@ -102,7 +108,7 @@ const StoreProduct = () => {
       if (response.success) {
         setAvisMessage({ type: 'success', text: 'Votre avis a été ajouté avec succès !' });
         setNewAvis({ note: 5, commentaire: '' });
-        fetchAvis();
+        appliquerPage(await storeService.getPageProduit(product.id));
       } else {
         setAvisMessage({ type: 'error', text: response.message });
       }
@@ -144,17 +150,10 @@ const StoreProduct = () => {
   const fetchProduct = async () => {
     try {
       setLoading(true);
-      // Try to get product from list (as API might not have individual endpoint)
-      const products = await storeService.getProduitsApprouves();
-      const foundProduct = products.find(p => p.id === parseInt(id));
-      
-      if (foundProduct) {
-        setProduct(foundProduct);
-        // Get related products from same category
-        const related = products.filter(
-          p => p.categorieId === foundProduct.categorieId && p.id !== foundProduct.id
-        ).slice(0, 4);
-        setRelatedProducts(related);
+      // Toute la page du produit en une seule requête
+      const page = await storeService.getPageProduit(id);
+      if (page && page.offre) {
+        appliquerPage(page);
       } else {
         navigate('/store/shop');
       }
@@ -387,7 +386,7 @@ const StoreProduct = () => {
             <div className="store-section-title">
               <span>
                 <FiGrid className="store-section-title-icon" />
-                Produits similaires
+                Autres vendeurs de ce produit
               </span>
             </div>
             <div className="store-products-grid">
@@ -639,6 +638,16 @@ const StoreProduct = () => {
                   )}
                 </div>
               ))}
+              {avisCurseur && (
+                <button
+                  className="store-btn-secondary"
+                  onClick={fetchAvisSuite}
+                  disabled={avisSuiteLoading}
+                  style={{ alignSelf: 'center' }}
+                >
+                  {avisSuiteLoading ? 'Chargement...' : 'Voir plus d\'avis'}
+                </button>
+              )}
             </div>
           )}
         </section>
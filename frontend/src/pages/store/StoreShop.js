@@ -77,6 +77,10 @@ const StoreShop = () => {
   const [categories, setCategories] = useState([]);
   const [products, setProducts] = useState([]);
   const [loading, setLoading] = useState(true);
+  const [curseurSuivant, setCurseurSuivant] = useState(null);
+  const [suiteLoading, setSuiteLoading] = useState(false);
+  const [enStock, setEnStock] = useState(false);
+  const [facettes, setFacettes] = useState(null);
   const [searchTerm, setSearchTerm] = useState('');
   const [selectedCategory, setSelectedCategory] = useState(null);
   const [searchParams, setSearchParams] = useSearchParams();
@@ -87,7 +91,7 @@ const StoreShop = () => {
   const [showSemanticResults, setShowSemanticResults] = useState(false);
 
   useEffect(() => {
-    fetchData();
+    fetchCategories();
   }, []);
 
   useEffect(() => {
@@ -99,22 +103,67 @@ const StoreShop = () => {
     }
   }, [searchParams]);
 
-  const fetchData = async () => {
+  // Les filtres sont appliqués par le serveur : chaque changement recharge la première page
+  useEffect(() => {
+    fetchProducts(selectedCategory, enStock);
+  }, [selectedCategory, enStock]);
+
+  // Comptages par catégorie : ils ne dépendent pas de la catégorie choisie, seulement des autres filtres
+  useEffect(() => {
+    fetchFacettes(enStock);
+  }, [enStock]);
+
+  const fetchCategories = async () => {
+    try {
+      setCategories(await storeService.getAllCategories());
+    } catch (error) {
+      console.error('Erreur lors du chargement des catégories:', error);
+    }
+  };
+
+  const fetchFacettes = async (stockSeulement) => {
+    try {
+      setFacettes(await storeService.getFacettes({ enStock: stockSeulement || undefined }));
+    } catch (error) {
+      console.error('Erreur lors du chargement des filtres:', error);
+      setFacettes(null);
+    }
+  };
+
+  const fetchProducts = async (categorieId, stockSeulement) => {
     try {
       setLoading(true);
-      const [categoriesData, productsData] = await Promise.all([
-        storeService.getAllCategories(),
-        storeService.getProduitsApprouves()
-      ]);
-      setCategories(categoriesData);
-      setProducts(productsData);
+      const page = await storeService.getCatalogue({
+        categorieId: categorieId || undefined,
+        enStock: stockSeulement || undefined
+      });
+      setProducts(page.elements || []);
+      setCurseurSuivant(page.suite ? page.curseurSuivant : null);
     } catch (error) {
-      console.error('Erreur lors du chargement des données:', error);
+      console.error('Erreur lors du chargement des produits:', error);
     } finally {
       setLoading(false);
     }
   };
 
+  const fetchProductsSuite = async () => {
+    if (!curseurSuivant) return;
+    try {
+      setSuiteLoading(true);
+      const page = await storeService.getCatalogue({
+        curseur: curseurSuivant,
+        categorieId: selectedCategory || undefined,
+        enStock: enStock || undefined
+      });
+      setProducts(prev => [...prev, ...(page.elements || [])]);
+      setCurseurSuivant(page.suite ? page.curseurSuivant : null);
+    } catch (error) {
+      console.error('Erreur lors du chargement des produits suivants:', error);
+    } finally {
+      setSuiteLoading(false);
+    }
+  };
+
   const handleAddToCart = (product, e) => {
     e.preventDefault();
     e.stopPropagation();
@@ -130,6 +179,11 @@ const StoreShop = () => {
     });
   };
 
+  const nombreParCategorie = (categoryId) => {
+    const facette = facettes?.categories?.find(f => f.id === categoryId);
+    return facette ? facette.nombre : 0;
+  };
+
   const handleCategorySelect = (categoryId) => {
     setSelectedCategory(categoryId);
     if (categoryId) {
@@ -195,14 +249,11 @@ const StoreShop = () => {
         return;
       }
 
-      const allProducts = await storeService.getProduitsApprouves();
-      const foundProducts = allProducts.filter(product =>
-        productIds.includes(String(product.id))
-      );
-
-      foundProducts.sort((a, b) => {
-        return productIds.indexOf(String(a.id)) - productIds.indexOf(String(b.id));
-      });
+      // Récupérer les détails des seuls produits trouvés, dans l'ordre de pertinence
+      const details = await Promise.all(productIds.map(id =>
+        storeService.getProduitById(id).catch(() => null)
+      ));
+      const foundProducts = details.filter(product => product && product.id);
 
       setSearchResults(foundProducts);
       setShowSemanticResults(true);
@@ -214,19 +265,10 @@ const StoreShop = () => {
     }
   };
 
+  // Seul le filtre de titre reste local : il porte sur les pages déjà chargées pendant la saisie
   const filteredProducts = products.filter(product => {
     const title = product.titre || product.produitNom || '';
-    const matchesSearch = title.toLowerCase().includes(searchTerm.toLowerCase());
-    // Check both categorieId and match by categorieNom as fallback
-    let matchesCategory = !selectedCategory;
-    if (selectedCategory) {
-      const selectedCat = categories.find(c => c.id === selectedCategory);
-      if (selectedCat) {
-        matchesCategory = product.categorieId === selectedCategory || 
-                         product.categorieNom === selectedCat.nom;
-      }
-    }
-    return matchesSearch && matchesCategory;
+    return title.toLowerCase().includes(searchTerm.toLowerCase());
   });
 
   if (loading) {
@@ -285,6 +327,7 @@ const StoreShop = () => {
               onClick={() => handleCategorySelect(null)}
             >
               Toutes les catégories
+              {facettes && <span className="store-filter-count">{facettes.total}</span>}
             </div>
             {categories.map(category => (
               <div
@@ -293,8 +336,18 @@ const StoreShop = () => {
                 onClick={() => handleCategorySelect(category.id)}
               >
                 {category.nom}
+                {facettes && <span className="store-filter-count">{nombreParCategorie(category.id)}</span>}
               </div>
             ))}
+            <label className="store-filter-stock">
+              <input
+                type="checkbox"
+                checked={enStock}
+                onChange={(e) => setEnStock(e.target.checked)}
+              />
+              En stock uniquement
+              {facettes && <span className="store-filter-count">{facettes.enStock}</span>}
+            </label>
           </aside>
 
           {/* Products Grid */}
@@ -349,6 +402,18 @@ const StoreShop = () => {
                 ))}
               </div>
             )}
+
+            {!showSemanticResults && curseurSuivant && (
+              <div style={{ display: 'flex', justifyContent: 'center', marginTop: '30px' }}>
+                <button
+                  className="store-btn-secondary"
+                  onClick={fetchProductsSuite}
+                  disabled={suiteLoading}
+                >
+                  {suiteLoading ? 'Chargement...' : 'Voir plus de produits'}
+                </button>
+              </div>
+            )}
           </div>
         </div>
       </div>
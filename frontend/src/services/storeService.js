@@ -48,9 +48,50 @@ const storeService = {
     return response.data;
   },
 
-  // Récupérer tous les produits vendeurs approuvés
-  getProduitsApprouves: async () => {
-    const response = await api.get('/vendeur-produits/approuves');
+  // Récupérer une page du catalogue (pagination par curseur, recherche q et filtres côté serveur)
+  getCatalogue: async ({ curseur, q, categorieId, vendeurId, prixMin, prixMax, enStock, taille } = {}) => {
+    const response = await api.get('/vendeur-produits/catalogue', {
+      params: { curseur, q, categorieId, vendeurId, prixMin, prixMax, enStock, taille }
+    });
+    return response.data;
+  },
+
+  // Récupérer le stock disponible de plusieurs produits (sans recharger le catalogue)
+  getStocks: async (produitIds) => {
+    const response = await api.get('/vendeur-produits/stocks', {
+      params: { produitIds: produitIds.join(',') }
+    });
+    return response.data;
+  },
+
+  // Récupérer les comptages des facettes du catalogue pour les filtres sélectionnés
+  getFacettes: async ({ categorieIds = [], vendeurIds = [], tranches = [], enStock } = {}) => {
+    const response = await api.get('/vendeur-produits/facettes', {
+      params: {
+        categorieIds: categorieIds.join(',') || undefined,
+        vendeurIds: vendeurIds.join(',') || undefined,
+        tranches: tranches.join(',') || undefined,
+        enStock
+      }
+    });
+    return response.data;
+  },
+
+  // Récupérer les produits vedettes de la page d'accueil
+  getVedettes: async () => {
+    const response = await api.get('/catalogue/vedettes');
+    return response.data;
+  },
+
+  // Récupérer les suggestions de saisie de la recherche
+  getSuggestions: async (q, limite = 8) => {
+    const response = await api.get('/catalogue/suggest', { params: { q, limite } });
+    return response.data;
+  },
+
+  // Récupérer en une requête tout ce qu'affiche la page d'un produit vendeur
+  getPageProduit: async (vendeurProduitId) => {
+    const response = await api.get(`/catalogue/produits/${vendeurProduitId}/page`);
     return response.data;
   },
 
@@ -61,8 +102,23 @@ const storeService = {
   },
 
   // Passer une commande (authentifié)
-  passerCommande: async (commandeData) => {
-    const response = await api.post('/client/commandes', commandeData);
+  // La clé d'idempotence permet de rejouer la requête sans créer de doublon
+  passerCommande: async (commandeData, cleIdempotence) => {
+    const config = cleIdempotence ? { headers: { 'Idempotency-Key': cleIdempotence } } : undefined;
+    const response = await api.post('/client/commandes', commandeData, config);
+    return response.data;
+  },
+
+  // Historique paginé de mes commandes (résumés, pagination par curseur)
+  getHistoriqueCommandes: async (curseur = null, taille = 20) => {
+    const params = curseur ? { curseur, taille } : { taille };
+    const response = await api.get('/client/commandes/historique', { params });
+    return response.data;
+  },
+
+  // Suivre un ticket de commande (prise de commande asynchrone)
+  getTicketCommande: async (ticketId, attendre = false) => {
+    const response = await api.get(`/client/commandes/tickets/${ticketId}`, { params: { attendre } });
     return response.data;
   },
 
@@ -113,6 +169,12 @@ const storeService = {
     return response.data;
   },
 
+  // Récupérer la page d'avis suivante d'un produit à partir du curseur de la page précédente (public)
+  getPageAvis: async (vendeurProduitId, curseur, taille = 10) => {
+    const response = await api.get(`/avis/produit/${vendeurProduitId}/page`, { params: { curseur, taille } });
+    return response.data;
+  },
+
   // Récupérer les statistiques d'avis d'un produit (public)
   getStatsAvis: async (vendeurProduitId) => {
     const response = await api.get(`/avis/produit/${vendeurProduitId}/stats`);
@@ -157,12 +219,41 @@ const storeService = {
     return response.data;
   },
 
+  // Appliquer plusieurs opérations au panier en un seul appel (authentifié)
+  // operations : [{ type: 'AJOUTER' | 'MODIFIER' | 'SUPPRIMER', vendeurProduitId, quantite }]
+  // Avec versionConnue, seule la différence depuis cette version est renvoyée
+  appliquerLotPanier: async (operations, versionConnue = null) => {
+    const response = await api.post('/client/panier/batch', {
+      operations,
+      versionConnue
+    });
+    return response.data;
+  },
+
+  // Passer commande avec le contenu du panier enregistré (authentifié)
+  checkoutPanier: async (adresseLivraison = null) => {
+    const response = await api.post('/client/panier/checkout', { adresseLivraison });
+    return response.data;
+  },
+
   // Vider le panier (authentifié)
   viderPanier: async () => {
     const response = await api.delete('/client/panier/vider');
     return response.data;
   },
 
+  // Réserver le stock du panier au début du checkout (authentifié)
+  reserverPanier: async () => {
+    const response = await api.post('/client/panier/reserver');
+    return response.data;
+  },
+
+  // Libérer la réservation de stock (authentifié)
+  libererReservation: async () => {
+    const response = await api.delete('/client/panier/reservation');
+    return response.data;
+  },
+
   // ========== Profil Client ==========
 
   // Mettre à jour le profil du client (authentifié)
@@ -237,20 +328,12 @@ const storeService = {
         return [];
       }
 
-      // 2. Récupérer les détails des produits depuis le backend Spring
-      const allProducts = await api.get('/vendeur-produits/approuves');
-      
-      // 3. Filtrer pour ne garder que les produits trouvés par l'AI
-      const foundProducts = allProducts.data.filter(product => 
-        productIds.includes(String(product.id))
-      );
-
-      // 4. Trier selon l'ordre de pertinence retourné par l'AI
-      foundProducts.sort((a, b) => {
-        return productIds.indexOf(String(a.id)) - productIds.indexOf(String(b.id));
-      });
+      // 2. Récupérer depuis le backend Spring les détails des seuls produits trouvés, dans l'ordre de pertinence
+      const details = await Promise.all(productIds.map(id =>
+        api.get(`/vendeur-produits/approuves/${id}`).then(r => r.data).catch(() => null)
+      ));
 
-      return foundProducts;
+      return details.filter(product => product && product.id);
     } catch (error) {
       console.error('Erreur recherche sémantique complète:', error);
       return [];
@@ -1,14 +1,56 @@
 package com.monsite.ventes.gestion_ventes.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class AppConfig {
 
+    /**
+     * Client HTTP du service AI, avec délais bornés : un service AI bloqué ne doit pas retenir
+     * les threads appelants (distribution de l'outbox, requêtes)
+     */
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${ai.service.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                     @Value("${ai.service.read-timeout-ms:10000}") long readTimeoutMs) {
+        return builder
+                .setConnectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .setReadTimeout(Duration.ofMillis(readTimeoutMs))
+                .build();
+    }
+
+    /**
+     * Exécuteur par défaut (@Async, requêtes asynchrones) : déclaré explicitement car la présence
+     * d'un autre exécuteur désactive celui que Spring Boot configure
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    @Primary
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Sous-requêtes de la page produit : pool et file bornés, une page qui ne trouve pas de place
+     * est refusée plutôt que mise en attente sans limite
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public ThreadPoolTaskExecutor executeurPageProduit(@Value("${catalogue.page-produit.threads:8}") int threads,
+                                                       @Value("${catalogue.page-produit.file-max:200}") int fileMax) {
+        ThreadPoolTaskExecutor executeur = new ThreadPoolTaskExecutor();
+        executeur.setCorePoolSize(threads);
+        executeur.setMaxPoolSize(threads);
+        executeur.setQueueCapacity(fileMax);
+        executeur.setThreadNamePrefix("page-produit-");
+        executeur.setDaemon(true);
+        return executeur;
     }
-}
\ No newline at end of file
+}
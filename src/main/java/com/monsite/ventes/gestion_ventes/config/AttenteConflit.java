@@ -0,0 +1,38 @@
+package com.monsite.ventes.gestion_ventes.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Attente entre deux tentatives après un conflit : aléatoire sous un plafond qui double à chaque
+ * tentative (full jitter), pour que les transactions en conflit ne se retrouvent pas au même instant.
+ * Partagée par @ReessaiSurConflit et les boucles de reprise écrites à la main.
+ */
+@Component
+public class AttenteConflit {
+
+    @Value("${conflit.reessai.delai-base-ms:10}")
+    private long delaiBaseMs;
+
+    @Value("${conflit.reessai.delai-max-ms:200}")
+    private long delaiMaxMs;
+
+    /**
+     * Délai à attendre après l'échec de cette tentative (numérotées à partir de 1)
+     */
+    public long delai(int tentative) {
+        long plafond = Math.min(delaiMaxMs, delaiBaseMs << Math.min(tentative, 20));
+        return ThreadLocalRandom.current().nextLong(plafond + 1);
+    }
+
+    /**
+     * Attend le délai de cette tentative et le renvoie
+     */
+    public long attendre(int tentative) throws InterruptedException {
+        long attente = delai(tentative);
+        Thread.sleep(attente);
+        return attente;
+    }
+}
@@ -0,0 +1,38 @@
+package com.monsite.ventes.gestion_ventes.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migration des commandes passées avant que l'adresse de livraison et les titres des lignes soient
+ * enregistrés avec la commande : ils sont repris une fois pour toutes de l'état actuel du client et des offres.
+ */
+@Component
+public class CommandesFigeesInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandesFigeesInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // La dépendance sur l'EntityManagerFactory garantit que les colonnes existent avant la migration
+    public CommandesFigeesInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void figerCommandes() {
+        int adresses = jdbcTemplate.update(
+                "UPDATE commandes c JOIN clients cl ON cl.id = c.client_id " +
+                "SET c.adresse_livraison = cl.adresse_livraison WHERE c.adresse_livraison IS NULL");
+        int titres = jdbcTemplate.update(
+                "UPDATE lignes_commande lc JOIN vendeur_produits vp ON vp.id = lc.vendeur_produit_id " +
+                "SET lc.titre = vp.titre WHERE lc.titre IS NULL AND vp.titre IS NOT NULL");
+        if (adresses > 0 || titres > 0) {
+            logger.info("Commandes figées : {} adresse(s) de livraison, {} titre(s) de ligne", adresses, titres);
+        }
+    }
+}
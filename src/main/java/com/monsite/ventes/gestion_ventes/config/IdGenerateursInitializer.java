@@ -0,0 +1,68 @@
+package com.monsite.ventes.gestion_ventes.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Migration des tables passées de l'auto-incrément au générateur par table (id_generateurs).
+ * Avec l'optimiseur pooled-lo, une valeur lue V donne les identifiants V à V + allocationSize - 1 :
+ * un compteur est sûr dès qu'il dépasse le plus grand identifiant existant. Au démarrage, un compteur
+ * en retard (ou absent) est avancé à MAX(id) + 1, ligne verrouillée, sans toucher aux autres.
+ */
+@Component
+public class IdGenerateursInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGenerateursInitializer.class);
+
+    private static final List<String> TABLES = List.of(
+            "commandes", "lignes_commande", "lignes_panier", "avis", "evenements_outbox", "mouvements_stock");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // La dépendance sur l'EntityManagerFactory garantit que le schéma est à jour avant la migration
+    public IdGenerateursInitializer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                    EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void initialiserCompteurs() {
+        for (String table : TABLES) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> initialiserCompteur(table));
+            } catch (DuplicateKeyException e) {
+                // Ligne créée au même moment par une autre instance : elle existe maintenant et se verrouille
+                transactionTemplate.executeWithoutResult(status -> initialiserCompteur(table));
+            }
+        }
+    }
+
+    private void initialiserCompteur(String table) {
+        // Le verrou bloque les allocations des autres instances le temps de comparer au plus grand id
+        List<Long> valeurs = jdbcTemplate.queryForList(
+                "SELECT valeur_suivante FROM id_generateurs WHERE nom_sequence = ? FOR UPDATE", Long.class, table);
+        long minimum = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class) + 1;
+
+        if (valeurs.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO id_generateurs (nom_sequence, valeur_suivante) VALUES (?, ?)",
+                    table, minimum);
+        } else if (valeurs.get(0) < minimum) {
+            jdbcTemplate.update("UPDATE id_generateurs SET valeur_suivante = ? WHERE nom_sequence = ?",
+                    minimum, table);
+        } else {
+            return;
+        }
+        logger.info("Générateur d'identifiants '{}' avancé à {}", table, minimum);
+    }
+}
@@ -0,0 +1,20 @@
+package com.monsite.ventes.gestion_ventes.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rejoue la méthode (et sa transaction) lorsqu'elle échoue sur un conflit de concurrence
+ * (verrou optimiste, interblocage). La méthode doit pouvoir être réexécutée sans effet de bord.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReessaiSurConflit {
+
+    /**
+     * Nombre maximal de tentatives, première exécution comprise
+     */
+    int tentatives() default 4;
+}
@@ -0,0 +1,93 @@
+package com.monsite.ventes.gestion_ventes.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applique @ReessaiSurConflit : nouvelle tentative avec attente aléatoire croissante (full jitter)
+ * en cas de conflit. L'aspect est placé avant @Transactional pour que chaque tentative
+ * s'exécute dans une nouvelle transaction.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ReessaiSurConflitAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReessaiSurConflitAspect.class);
+
+    // Compteurs par méthode : appels, conflits, échecs définitifs
+    private final Map<String, Compteurs> compteurs = new ConcurrentHashMap<>();
+
+    private final AttenteConflit attenteConflit;
+
+    public ReessaiSurConflitAspect(AttenteConflit attenteConflit) {
+        this.attenteConflit = attenteConflit;
+    }
+
+    @Around("@annotation(reessai)")
+    public Object executer(ProceedingJoinPoint joinPoint, ReessaiSurConflit reessai) throws Throwable {
+        // Dans une transaction englobante, rejouer la méthode seule n'a pas de sens : l'appelant décide
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String methode = joinPoint.getSignature().toShortString();
+        Compteurs compteursMethode = compteurs.computeIfAbsent(methode, m -> new Compteurs());
+        compteursMethode.appels.increment();
+
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return joinPoint.proceed();
+            } catch (ConcurrencyFailureException e) {
+                compteursMethode.conflits.increment();
+
+                if (tentative >= reessai.tentatives()) {
+                    compteursMethode.echecs.increment();
+                    logger.warn("Conflit persistant sur {} après {} tentatives", methode, tentative);
+                    throw e;
+                }
+
+                long attente = attenteConflit.delai(tentative);
+                logger.debug("Conflit sur {} (tentative {}), nouvelle tentative dans {} ms", methode, tentative, attente);
+                Thread.sleep(attente);
+            }
+        }
+    }
+
+    /**
+     * Statistiques de conflits par méthode
+     */
+    public Map<String, Map<String, Object>> getStatistiques() {
+        Map<String, Map<String, Object>> statistiques = new LinkedHashMap<>();
+        compteurs.forEach((methode, c) -> {
+            long appels = c.appels.sum();
+            long conflits = c.conflits.sum();
+            Map<String, Object> valeurs = new LinkedHashMap<>();
+            valeurs.put("appels", appels);
+            valeurs.put("conflits", conflits);
+            valeurs.put("echecs", c.echecs.sum());
+            valeurs.put("tauxConflit", appels == 0 ? 0.0 : Math.round(conflits * 10000.0 / appels) / 10000.0);
+            statistiques.put(methode, valeurs);
+        });
+        return statistiques;
+    }
+
+    private static final class Compteurs {
+        private final LongAdder appels = new LongAdder();
+        private final LongAdder conflits = new LongAdder();
+        private final LongAdder echecs = new LongAdder();
+    }
+}
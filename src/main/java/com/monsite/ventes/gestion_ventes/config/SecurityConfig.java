@@ -72,6 +72,10 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/categories/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/vendeur-produits/approuves").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/vendeur-produits/approuves/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/vendeur-produits/catalogue").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/vendeur-produits/stocks").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/vendeur-produits/facettes").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/catalogue/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/avis/produit/**").permitAll()
                         
                         // Routes Admin uniquement
@@ -98,8 +102,8 @@ public class SecurityConfig {
         // Permettre toutes les origines pour supporter WSL et différentes configurations
         configuration.setAllowedOriginPatterns(List.of("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin", "Idempotency-Key"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Idempotent-Replayed"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
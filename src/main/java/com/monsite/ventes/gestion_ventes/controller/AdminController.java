@@ -1,8 +1,12 @@
 package com.monsite.ventes.gestion_ventes.controller;
 
+import com.monsite.ventes.gestion_ventes.config.ReessaiSurConflitAspect;
 import com.monsite.ventes.gestion_ventes.dto.CommandeResponse;
 import com.monsite.ventes.gestion_ventes.dto.CsvImportResult;
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageResponse;
+import com.monsite.ventes.gestion_ventes.dto.TransitionCommandesRequest;
+import com.monsite.ventes.gestion_ventes.dto.TransitionCommandesResponse;
 import com.monsite.ventes.gestion_ventes.dto.VendeurProduitResponse;
 import com.monsite.ventes.gestion_ventes.entity.Categorie;
 import com.monsite.ventes.gestion_ventes.entity.Commande;
@@ -10,15 +14,20 @@ import com.monsite.ventes.gestion_ventes.entity.Produit;
 import com.monsite.ventes.gestion_ventes.entity.Vendeur;
 import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
 import com.monsite.ventes.gestion_ventes.service.AdminService;
+import com.monsite.ventes.gestion_ventes.service.CommandeCacheService.CommandeFigee;
 import com.monsite.ventes.gestion_ventes.service.CommandeService;
 import com.monsite.ventes.gestion_ventes.service.CsvImportService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -30,11 +39,14 @@ public class AdminController {
     private final AdminService adminService;
     private final CommandeService commandeService;
     private final CsvImportService csvImportService;
+    private final ReessaiSurConflitAspect reessaiSurConflitAspect;
 
-    public AdminController(AdminService adminService, CommandeService commandeService, CsvImportService csvImportService) {
+    public AdminController(AdminService adminService, CommandeService commandeService, CsvImportService csvImportService,
+                           ReessaiSurConflitAspect reessaiSurConflitAspect) {
         this.adminService = adminService;
         this.commandeService = commandeService;
         this.csvImportService = csvImportService;
+        this.reessaiSurConflitAspect = reessaiSurConflitAspect;
     }
 
     // ========== Gestion des Vendeurs ==========
@@ -174,6 +186,18 @@ public class AdminController {
         return ResponseEntity.badRequest().body(response);
     }
 
+    @PutMapping("/produits/{id}/stock-chaud")
+    public ResponseEntity<MessageResponse> changerModeStock(@PathVariable Long id, @RequestParam boolean actif) {
+        try {
+            return ResponseEntity.ok(adminService.changerModeStock(id, actif));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+
     @DeleteMapping("/produits/{id}")
     public ResponseEntity<Void> deleteProduit(@PathVariable Long id) {
         adminService.deleteProduit(id);
@@ -191,10 +215,32 @@ public class AdminController {
         return ResponseEntity.ok(commandes);
     }
 
+    @GetMapping("/commandes/recherche")
+    public ResponseEntity<PageResponse<CommandeResponse>> rechercherCommandes(
+            @RequestParam(required = false) String statut,
+            @RequestParam(required = false) Long vendeurId,
+            @RequestParam(required = false) Long produitId,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) String client,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int taille) {
+        PageResponse<CommandeResponse> resultat = commandeService.rechercherCommandes(
+                statut, vendeurId, produitId, clientId, client, dateDebut, dateFin, page, taille);
+        return ResponseEntity.ok(resultat);
+    }
+
     @GetMapping("/commandes/{id}")
-    public ResponseEntity<CommandeResponse> getCommandeById(@PathVariable Long id) {
-        CommandeResponse commande = commandeService.getCommandeByIdAdmin(id);
-        return ResponseEntity.ok(commande);
+    public ResponseEntity<CommandeResponse> getCommandeById(@PathVariable Long id, WebRequest webRequest) {
+        CommandeFigee commande = commandeService.getCommandeByIdAdmin(id);
+        if (commande.etag() == null) {
+            return ResponseEntity.ok(commande.commande());
+        }
+        if (webRequest.checkNotModified(commande.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(commande.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(commande.etag()).body(commande.commande());
     }
 
     @PutMapping("/commandes/{id}/statut")
@@ -235,6 +281,32 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getStatistiques());
     }
 
+    /**
+     * Taux de conflits de concurrence (verrous optimistes) par opération
+     */
+    @GetMapping("/statistiques/conflits")
+    public ResponseEntity<Map<String, Map<String, Object>>> getStatistiquesConflits() {
+        return ResponseEntity.ok(reessaiSurConflitAspect.getStatistiques());
+    }
+
+    /**
+     * Change le statut d'un ensemble de commandes (liste d'identifiants ou filtre)
+     */
+    @PostMapping("/commandes/transitions")
+    public ResponseEntity<?> transitionnerCommandes(@RequestBody TransitionCommandesRequest request) {
+        try {
+            TransitionCommandesResponse resultat = commandeService.transitionnerCommandes(request);
+            return ResponseEntity.ok(resultat);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(
+                MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build()
+            );
+        }
+    }
+
     // ========== Import CSV Commandes ==========
 
     /**
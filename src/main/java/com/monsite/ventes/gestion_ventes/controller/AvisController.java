@@ -10,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -20,29 +21,54 @@ import java.util.Map;
 public class AvisController {
 
     private final AvisService avisService;
+    private final ReponsesConditionnelles reponsesConditionnelles;
 
-    public AvisController(AvisService avisService) {
+    public AvisController(AvisService avisService, ReponsesConditionnelles reponsesConditionnelles) {
         this.avisService = avisService;
+        this.reponsesConditionnelles = reponsesConditionnelles;
     }
 
     /**
      * Récupérer les avis d'un produit (public)
      */
     @GetMapping("/produit/{vendeurProduitId}")
-    public ResponseEntity<List<AvisResponse>> getAvisParProduit(@PathVariable Long vendeurProduitId) {
-        List<AvisResponse> avis = avisService.getAvisParProduit(vendeurProduitId);
-        return ResponseEntity.ok(avis);
+    public ResponseEntity<List<AvisResponse>> getAvisParProduit(@PathVariable Long vendeurProduitId,
+                                                                WebRequest webRequest) {
+        return reponsesConditionnelles.repondre(webRequest, avisService.getVersionAvis(vendeurProduitId),
+                () -> avisService.getAvisParProduit(vendeurProduitId));
+    }
+
+    /**
+     * Page suivante des avis d'un produit (public), à partir du curseur renvoyé par la page précédente
+     */
+    @GetMapping("/produit/{vendeurProduitId}/page")
+    public ResponseEntity<?> getPageAvis(@PathVariable Long vendeurProduitId,
+                                         @RequestParam(required = false) String curseur,
+                                         @RequestParam(defaultValue = "10") int taille,
+                                         WebRequest webRequest) {
+        try {
+            return reponsesConditionnelles.repondre(webRequest, avisService.getVersionAvis(vendeurProduitId),
+                    () -> avisService.getPageAvis(vendeurProduitId, curseur, taille));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        }
     }
 
     /**
      * Récupérer les statistiques d'avis d'un produit (public)
      */
     @GetMapping("/produit/{vendeurProduitId}/stats")
-    public ResponseEntity<Map<String, Object>> getStatsAvis(@PathVariable Long vendeurProduitId) {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("moyenne", avisService.getMoyenneNotes(vendeurProduitId));
-        stats.put("nombreAvis", avisService.getNombreAvis(vendeurProduitId));
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<Map<String, Object>> getStatsAvis(@PathVariable Long vendeurProduitId,
+                                                            WebRequest webRequest) {
+        return reponsesConditionnelles.repondre(webRequest, avisService.getVersionAvis(vendeurProduitId), () -> {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("moyenne", avisService.getMoyenneNotes(vendeurProduitId));
+            stats.put("nombreAvis", avisService.getNombreAvis(vendeurProduitId));
+            return stats;
+        });
     }
 
     /**
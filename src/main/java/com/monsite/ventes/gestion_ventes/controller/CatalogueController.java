@@ -0,0 +1,89 @@
+package com.monsite.ventes.gestion_ventes.controller;
+
+import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.SuggestionResponse;
+import com.monsite.ventes.gestion_ventes.service.CatalogueCacheService;
+import com.monsite.ventes.gestion_ventes.service.InstantanesService;
+import com.monsite.ventes.gestion_ventes.service.PageProduitService;
+import com.monsite.ventes.gestion_ventes.service.SuggestionService;
+import com.monsite.ventes.gestion_ventes.service.VendeurProduitService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/catalogue")
+public class CatalogueController {
+
+    private final SuggestionService suggestionService;
+    private final VendeurProduitService vendeurProduitService;
+    private final CatalogueCacheService catalogueCacheService;
+    private final InstantanesService instantanesService;
+    private final PageProduitService pageProduitService;
+    private final ReponsesConditionnelles reponsesConditionnelles;
+
+    @Value("${catalogue.vedettes.nombre:12}")
+    private int nombreVedettes;
+
+    public CatalogueController(SuggestionService suggestionService,
+                               VendeurProduitService vendeurProduitService,
+                               CatalogueCacheService catalogueCacheService,
+                               InstantanesService instantanesService,
+                               PageProduitService pageProduitService,
+                               ReponsesConditionnelles reponsesConditionnelles) {
+        this.suggestionService = suggestionService;
+        this.vendeurProduitService = vendeurProduitService;
+        this.catalogueCacheService = catalogueCacheService;
+        this.instantanesService = instantanesService;
+        this.pageProduitService = pageProduitService;
+        this.reponsesConditionnelles = reponsesConditionnelles;
+    }
+
+    /**
+     * Produits vedettes de la page d'accueil (les plus vendus), servis depuis leur instantané précompressé
+     */
+    @GetMapping("/vedettes")
+    public ResponseEntity<byte[]> getVedettes(WebRequest webRequest) {
+        return reponsesConditionnelles.repondreInstantane(webRequest, instantanesService.lire("vedettes",
+                catalogueCacheService.getVersionCatalogue(),
+                () -> vendeurProduitService.getProduitsVedettes(nombreVedettes)), true);
+    }
+
+    /**
+     * Complétions de la saisie en cours dans la recherche (titres, produits et catégories les plus vendus)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggerer(@RequestParam(defaultValue = "") String q,
+                                                             @RequestParam(defaultValue = "8") int limite,
+                                                             WebRequest webRequest) {
+        return reponsesConditionnelles.repondre(webRequest, suggestionService.getVersionSuggestions(),
+                () -> suggestionService.suggerer(q, limite));
+    }
+
+    /**
+     * Page d'un produit vendeur en une requête : offre, offres concurrentes, stock, notes et premiers avis
+     */
+    @GetMapping("/produits/{vendeurProduitId}/page")
+    public ResponseEntity<?> getPageProduit(@PathVariable Long vendeurProduitId, WebRequest webRequest) {
+        try {
+            return reponsesConditionnelles.repondreAvecStock(webRequest,
+                    pageProduitService.getVersionPage(vendeurProduitId),
+                    () -> pageProduitService.getPage(vendeurProduitId));
+        } catch (IllegalStateException e) {
+            // Exécuteur saturé ou délai dépassé : indisponibilité passagère, pas une requête invalide
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+}
@@ -2,9 +2,12 @@ package com.monsite.ventes.gestion_ventes.controller;
 
 import com.monsite.ventes.gestion_ventes.entity.Categorie;
 import com.monsite.ventes.gestion_ventes.repository.CategorieRepository;
+import com.monsite.ventes.gestion_ventes.service.CatalogueCacheService;
 import com.monsite.ventes.gestion_ventes.service.FileStorageService;
+import com.monsite.ventes.gestion_ventes.service.InstantanesService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -20,22 +23,38 @@ public class CategorieController {
 
     private final CategorieRepository categorieRepository;
     private final FileStorageService fileStorageService;
+    private final CatalogueCacheService catalogueCacheService;
+    private final InstantanesService instantanesService;
+    private final ReponsesConditionnelles reponsesConditionnelles;
 
-    public CategorieController(CategorieRepository categorieRepository, FileStorageService fileStorageService) {
+    public CategorieController(CategorieRepository categorieRepository, FileStorageService fileStorageService,
+                               CatalogueCacheService catalogueCacheService,
+                               InstantanesService instantanesService,
+                               ReponsesConditionnelles reponsesConditionnelles) {
         this.categorieRepository = categorieRepository;
         this.fileStorageService = fileStorageService;
+        this.catalogueCacheService = catalogueCacheService;
+        this.instantanesService = instantanesService;
+        this.reponsesConditionnelles = reponsesConditionnelles;
     }
 
+    /**
+     * Liste des catégories, servie depuis son instantané précompressé
+     */
     @GetMapping
-    public ResponseEntity<List<Categorie>> getAllCategories() {
-        return ResponseEntity.ok(categorieRepository.findAll());
+    public ResponseEntity<byte[]> getAllCategories(WebRequest webRequest) {
+        return reponsesConditionnelles.repondreInstantane(webRequest, instantanesService.lire("categories",
+                catalogueCacheService.getVersionCategories(),
+                () -> catalogueCacheService.lireCategories(categorieRepository::findAll)), false);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Categorie> getCategorieById(@PathVariable Long id) {
-        return categorieRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Categorie> getCategorieById(@PathVariable Long id, WebRequest webRequest) {
+        return reponsesConditionnelles.repondre(webRequest, catalogueCacheService.getVersionCategories(),
+                () -> catalogueCacheService.lireCategories(categorieRepository::findAll).stream()
+                        .filter(categorie -> categorie.getId().equals(id))
+                        .findFirst()
+                        .orElse(null));
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -51,6 +70,7 @@ public class CategorieController {
         }
         
         Categorie savedCategorie = categorieRepository.save(categorie);
+        catalogueCacheService.invaliderCategorieApresCommit(null);
         return ResponseEntity.ok(savedCategorie);
     }
 
@@ -73,7 +93,9 @@ public class CategorieController {
                         existingCategorie.setImage(imagePath);
                     }
                     
-                    return ResponseEntity.ok(categorieRepository.save(existingCategorie));
+                    Categorie savedCategorie = categorieRepository.save(existingCategorie);
+                    catalogueCacheService.invaliderCategorieApresCommit(id);
+                    return ResponseEntity.ok(savedCategorie);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -87,6 +109,7 @@ public class CategorieController {
                         fileStorageService.deleteFile(categorie.getImage());
                     }
                     categorieRepository.delete(categorie);
+                    catalogueCacheService.invaliderCategorieApresCommit(id);
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
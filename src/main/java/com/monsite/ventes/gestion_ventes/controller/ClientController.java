@@ -1,21 +1,30 @@
 package com.monsite.ventes.gestion_ventes.controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.monsite.ventes.gestion_ventes.dto.CommandeRequest;
 import com.monsite.ventes.gestion_ventes.dto.CommandeResponse;
+import com.monsite.ventes.gestion_ventes.dto.CommandeResumeResponse;
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageCurseurResponse;
+import com.monsite.ventes.gestion_ventes.dto.TicketCommandeResponse;
 import com.monsite.ventes.gestion_ventes.dto.VendeurProduitResponse;
 import com.monsite.ventes.gestion_ventes.entity.*;
 import com.monsite.ventes.gestion_ventes.repository.*;
+import com.monsite.ventes.gestion_ventes.service.CommandeCacheService.CommandeFigee;
 import com.monsite.ventes.gestion_ventes.service.CommandeService;
+import com.monsite.ventes.gestion_ventes.service.FileCommandeService;
+import com.monsite.ventes.gestion_ventes.service.IdempotenceService;
 import com.monsite.ventes.gestion_ventes.service.RecommendationService;
 
 @RestController
@@ -28,13 +37,19 @@ public class ClientController {
     private final ClientRepository clientRepository;
     private final CommandeService commandeService;
     private final RecommendationService recommendationService;
+    private final IdempotenceService idempotenceService;
+    private final FileCommandeService fileCommandeService;
 
     public ClientController(ClientRepository clientRepository, 
                             CommandeService commandeService,
-                            RecommendationService recommendationService) {
+                            RecommendationService recommendationService,
+                            IdempotenceService idempotenceService,
+                            FileCommandeService fileCommandeService) {
         this.clientRepository = clientRepository;
         this.commandeService = commandeService;
         this.recommendationService = recommendationService;
+        this.idempotenceService = idempotenceService;
+        this.fileCommandeService = fileCommandeService;
     }
 
     @GetMapping("/debug")
@@ -80,6 +95,7 @@ public class ClientController {
     @PostMapping("/commandes")
     public ResponseEntity<?> passerCommande(
             @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestHeader(value = IdempotenceService.EN_TETE_CLE, required = false) String cleIdempotence,
             @RequestBody CommandeRequest request) {
         logger.info("=== DEBUT passerCommande ===");
         logger.info("Utilisateur reçu: {}", utilisateur);
@@ -99,33 +115,92 @@ public class ClientController {
         logger.info("Utilisateur Role: {}", utilisateur.getRole());
         logger.info("Utilisateur Authorities: {}", utilisateur.getAuthorities());
         
+        return idempotenceService.executer(utilisateur.getId(), cleIdempotence, "passerCommande", request, () -> {
+            try {
+                if (fileCommandeService.estActif()) {
+                    TicketCommandeResponse ticket = fileCommandeService.soumettre(utilisateur.getId(), request);
+                    logger.info("=== FIN passerCommande - TICKET {} ===", ticket.getId());
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+                }
+                CommandeResponse commande = commandeService.passerCommande(utilisateur.getId(), request);
+                logger.info("=== FIN passerCommande - SUCCES ===");
+                return ResponseEntity.ok(commande);
+            } catch (IllegalStateException e) {
+                logger.warn("File de commandes saturée: {}", e.getMessage());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            } catch (Exception e) {
+                logger.error("=== FIN passerCommande - ERREUR ===", e);
+                return ResponseEntity.badRequest().body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            }
+        });
+    }
+
+    @GetMapping("/commandes")
+    public ResponseEntity<List<CommandeResponse>> getMesCommandes(@AuthenticationPrincipal Utilisateur utilisateur) {
+        List<CommandeResponse> commandes = commandeService.getMesCommandes(utilisateur.getId());
+        return ResponseEntity.ok(commandes);
+    }
+
+    @GetMapping("/commandes/historique")
+    public ResponseEntity<?> getHistoriqueCommandes(
+            @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(defaultValue = "20") int taille) {
         try {
-            CommandeResponse commande = commandeService.passerCommande(utilisateur.getId(), request);
-            logger.info("=== FIN passerCommande - SUCCES ===");
-            return ResponseEntity.ok(commande);
+            PageCurseurResponse<CommandeResumeResponse> page =
+                    commandeService.getHistoriqueCommandes(utilisateur.getId(), curseur, taille);
+            return ResponseEntity.ok(page);
         } catch (Exception e) {
-            logger.error("=== FIN passerCommande - ERREUR ===", e);
-            return ResponseEntity.badRequest().body(
-                MessageResponse.builder()
+            return ResponseEntity.badRequest().body(MessageResponse.builder()
                     .success(false)
                     .message(e.getMessage())
-                    .build()
-            );
+                    .build());
         }
     }
 
-    @GetMapping("/commandes")
-    public ResponseEntity<List<CommandeResponse>> getMesCommandes(@AuthenticationPrincipal Utilisateur utilisateur) {
-        List<CommandeResponse> commandes = commandeService.getMesCommandes(utilisateur.getId());
-        return ResponseEntity.ok(commandes);
+    @GetMapping("/commandes/tickets/{id}")
+    public CompletableFuture<ResponseEntity<?>> getTicketCommande(
+            @AuthenticationPrincipal Utilisateur utilisateur,
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean attendre) {
+        try {
+            if (!attendre) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.ok(fileCommandeService.getTicket(utilisateur.getId(), id)));
+            }
+            return fileCommandeService.attendreTicket(utilisateur.getId(), id, 25)
+                    .thenApply(ResponseEntity::ok);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build()));
+        }
     }
 
     @GetMapping("/commandes/{id}")
     public ResponseEntity<CommandeResponse> getCommande(
             @AuthenticationPrincipal Utilisateur utilisateur,
-            @PathVariable Long id) {
-        CommandeResponse commande = commandeService.getCommandeById(utilisateur.getId(), id);
-        return ResponseEntity.ok(commande);
+            @PathVariable Long id,
+            WebRequest webRequest) {
+        CommandeFigee commande = commandeService.getCommandeById(utilisateur.getId(), id);
+        if (commande.etag() == null) {
+            return ResponseEntity.ok(commande.commande());
+        }
+        if (webRequest.checkNotModified(commande.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(commande.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(commande.etag()).body(commande.commande());
     }
 
     @PostMapping("/commandes/{id}/annuler")
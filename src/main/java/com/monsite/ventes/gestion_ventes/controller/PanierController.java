@@ -1,10 +1,16 @@
 package com.monsite.ventes.gestion_ventes.controller;
 
+import com.monsite.ventes.gestion_ventes.dto.CommandeResponse;
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.PanierDeltaResponse;
 import com.monsite.ventes.gestion_ventes.dto.PanierRequest;
 import com.monsite.ventes.gestion_ventes.dto.PanierResponse;
+import com.monsite.ventes.gestion_ventes.dto.ReservationStockResponse;
 import com.monsite.ventes.gestion_ventes.entity.Utilisateur;
+import com.monsite.ventes.gestion_ventes.service.CommandeService;
+import com.monsite.ventes.gestion_ventes.service.IdempotenceService;
 import com.monsite.ventes.gestion_ventes.service.PanierService;
+import com.monsite.ventes.gestion_ventes.service.ReservationStockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -20,9 +26,18 @@ public class PanierController {
     private static final Logger logger = LoggerFactory.getLogger(PanierController.class);
 
     private final PanierService panierService;
+    private final ReservationStockService reservationStockService;
+    private final IdempotenceService idempotenceService;
+    private final CommandeService commandeService;
 
-    public PanierController(PanierService panierService) {
+    public PanierController(PanierService panierService,
+                            ReservationStockService reservationStockService,
+                            IdempotenceService idempotenceService,
+                            CommandeService commandeService) {
         this.panierService = panierService;
+        this.reservationStockService = reservationStockService;
+        this.idempotenceService = idempotenceService;
+        this.commandeService = commandeService;
     }
 
     /**
@@ -52,22 +67,25 @@ public class PanierController {
     @PostMapping("/ajouter")
     public ResponseEntity<?> ajouterProduit(
             @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestHeader(value = IdempotenceService.EN_TETE_CLE, required = false) String cleIdempotence,
             @RequestBody PanierRequest.AjouterProduit request) {
         logger.info("POST /api/client/panier/ajouter - Client ID: {}, Produit ID: {}", 
                 utilisateur.getId(), request.getVendeurProduitId());
         
-        try {
-            PanierResponse panier = panierService.ajouterProduit(utilisateur.getId(), request);
-            return ResponseEntity.ok(panier);
-        } catch (Exception e) {
-            logger.error("Erreur lors de l'ajout au panier", e);
-            return ResponseEntity.badRequest().body(
-                MessageResponse.builder()
-                    .success(false)
-                    .message(e.getMessage())
-                    .build()
-            );
-        }
+        return idempotenceService.executer(utilisateur.getId(), cleIdempotence, "ajouterPanier", request, () -> {
+            try {
+                PanierResponse panier = panierService.ajouterProduit(utilisateur.getId(), request);
+                return ResponseEntity.ok(panier);
+            } catch (Exception e) {
+                logger.error("Erreur lors de l'ajout au panier", e);
+                return ResponseEntity.badRequest().body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            }
+        });
     }
 
     /**
@@ -76,22 +94,79 @@ public class PanierController {
     @PutMapping("/modifier")
     public ResponseEntity<?> modifierQuantite(
             @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestHeader(value = IdempotenceService.EN_TETE_CLE, required = false) String cleIdempotence,
             @RequestBody PanierRequest.ModifierQuantite request) {
         logger.info("PUT /api/client/panier/modifier - Client ID: {}, Produit ID: {}, Quantité: {}", 
                 utilisateur.getId(), request.getVendeurProduitId(), request.getQuantite());
         
-        try {
-            PanierResponse panier = panierService.modifierQuantite(utilisateur.getId(), request);
-            return ResponseEntity.ok(panier);
-        } catch (Exception e) {
-            logger.error("Erreur lors de la modification de la quantité", e);
-            return ResponseEntity.badRequest().body(
-                MessageResponse.builder()
-                    .success(false)
-                    .message(e.getMessage())
-                    .build()
-            );
-        }
+        return idempotenceService.executer(utilisateur.getId(), cleIdempotence, "modifierPanier", request, () -> {
+            try {
+                PanierResponse panier = panierService.modifierQuantite(utilisateur.getId(), request);
+                return ResponseEntity.ok(panier);
+            } catch (Exception e) {
+                logger.error("Erreur lors de la modification de la quantité", e);
+                return ResponseEntity.badRequest().body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            }
+        });
+    }
+
+    /**
+     * Applique un lot d'opérations (ajout, modification, suppression) au panier
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> appliquerLot(
+            @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestHeader(value = IdempotenceService.EN_TETE_CLE, required = false) String cleIdempotence,
+            @RequestBody PanierRequest.Lot request) {
+        logger.info("POST /api/client/panier/batch - Client ID: {}, {} opération(s)", utilisateur.getId(),
+                request.getOperations() != null ? request.getOperations().size() : 0);
+
+        return idempotenceService.executer(utilisateur.getId(), cleIdempotence, "lotPanier", request, () -> {
+            try {
+                PanierDeltaResponse resultat = panierService.appliquerLot(utilisateur.getId(), request);
+                return ResponseEntity.ok(resultat);
+            } catch (Exception e) {
+                logger.error("Erreur lors de l'application du lot au panier", e);
+                return ResponseEntity.badRequest().body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            }
+        });
+    }
+
+    /**
+     * Passe commande avec le contenu du panier enregistré
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(
+            @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestHeader(value = IdempotenceService.EN_TETE_CLE, required = false) String cleIdempotence,
+            @RequestBody(required = false) PanierRequest.Checkout request) {
+        logger.info("POST /api/client/panier/checkout - Client ID: {}", utilisateur.getId());
+
+        String adresseLivraison = request != null ? request.getAdresseLivraison() : null;
+        return idempotenceService.executer(utilisateur.getId(), cleIdempotence, "checkoutPanier", request, () -> {
+            try {
+                CommandeResponse commande = commandeService.passerCommandeDepuisPanier(utilisateur.getId(), adresseLivraison);
+                return ResponseEntity.ok(commande);
+            } catch (Exception e) {
+                logger.error("Erreur lors du checkout du panier", e);
+                return ResponseEntity.badRequest().body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            }
+        });
     }
 
     /**
@@ -100,36 +175,64 @@ public class PanierController {
     @DeleteMapping("/produit/{vendeurProduitId}")
     public ResponseEntity<?> supprimerProduit(
             @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestHeader(value = IdempotenceService.EN_TETE_CLE, required = false) String cleIdempotence,
             @PathVariable Long vendeurProduitId) {
         logger.info("DELETE /api/client/panier/produit/{} - Client ID: {}", 
                 vendeurProduitId, utilisateur.getId());
         
-        try {
-            PanierResponse panier = panierService.supprimerProduit(utilisateur.getId(), vendeurProduitId);
-            return ResponseEntity.ok(panier);
-        } catch (Exception e) {
-            logger.error("Erreur lors de la suppression du produit", e);
-            return ResponseEntity.badRequest().body(
-                MessageResponse.builder()
-                    .success(false)
-                    .message(e.getMessage())
-                    .build()
-            );
-        }
+        return idempotenceService.executer(utilisateur.getId(), cleIdempotence, "supprimerPanier", vendeurProduitId, () -> {
+            try {
+                PanierResponse panier = panierService.supprimerProduit(utilisateur.getId(), vendeurProduitId);
+                return ResponseEntity.ok(panier);
+            } catch (Exception e) {
+                logger.error("Erreur lors de la suppression du produit", e);
+                return ResponseEntity.badRequest().body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            }
+        });
     }
 
     /**
      * Vide le panier
      */
     @DeleteMapping("/vider")
-    public ResponseEntity<?> viderPanier(@AuthenticationPrincipal Utilisateur utilisateur) {
+    public ResponseEntity<?> viderPanier(
+            @AuthenticationPrincipal Utilisateur utilisateur,
+            @RequestHeader(value = IdempotenceService.EN_TETE_CLE, required = false) String cleIdempotence) {
         logger.info("DELETE /api/client/panier/vider - Client ID: {}", utilisateur.getId());
         
+        return idempotenceService.executer(utilisateur.getId(), cleIdempotence, "viderPanier", null, () -> {
+            try {
+                MessageResponse response = panierService.viderPanier(utilisateur.getId());
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                logger.error("Erreur lors du vidage du panier", e);
+                return ResponseEntity.badRequest().body(
+                    MessageResponse.builder()
+                        .success(false)
+                        .message(e.getMessage())
+                        .build()
+                );
+            }
+        });
+    }
+
+    /**
+     * Réserve le stock du panier au début du checkout
+     */
+    @PostMapping("/reserver")
+    public ResponseEntity<?> reserverPanier(@AuthenticationPrincipal Utilisateur utilisateur) {
+        logger.info("POST /api/client/panier/reserver - Client ID: {}", utilisateur.getId());
+
         try {
-            MessageResponse response = panierService.viderPanier(utilisateur.getId());
-            return ResponseEntity.ok(response);
+            ReservationStockResponse reservation = reservationStockService.reserverPanier(utilisateur.getId());
+            return ResponseEntity.ok(reservation);
         } catch (Exception e) {
-            logger.error("Erreur lors du vidage du panier", e);
+            logger.error("Erreur lors de la réservation du stock", e);
             return ResponseEntity.badRequest().body(
                 MessageResponse.builder()
                     .success(false)
@@ -138,4 +241,18 @@ public class PanierController {
             );
         }
     }
+
+    /**
+     * Libère la réservation de stock (abandon du checkout)
+     */
+    @DeleteMapping("/reservation")
+    public ResponseEntity<MessageResponse> libererReservation(@AuthenticationPrincipal Utilisateur utilisateur) {
+        logger.info("DELETE /api/client/panier/reservation - Client ID: {}", utilisateur.getId());
+
+        reservationStockService.liberer(utilisateur.getId());
+        return ResponseEntity.ok(MessageResponse.builder()
+                .success(true)
+                .message("Réservation libérée")
+                .build());
+    }
 }
@@ -4,53 +4,94 @@ import com.monsite.ventes.gestion_ventes.entity.Produit;
 import com.monsite.ventes.gestion_ventes.entity.Categorie;
 import com.monsite.ventes.gestion_ventes.repository.ProduitRepository;
 import com.monsite.ventes.gestion_ventes.repository.CategorieRepository;
+import com.monsite.ventes.gestion_ventes.service.CatalogueCacheService;
 import com.monsite.ventes.gestion_ventes.service.FileStorageService;
+import com.monsite.ventes.gestion_ventes.service.InventaireService;
+import com.monsite.ventes.gestion_ventes.service.RechercheService;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/produits")
 public class ProduitController {
 
+    private static final int RESULTATS_RECHERCHE_MAX = 100;
+
     private final ProduitRepository produitRepository;
     private final CategorieRepository categorieRepository;
     private final FileStorageService fileStorageService;
+    private final InventaireService inventaireService;
+    private final CatalogueCacheService catalogueCacheService;
+    private final ReponsesConditionnelles reponsesConditionnelles;
+    private final RechercheService rechercheService;
 
     public ProduitController(ProduitRepository produitRepository, 
                             CategorieRepository categorieRepository,
-                            FileStorageService fileStorageService) {
+                            FileStorageService fileStorageService,
+                            InventaireService inventaireService,
+                            CatalogueCacheService catalogueCacheService,
+                            ReponsesConditionnelles reponsesConditionnelles,
+                            RechercheService rechercheService) {
         this.produitRepository = produitRepository;
         this.categorieRepository = categorieRepository;
         this.fileStorageService = fileStorageService;
+        this.inventaireService = inventaireService;
+        this.catalogueCacheService = catalogueCacheService;
+        this.reponsesConditionnelles = reponsesConditionnelles;
+        this.rechercheService = rechercheService;
     }
 
     @GetMapping
-    public ResponseEntity<List<Produit>> getAllProduits() {
-        return ResponseEntity.ok(produitRepository.findAll());
+    public ResponseEntity<List<Produit>> getAllProduits(WebRequest webRequest) {
+        return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                produitRepository::findAll);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Produit> getProduitById(@PathVariable Long id) {
-        return produitRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Produit> getProduitById(@PathVariable Long id, WebRequest webRequest) {
+        return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                () -> produitRepository.findById(id).orElse(null));
     }
 
     @GetMapping("/categorie/{categorieId}")
-    public ResponseEntity<List<Produit>> getProduitsByCategorie(@PathVariable Long categorieId) {
-        return ResponseEntity.ok(produitRepository.findByCategorieId(categorieId));
+    public ResponseEntity<List<Produit>> getProduitsByCategorie(@PathVariable Long categorieId, WebRequest webRequest) {
+        return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                () -> produitRepository.findByCategorieId(categorieId));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Produit>> searchProduits(@RequestParam String nom) {
-        return ResponseEntity.ok(produitRepository.findByNomContainingIgnoreCase(nom));
+    public ResponseEntity<List<Produit>> searchProduits(@RequestParam String nom, WebRequest webRequest) {
+        return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                () -> rechercherProduits(nom));
+    }
+
+    /**
+     * Produits classés par pertinence via l'index de recherche (LIKE en base tant qu'il n'est pas construit)
+     */
+    private List<Produit> rechercherProduits(String texte) {
+        if (!rechercheService.estPret()) {
+            return produitRepository.findByNomContainingIgnoreCase(texte);
+        }
+
+        List<Long> classement = rechercheService.rechercherProduits(texte, RESULTATS_RECHERCHE_MAX);
+        Map<Long, Produit> produits = produitRepository.findAllById(classement).stream()
+                .collect(Collectors.toMap(Produit::getId, Function.identity()));
+        return classement.stream()
+                .map(produits::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -79,6 +120,7 @@ public class ProduitController {
         }
 
             Produit savedProduit = produitRepository.save(produit);
+            catalogueCacheService.invaliderProduitApresCommit(savedProduit.getId());
             return ResponseEntity.ok(savedProduit);
     }
 
@@ -101,7 +143,7 @@ public class ProduitController {
                     if (!existingProduit.getQuantite().equals(quantite)) {
                         existingProduit.setDateDernierStock(LocalDate.now());
                     }
-                    existingProduit.setQuantite(quantite);
+                    inventaireService.definirStock(existingProduit, quantite);
 
                     if (categorieId != null) {
                         categorieRepository.findById(categorieId)
@@ -119,7 +161,9 @@ public class ProduitController {
                         existingProduit.setImage(imagePath);
                     }
 
-                    return ResponseEntity.ok(produitRepository.save(existingProduit));
+                    Produit savedProduit = produitRepository.save(existingProduit);
+                    catalogueCacheService.invaliderProduitApresCommit(id);
+                    return ResponseEntity.ok(savedProduit);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -132,6 +176,7 @@ public class ProduitController {
                         fileStorageService.deleteFile(produit.getImage());
                     }
                     produitRepository.delete(produit);
+                    catalogueCacheService.invaliderProduitApresCommit(id);
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -0,0 +1,129 @@
+package com.monsite.ventes.gestion_ventes.controller;
+
+import com.monsite.ventes.gestion_ventes.dto.VersionRessource;
+import com.monsite.ventes.gestion_ventes.service.InstantanesService.Instantane;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Réponses GET conditionnelles des ressources publiques (catalogue, catégories, avis).
+ * If-None-Match / If-Modified-Since sont vérifiés avant de construire le corps :
+ * une ressource inchangée répond 304 sans aucune requête en base.
+ */
+@Component
+public class ReponsesConditionnelles {
+
+    private final CacheControl cacheControl;
+    private final CacheControl cacheControlStock;
+
+    public ReponsesConditionnelles(@Value("${http.cache.public.max-age-secondes:60}") long maxAgeSecondes,
+                                   @Value("${http.cache.stock.max-age-secondes:0}") long maxAgeStockSecondes) {
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSecondes)).cachePublic();
+        // À 0, le navigateur revalide à chaque affichage (304 tant que rien n'a bougé)
+        this.cacheControlStock = maxAgeStockSecondes > 0
+                ? CacheControl.maxAge(Duration.ofSeconds(maxAgeStockSecondes)).cachePublic()
+                : CacheControl.noCache().cachePublic();
+    }
+
+    /**
+     * Corps construit seulement si la ressource a changé ; un corps null donne une 404
+     */
+    public <T> ResponseEntity<T> repondre(WebRequest webRequest, VersionRessource version, Supplier<T> corps) {
+        return repondre(webRequest, version, cacheControl, corps);
+    }
+
+    /**
+     * Même chose pour une réponse qui contient du stock, dont la durée de fraîcheur est plus courte
+     */
+    public <T> ResponseEntity<T> repondreAvecStock(WebRequest webRequest, VersionRessource version, Supplier<T> corps) {
+        return repondre(webRequest, version, cacheControlStock, corps);
+    }
+
+    /**
+     * Instantané précompressé : gzip si le client l'accepte, sans sérialisation ni compression à la requête.
+     * Chaque encodage a son propre ETag, la réponse varie selon Accept-Encoding.
+     */
+    public ResponseEntity<byte[]> repondreInstantane(WebRequest webRequest, Instantane instantane, boolean avecStock) {
+        boolean gzip = accepteGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = instantane.version().etag();
+        if (gzip) {
+            etag = etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+        long derniereModification = instantane.version().derniereModification();
+        CacheControl cache = avecStock ? cacheControlStock : cacheControl;
+
+        if (webRequest.checkNotModified(etag, derniereModification)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cache)
+                    .eTag(etag)
+                    .lastModified(derniereModification)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
+                .cacheControl(cache)
+                .eTag(etag)
+                .lastModified(derniereModification)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(instantane.gzip());
+        }
+        return reponse.body(instantane.json());
+    }
+
+    /**
+     * Vrai si Accept-Encoding cite gzip (ou *) sans le refuser par q=0
+     */
+    private static boolean accepteGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String element : acceptEncoding.split(",")) {
+            String[] parties = element.trim().split(";");
+            String codage = parties[0].trim();
+            if (!codage.equalsIgnoreCase("gzip") && !codage.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parties.length; i++) {
+                String parametre = parties[i].trim().replace(" ", "");
+                if (parametre.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private <T> ResponseEntity<T> repondre(WebRequest webRequest, VersionRessource version,
+                                           CacheControl cacheControl, Supplier<T> corps) {
+        if (webRequest.checkNotModified(version.etag(), version.derniereModification())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(version.etag())
+                    .lastModified(version.derniereModification())
+                    .build();
+        }
+
+        T valeur = corps.get();
+        if (valeur == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(version.etag())
+                .lastModified(version.derniereModification())
+                .body(valeur);
+    }
+}
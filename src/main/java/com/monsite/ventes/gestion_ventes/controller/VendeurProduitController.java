@@ -1,24 +1,116 @@
 package com.monsite.ventes.gestion_ventes.controller;
 
+import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
 import com.monsite.ventes.gestion_ventes.dto.VendeurProduitResponse;
+import com.monsite.ventes.gestion_ventes.service.CatalogueCacheService;
+import com.monsite.ventes.gestion_ventes.service.FacettesService;
+import com.monsite.ventes.gestion_ventes.service.InstantanesService;
 import com.monsite.ventes.gestion_ventes.service.VendeurProduitService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/vendeur-produits")
 public class VendeurProduitController {
 
+    private static final int TAILLE_PAGE_DEFAUT = 24;
+
     private final VendeurProduitService vendeurProduitService;
 
-    public VendeurProduitController(VendeurProduitService vendeurProduitService) {
+    private final CatalogueCacheService catalogueCacheService;
+    private final FacettesService facettesService;
+    private final InstantanesService instantanesService;
+    private final ReponsesConditionnelles reponsesConditionnelles;
+
+    public VendeurProduitController(VendeurProduitService vendeurProduitService,
+                                    CatalogueCacheService catalogueCacheService,
+                                    FacettesService facettesService,
+                                    InstantanesService instantanesService,
+                                    ReponsesConditionnelles reponsesConditionnelles) {
         this.vendeurProduitService = vendeurProduitService;
+        this.catalogueCacheService = catalogueCacheService;
+        this.facettesService = facettesService;
+        this.instantanesService = instantanesService;
+        this.reponsesConditionnelles = reponsesConditionnelles;
     }
 
     @GetMapping("/approuves")
-    public ResponseEntity<List<VendeurProduitResponse>> getProduitsApprouves() {
-        return ResponseEntity.ok(vendeurProduitService.getProduitsApprouves());
+    public ResponseEntity<List<VendeurProduitResponse>> getProduitsApprouves(WebRequest webRequest) {
+        return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                vendeurProduitService::getProduitsApprouves);
+    }
+
+    @GetMapping("/approuves/{id}")
+    public ResponseEntity<VendeurProduitResponse> getProduitApprouve(@PathVariable Long id, WebRequest webRequest) {
+        return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                () -> vendeurProduitService.getProduitApprouve(id));
+    }
+
+    /**
+     * Stock disponible des produits demandés (sans recharger leurs fiches)
+     */
+    @GetMapping("/stocks")
+    public ResponseEntity<Map<Long, Integer>> getStocks(@RequestParam List<Long> produitIds, WebRequest webRequest) {
+        return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                () -> vendeurProduitService.getStocks(produitIds));
+    }
+
+    /**
+     * Catalogue public paginé par curseur, avec recherche plein texte (q) et filtres optionnels
+     */
+    @GetMapping("/catalogue")
+    public ResponseEntity<?> getCatalogue(@RequestParam(required = false) String curseur,
+                                          @RequestParam(required = false) String q,
+                                          @RequestParam(required = false) Long categorieId,
+                                          @RequestParam(required = false) Long vendeurId,
+                                          @RequestParam(required = false) BigDecimal prixMin,
+                                          @RequestParam(required = false) BigDecimal prixMax,
+                                          @RequestParam(defaultValue = "false") boolean enStock,
+                                          @RequestParam(defaultValue = "" + TAILLE_PAGE_DEFAUT) int taille,
+                                          WebRequest webRequest) {
+        try {
+            // Première page sans filtre (page d'accueil) : servie depuis son instantané précompressé
+            if (curseur == null && q == null && categorieId == null && vendeurId == null
+                    && prixMin == null && prixMax == null && !enStock && taille == TAILLE_PAGE_DEFAUT) {
+                return reponsesConditionnelles.repondreInstantane(webRequest, instantanesService.lire("catalogue",
+                        catalogueCacheService.getVersionCatalogue(),
+                        () -> vendeurProduitService.getCatalogue(null, null, null, null, null, null, false,
+                                TAILLE_PAGE_DEFAUT)), true);
+            }
+            return reponsesConditionnelles.repondreAvecStock(webRequest, catalogueCacheService.getVersionCatalogue(),
+                    () -> vendeurProduitService.getCatalogue(curseur, q, categorieId, vendeurId, prixMin, prixMax,
+                            enStock, taille));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+
+    /**
+     * Comptages des facettes du catalogue pour les filtres sélectionnés (plusieurs valeurs par facette possibles)
+     */
+    @GetMapping("/facettes")
+    public ResponseEntity<?> getFacettes(@RequestParam(required = false) List<Long> categorieIds,
+                                         @RequestParam(required = false) List<Long> vendeurIds,
+                                         @RequestParam(required = false) List<Integer> tranches,
+                                         @RequestParam(defaultValue = "false") boolean enStock,
+                                         WebRequest webRequest) {
+        try {
+            return reponsesConditionnelles.repondreAvecStock(webRequest,
+                    facettesService.getVersionFacettes(),
+                    () -> facettesService.getFacettes(categorieIds, vendeurIds, tranches, enStock));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(MessageResponse.builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        }
     }
 }
@@ -35,5 +35,7 @@ public class CommandeResponse {
         private Integer quantite;
         private BigDecimal prixUnitaire;
         private BigDecimal sousTotal;
+        // Titre de l'offre au moment de la commande
+        private String titre;
     }
 }
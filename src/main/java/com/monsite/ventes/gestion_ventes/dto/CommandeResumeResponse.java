@@ -0,0 +1,32 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandeResumeResponse {
+
+    private Long id;
+    private LocalDateTime dateCommande;
+    private StatutCommande statut;
+    private BigDecimal montantTotal;
+    private Long nombreLignes;
+    private String premiereImage;
+
+    /**
+     * Constructeur utilisé par la projection JPQL (l'image est complétée ensuite)
+     */
+    public CommandeResumeResponse(Long id, LocalDateTime dateCommande, StatutCommande statut,
+                                  BigDecimal montantTotal, Long nombreLignes) {
+        this(id, dateCommande, statut, montantTotal, nombreLignes, null);
+    }
+}
@@ -0,0 +1,38 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Comptages des facettes du catalogue : pour chaque valeur, le nombre d'offres obtenues en l'ajoutant
+ * aux filtres des autres facettes.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacettesResponse {
+
+    private int total;
+    private List<Facette> categories;
+    private List<Facette> vendeurs;
+    private List<Facette> tranchesPrix;
+    private int enStock;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Facette {
+        private Long id;
+        private String libelle;
+        private int nombre;
+        private BigDecimal prixMin;
+        private BigDecimal prixMax;
+    }
+}
@@ -0,0 +1,23 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page d'une pagination par curseur : le curseur suivant est à renvoyer tel quel
+ * pour obtenir la page d'après (null s'il n'y a plus de résultats).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCurseurResponse<T> {
+
+    private List<T> elements;
+    private String curseurSuivant;
+    private boolean suite;
+}
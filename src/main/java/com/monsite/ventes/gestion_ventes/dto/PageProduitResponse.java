@@ -0,0 +1,28 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tout ce qu'affiche la page d'un produit vendeur, en une seule réponse : l'offre, les offres
+ * concurrentes du même produit, le stock (commun à toutes ces offres), les notes et la première page d'avis.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageProduitResponse {
+
+    private VendeurProduitResponse offre;
+    private List<VendeurProduitResponse> offresConcurrentes;
+    private Integer stock;
+    private Double moyenne;
+    private Long nombreAvis;
+    private Map<Integer, Long> histogrammeNotes;
+    private PageCurseurResponse<AvisResponse> avis;
+}
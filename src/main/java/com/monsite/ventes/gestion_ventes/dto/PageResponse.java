@@ -0,0 +1,21 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+
+    private List<T> contenu;
+    private int page;
+    private int taille;
+    private long totalElements;
+    private int totalPages;
+}
@@ -0,0 +1,29 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Réponse d'un lot d'opérations sur le panier : soit le panier complet,
+ * soit les seules lignes modifiées ou supprimées depuis la version connue du client
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PanierDeltaResponse {
+    private Long version;
+    private boolean complet;
+    // Renseigné uniquement si complet
+    private PanierResponse panier;
+    private List<PanierResponse.LignePanierResponse> lignesModifiees;
+    // Identifiants des produits vendeurs retirés du panier
+    private List<Long> lignesSupprimees;
+    private BigDecimal montantTotal;
+    private Integer nombreProduits;
+}
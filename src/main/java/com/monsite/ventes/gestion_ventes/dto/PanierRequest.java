@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 public class PanierRequest {
 
     /**
@@ -31,4 +33,41 @@ public class PanierRequest {
         private Long vendeurProduitId;
         private Integer quantite;
     }
+
+    /**
+     * Lot d'opérations appliquées ensemble au panier (synchronisation après modifications hors ligne)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Lot {
+        private List<Operation> operations;
+        // Dernière version du panier connue du client ; absente pour recevoir le panier complet
+        private Long versionConnue;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+        private TypeOperation type;
+        private Long vendeurProduitId;
+        private Integer quantite;
+    }
+
+    /**
+     * Passage de commande à partir du panier enregistré
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Checkout {
+        private String adresseLivraison;
+    }
+
+    public enum TypeOperation {
+        AJOUTER,
+        MODIFIER,
+        SUPPRIMER
+    }
 }
@@ -23,6 +23,8 @@ public class PanierResponse {
     private Integer nombreProduits;
     private LocalDateTime dateCreation;
     private LocalDateTime dateModification;
+    // Version du panier, à renvoyer pour obtenir les modifications suivantes sous forme de différence
+    private Long version;
 
     @Data
     @Builder
@@ -0,0 +1,30 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationStockResponse {
+
+    private Long clientId;
+    private LocalDateTime dateExpiration;
+    private List<LigneReservationResponse> lignes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LigneReservationResponse {
+        private Long vendeurProduitId;
+        private Long produitId;
+        private Integer quantite;
+    }
+}
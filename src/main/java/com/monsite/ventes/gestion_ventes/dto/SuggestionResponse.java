@@ -0,0 +1,20 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Complétion proposée pendant la saisie : type (OFFRE, PRODUIT ou CATEGORIE), identifiant et libellé
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionResponse {
+
+    private String type;
+    private Long id;
+    private String libelle;
+}
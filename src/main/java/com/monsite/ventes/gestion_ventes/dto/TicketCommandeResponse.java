@@ -0,0 +1,23 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import com.monsite.ventes.gestion_ventes.entity.TicketCommande.StatutTicket;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketCommandeResponse {
+
+    private Long id;
+    private StatutTicket statut;
+    private Long commandeId;
+    private String message;
+    private LocalDateTime dateCreation;
+    private LocalDateTime dateTraitement;
+}
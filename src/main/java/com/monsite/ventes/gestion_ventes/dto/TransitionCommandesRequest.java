@@ -0,0 +1,36 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Changement de statut en masse : soit une liste d'identifiants, soit un filtre.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionCommandesRequest {
+
+    private StatutCommande statutCible;
+    private List<Long> ids;
+    private FiltreCommandes filtre;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FiltreCommandes {
+        private StatutCommande statut;
+        private Long vendeurId;
+        private Long produitId;
+        private LocalDate dateDebut;
+        private LocalDate dateFin;
+    }
+}
@@ -0,0 +1,33 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionCommandesResponse {
+
+    private StatutCommande statutCible;
+    private int nombreDemandees;
+    private int nombreModifiees;
+    private int nombreRefusees;
+    private List<ResultatTransition> resultats;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ResultatTransition {
+        private Long commandeId;
+        private boolean succes;
+        private StatutCommande ancienStatut;
+        private String message;
+    }
+}
@@ -0,0 +1,7 @@
+package com.monsite.ventes.gestion_ventes.dto;
+
+/**
+ * Validateurs HTTP d'une ressource publique : ETag fort et date de dernière modification (ms)
+ */
+public record VersionRessource(String etag, long derniereModification) {
+}
@@ -0,0 +1,19 @@
+package com.monsite.ventes.gestion_ventes.dto.projection;
+
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * En-tête d'une commande lu directement en colonnes (sans entité gérée)
+ */
+public record EnteteCommandeProjection(
+        Long id,
+        Long clientId,
+        String clientNom,
+        LocalDateTime dateCommande,
+        StatutCommande statut,
+        BigDecimal montantTotal,
+        String adresseLivraison) {
+}
@@ -0,0 +1,29 @@
+package com.monsite.ventes.gestion_ventes.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Ligne de commande aplatie avec son produit vendeur, son vendeur, son produit et sa catégorie
+ */
+public record LigneCommandeProjection(
+        Long commandeId,
+        Long id,
+        Integer quantite,
+        BigDecimal prixUnitaire,
+        BigDecimal sousTotal,
+        String titreCommande,
+        Long vendeurProduitId,
+        BigDecimal prixVendeur,
+        String image,
+        String description,
+        String titre,
+        boolean estApprouve,
+        Long vendeurId,
+        String vendeurNom,
+        Long produitId,
+        String produitNom,
+        BigDecimal prixOriginal,
+        Integer quantiteStock,
+        Long categorieId,
+        String categorieNom) {
+}
@@ -0,0 +1,18 @@
+package com.monsite.ventes.gestion_ventes.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Ligne du panier enregistré avec ce qu'il faut pour la valider au checkout (prix, approbation, stock et mode de stock)
+ */
+public record LignePanierCheckoutProjection(
+        Long panierId,
+        Long vendeurProduitId,
+        Integer quantite,
+        BigDecimal prixVendeur,
+        boolean estApprouve,
+        String titre,
+        Long produitId,
+        Integer stockProduit,
+        boolean stockChaud) {
+}
@@ -0,0 +1,14 @@
+package com.monsite.ventes.gestion_ventes.dto.projection;
+
+/**
+ * Textes d'une offre vendeur approuvée à indexer pour la recherche (offre et produit associé)
+ */
+public record OffreIndexationProjection(
+        Long id,
+        Long produitId,
+        Long vendeurId,
+        String titre,
+        String description,
+        String produitNom,
+        String produitDescription) {
+}
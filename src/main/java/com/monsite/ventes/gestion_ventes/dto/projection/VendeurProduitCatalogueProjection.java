@@ -0,0 +1,23 @@
+package com.monsite.ventes.gestion_ventes.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Produit vendeur approuvé tel qu'affiché dans le catalogue public (vendeur, produit et catégorie à plat)
+ */
+public record VendeurProduitCatalogueProjection(
+        Long id,
+        Long vendeurId,
+        String vendeurNom,
+        Long produitId,
+        String produitNom,
+        BigDecimal prixOriginal,
+        BigDecimal prixVendeur,
+        String image,
+        String description,
+        String titre,
+        Long categorieId,
+        String categorieNom,
+        Integer quantiteStock,
+        boolean stockChaud) {
+}
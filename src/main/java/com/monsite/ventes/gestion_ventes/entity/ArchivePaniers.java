@@ -0,0 +1,49 @@
+package com.monsite.ventes.gestion_ventes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Résumé d'un lot de paniers abandonnés supprimés par la purge (conservé pour les statistiques)
+ */
+@Entity
+@Table(name = "archives_paniers", indexes = {
+        @Index(name = "idx_archives_paniers_date", columnList = "dateArchivage")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivePaniers {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime dateArchivage;
+
+    // Les paniers du lot n'avaient pas été modifiés depuis cette date
+    @Column(nullable = false)
+    private LocalDateTime dateLimite;
+
+    @Column(nullable = false)
+    private Integer nombrePaniers;
+
+    // Paniers du lot qui contenaient au moins une ligne
+    @Column(nullable = false)
+    private Integer nombrePaniersNonVides;
+
+    @Column(nullable = false)
+    private Long nombreLignes;
+
+    @Column(nullable = false)
+    private Long quantiteTotale;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal montantTotal;
+}
@@ -20,7 +20,9 @@ import java.time.LocalDateTime;
 public class Avis {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "avis_gen")
+    @TableGenerator(name = "avis_gen", table = "id_generateurs", pkColumnName = "nom_sequence",
+            valueColumnName = "valeur_suivante", pkColumnValue = "avis", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,52 @@
+package com.monsite.ventes.gestion_ventes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réponse mémorisée pour une clé d'idempotence (en-tête Idempotency-Key).
+ * Un rejeu de la même requête renvoie cette réponse sans réexécuter l'opération.
+ */
+@Entity
+@Table(name = "cles_idempotence",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cles_idempotence_client_cle", columnNames = {"clientId", "cle"}),
+        indexes = @Index(name = "idx_cles_idempotence_expiration", columnList = "dateExpiration"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CleIdempotence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long clientId;
+
+    @Column(nullable = false, length = 100)
+    private String cle;
+
+    @Column(nullable = false, length = 50)
+    private String operation;
+
+    // Empreinte SHA-256 du corps de la requête : une clé réutilisée pour une autre requête est refusée
+    @Column(length = 64)
+    private String empreinte;
+
+    // 0 tant que la clé est seulement réservée (opération validée, réponse pas encore enregistrée)
+    @Column(nullable = false)
+    private Integer statutHttp;
+
+    @Column(columnDefinition = "TEXT")
+    private String reponse;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime dateExpiration;
+}
@@ -15,7 +15,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "commandes")
+@Table(name = "commandes", indexes = {
+        @Index(name = "idx_commandes_client_date", columnList = "client_id, dateCommande, id")
+})
 @Data
 @EqualsAndHashCode(exclude = {"client", "lignesCommande"})
 @ToString(exclude = {"client", "lignesCommande"})
@@ -24,7 +26,9 @@ import java.util.List;
 public class Commande {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "commandes_gen")
+    @TableGenerator(name = "commandes_gen", table = "id_generateurs", pkColumnName = "nom_sequence",
+            valueColumnName = "valeur_suivante", pkColumnValue = "commandes", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -42,6 +46,14 @@ public class Commande {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal montantTotal;
 
+    // Adresse du client au moment de la commande : la modifier ensuite ne change pas les commandes passées
+    @Column
+    private String adresseLivraison;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
     @JsonIgnore
     @OneToMany(mappedBy = "commande", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<LigneCommande> lignesCommande = new ArrayList<>();
@@ -51,6 +63,18 @@ public class Commande {
         CONFIRMEE,
         EN_COURS_LIVRAISON,
         LIVREE,
-        ANNULEE
+        ANNULEE;
+
+        /**
+         * Transitions autorisées lors des changements de statut par l'administration (unitaires ou en masse)
+         */
+        public boolean peutPasserA(StatutCommande cible) {
+            return switch (this) {
+                case EN_ATTENTE -> cible == CONFIRMEE || cible == ANNULEE;
+                case CONFIRMEE -> cible == EN_COURS_LIVRAISON || cible == ANNULEE;
+                case EN_COURS_LIVRAISON -> cible == LIVREE;
+                case LIVREE, ANNULEE -> false;
+            };
+        }
     }
 }
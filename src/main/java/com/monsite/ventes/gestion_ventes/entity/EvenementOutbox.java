@@ -0,0 +1,92 @@
+package com.monsite.ventes.gestion_ventes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement métier enregistré dans la même transaction que la modification qui le produit
+ * (outbox transactionnelle). Il est ensuite distribué aux abonnés en différé.
+ */
+@Entity
+@Table(name = "evenements_outbox", indexes = {
+        @Index(name = "idx_evenements_outbox_statut", columnList = "statut, dateDisponibilite, id"),
+        @Index(name = "idx_evenements_outbox_agregat", columnList = "typeAgregat, agregatId, statut, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EvenementOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "evenements_outbox_gen")
+    @TableGenerator(name = "evenements_outbox_gen", table = "id_generateurs", pkColumnName = "nom_sequence",
+            valueColumnName = "valeur_suivante", pkColumnValue = "evenements_outbox", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private TypeEvenement type;
+
+    @Column(nullable = false)
+    private Long agregatId;
+
+    // Famille de l'agrégat (commande, avis, produit vendeur) : les id ne sont uniques qu'au sein d'une famille
+    @Column(length = 30)
+    private String typeAgregat;
+
+    @Column(columnDefinition = "TEXT")
+    private String donnees;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatutEvenement statut = StatutEvenement.EN_ATTENTE;
+
+    @Column(nullable = false)
+    private Integer tentatives = 0;
+
+    @Column(length = 500)
+    private String derniereErreur;
+
+    @Column(nullable = false)
+    private LocalDateTime dateDisponibilite = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation = LocalDateTime.now();
+
+    @Column
+    private LocalDateTime dateTraitement;
+
+    // Seuls les types ayant un abonné sont publiés ; les autres restent lisibles pour les événements déjà enregistrés
+    public enum TypeEvenement {
+        COMMANDE_CREEE("COMMANDE"),
+        COMMANDE_STATUT_MODIFIE("COMMANDE"),
+        COMMANDE_ANNULEE("COMMANDE"),
+        AVIS_AJOUTE("AVIS"),
+        AVIS_VISIBILITE_MODIFIEE("AVIS"),
+        VENDEUR_PRODUIT_INSCRIT("VENDEUR_PRODUIT"),
+        VENDEUR_PRODUIT_MODIFIE("VENDEUR_PRODUIT"),
+        VENDEUR_PRODUIT_APPROUVE("VENDEUR_PRODUIT"),
+        VENDEUR_PRODUIT_REJETE("VENDEUR_PRODUIT"),
+        VENDEUR_PRODUIT_BANNI("VENDEUR_PRODUIT");
+
+        private final String agregat;
+
+        TypeEvenement(String agregat) {
+            this.agregat = agregat;
+        }
+
+        public String getAgregat() {
+            return agregat;
+        }
+    }
+
+    public enum StatutEvenement {
+        EN_ATTENTE,
+        TRAITE,
+        ECHEC
+    }
+}
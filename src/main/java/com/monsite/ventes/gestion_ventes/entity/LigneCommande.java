@@ -21,7 +21,9 @@ import java.math.BigDecimal;
 public class LigneCommande {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "lignes_commande_gen")
+    @TableGenerator(name = "lignes_commande_gen", table = "id_generateurs", pkColumnName = "nom_sequence",
+            valueColumnName = "valeur_suivante", pkColumnValue = "lignes_commande", allocationSize = 50)
     private Long id;
 
     @JsonIgnore
@@ -42,4 +44,8 @@ public class LigneCommande {
 
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal sousTotal;
+
+    // Titre de l'offre au moment de la commande
+    @Column
+    private String titre;
 }
@@ -21,7 +21,9 @@ import java.math.BigDecimal;
 public class LignePanier {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "lignes_panier_gen")
+    @TableGenerator(name = "lignes_panier_gen", table = "id_generateurs", pkColumnName = "nom_sequence",
+            valueColumnName = "valeur_suivante", pkColumnValue = "lignes_panier", allocationSize = 50)
     private Long id;
 
     @JsonIgnore
@@ -0,0 +1,52 @@
+package com.monsite.ventes.gestion_ventes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Journal des mouvements de stock des produits à forte demande.
+ * Chaque mouvement est écrit dans la transaction de la commande puis reporté
+ * sur Produit.quantite par la consolidation périodique (reconcilie = true).
+ */
+@Entity
+@Table(name = "mouvements_stock", indexes = {
+        @Index(name = "idx_mouvements_stock_reconcilie", columnList = "reconcilie, produitId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MouvementStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "mouvements_stock_gen")
+    @TableGenerator(name = "mouvements_stock_gen", table = "id_generateurs", pkColumnName = "nom_sequence",
+            valueColumnName = "valeur_suivante", pkColumnValue = "mouvements_stock", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long produitId;
+
+    // Variation signée : négative pour une vente, positive pour une restitution ou un réapprovisionnement
+    @Column(nullable = false)
+    private Integer quantite;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private MotifMouvement motif;
+
+    @Column(nullable = false)
+    private boolean reconcilie = false;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation = LocalDateTime.now();
+
+    public enum MotifMouvement {
+        VENTE,
+        RESTITUTION,
+        AJUSTEMENT
+    }
+}
@@ -14,7 +14,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "paniers")
+@Table(name = "paniers", indexes = {
+        @Index(name = "idx_paniers_date_modification", columnList = "dateModification, id")
+})
 @Data
 @EqualsAndHashCode(exclude = {"client", "lignesPanier"})
 @ToString(exclude = {"client", "lignesPanier"})
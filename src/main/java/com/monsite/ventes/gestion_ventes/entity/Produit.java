@@ -45,6 +45,14 @@ public class Produit {
     @Column
     private LocalDate dateDernierStock;
 
+    // Stock tenu en mémoire (compteurs segmentés) et consolidé périodiquement depuis le journal des mouvements
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean stockChaud = false;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "categorie_id")
     @JsonIgnoreProperties({"produits", "hibernateLazyInitializer", "handler"})
@@ -0,0 +1,55 @@
+package com.monsite.ventes.gestion_ventes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réservation temporaire de stock posée sur un produit au début du checkout.
+ * Les réservations vivent en mémoire et sont écrites en différé dans cette table.
+ */
+@Entity
+@Table(name = "reservations_stock", indexes = {
+        @Index(name = "idx_reservations_stock_statut_expiration", columnList = "statut, dateExpiration")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long clientId;
+
+    @Column(nullable = false)
+    private Long produitId;
+
+    @Column(nullable = false)
+    private Long vendeurProduitId;
+
+    @Column(nullable = false)
+    private Integer quantite;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime dateExpiration;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatutReservation statut = StatutReservation.ACTIVE;
+
+    public enum StatutReservation {
+        ACTIVE,
+        CONFIRMEE,
+        LIBEREE,
+        EXPIREE
+    }
+}
@@ -0,0 +1,54 @@
+package com.monsite.ventes.gestion_ventes.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Demande de commande mise en file d'attente (mode de prise de commande asynchrone).
+ * Le client suit l'avancement du ticket jusqu'à la création effective de la commande.
+ */
+@Entity
+@Table(name = "tickets_commande", indexes = {
+        @Index(name = "idx_tickets_commande_statut", columnList = "statut")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketCommande {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long clientId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String requete;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatutTicket statut = StatutTicket.EN_ATTENTE;
+
+    @Column
+    private Long commandeId;
+
+    @Column(length = 500)
+    private String messageErreur;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation = LocalDateTime.now();
+
+    @Column
+    private LocalDateTime dateTraitement;
+
+    public enum StatutTicket {
+        EN_ATTENTE,
+        TRAITE,
+        ECHEC
+    }
+}
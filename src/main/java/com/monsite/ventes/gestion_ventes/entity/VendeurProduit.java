@@ -11,7 +11,9 @@ import lombok.ToString;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "vendeur_produits")
+@Table(name = "vendeur_produits", indexes = {
+        @Index(name = "idx_vendeur_produits_approuve", columnList = "estApprouve, id")
+})
 @Data
 @EqualsAndHashCode(exclude = {"vendeur", "produit"})
 @ToString(exclude = {"vendeur", "produit"})
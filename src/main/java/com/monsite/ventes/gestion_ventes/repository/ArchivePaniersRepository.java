@@ -0,0 +1,9 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.ArchivePaniers;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivePaniersRepository extends JpaRepository<ArchivePaniers, Long> {
+}
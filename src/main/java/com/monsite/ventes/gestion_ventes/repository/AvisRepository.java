@@ -1,11 +1,13 @@
 package com.monsite.ventes.gestion_ventes.repository;
 
 import com.monsite.ventes.gestion_ventes.entity.Avis;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +18,18 @@ public interface AvisRepository extends JpaRepository<Avis, Long> {
     @Query("SELECT a FROM Avis a JOIN FETCH a.client WHERE a.vendeurProduit.id = :vendeurProduitId AND a.estCache = false ORDER BY a.dateAvis DESC")
     List<Avis> findByVendeurProduitIdAndNotHidden(@Param("vendeurProduitId") Long vendeurProduitId);
 
+    // Page d'avis visibles d'un produit vendeur, auteur et produit chargés (lecture hors du thread de requête)
+    @Query("SELECT a FROM Avis a JOIN FETCH a.client JOIN FETCH a.vendeurProduit WHERE a.vendeurProduit.id = :vendeurProduitId AND a.estCache = false ORDER BY a.dateAvis DESC, a.id DESC")
+    List<Avis> findPageVisiblesByVendeurProduitId(@Param("vendeurProduitId") Long vendeurProduitId, Pageable pageable);
+
+    // Page suivante des avis visibles : ceux placés après le curseur (dateAvis, id) dans l'ordre décroissant
+    @Query("SELECT a FROM Avis a JOIN FETCH a.client JOIN FETCH a.vendeurProduit WHERE a.vendeurProduit.id = :vendeurProduitId AND a.estCache = false " +
+           "AND (a.dateAvis < :date OR (a.dateAvis = :date AND a.id < :id)) ORDER BY a.dateAvis DESC, a.id DESC")
+    List<Avis> findPageVisiblesByVendeurProduitIdApres(@Param("vendeurProduitId") Long vendeurProduitId,
+                                                       @Param("date") LocalDateTime date,
+                                                       @Param("id") Long id,
+                                                       Pageable pageable);
+
     // Trouver tous les avis d'un produit vendeur (pour le vendeur)
     @Query("SELECT a FROM Avis a JOIN FETCH a.client WHERE a.vendeurProduit.id = :vendeurProduitId ORDER BY a.dateAvis DESC")
     List<Avis> findByVendeurProduitId(@Param("vendeurProduitId") Long vendeurProduitId);
@@ -38,6 +52,10 @@ public interface AvisRepository extends JpaRepository<Avis, Long> {
     @Query("SELECT AVG(a.note) FROM Avis a WHERE a.vendeurProduit.id = :vendeurProduitId AND a.estCache = false")
     Double getAverageNoteByVendeurProduitId(@Param("vendeurProduitId") Long vendeurProduitId);
 
+    // Nombre d'avis visibles par note pour un produit : [note, nombre]
+    @Query("SELECT a.note, COUNT(a) FROM Avis a WHERE a.vendeurProduit.id = :vendeurProduitId AND a.estCache = false GROUP BY a.note")
+    List<Object[]> countParNoteByVendeurProduitId(@Param("vendeurProduitId") Long vendeurProduitId);
+
     // Compter le nombre d'avis pour un produit
     @Query("SELECT COUNT(a) FROM Avis a WHERE a.vendeurProduit.id = :vendeurProduitId AND a.estCache = false")
     Long countByVendeurProduitId(@Param("vendeurProduitId") Long vendeurProduitId);
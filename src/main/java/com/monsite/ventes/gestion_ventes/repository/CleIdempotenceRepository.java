@@ -0,0 +1,26 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.CleIdempotence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, Long> {
+
+    Optional<CleIdempotence> findByClientIdAndCle(Long clientId, String cle);
+
+    /**
+     * Supprime les clés expirées
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CleIdempotence c WHERE c.dateExpiration < :date")
+    int deleteExpirees(@Param("date") LocalDateTime date);
+}
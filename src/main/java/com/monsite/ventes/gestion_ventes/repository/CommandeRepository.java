@@ -1,16 +1,27 @@
 package com.monsite.ventes.gestion_ventes.repository;
 
+import com.monsite.ventes.gestion_ventes.dto.CommandeResumeResponse;
+import com.monsite.ventes.gestion_ventes.dto.projection.EnteteCommandeProjection;
+import com.monsite.ventes.gestion_ventes.dto.projection.LigneCommandeProjection;
 import com.monsite.ventes.gestion_ventes.entity.Commande;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CommandeRepository extends JpaRepository<Commande, Long> {
+public interface CommandeRepository extends JpaRepository<Commande, Long>, JpaSpecificationExecutor<Commande>,
+        CommandeRepositoryCustom {
     List<Commande> findByClientId(Long clientId);
     List<Commande> findByStatut(Commande.StatutCommande statut);
     boolean existsByClientId(Long clientId);
@@ -25,16 +36,6 @@ public interface CommandeRepository extends JpaRepository<Commande, Long> {
            "WHERE c.id = :id")
     Optional<Commande> findByIdWithDetails(@Param("id") Long id);
     
-    @Query("SELECT DISTINCT c FROM Commande c " +
-           "LEFT JOIN FETCH c.client " +
-           "LEFT JOIN FETCH c.lignesCommande lc " +
-           "LEFT JOIN FETCH lc.vendeurProduit vp " +
-           "LEFT JOIN FETCH vp.vendeur " +
-           "LEFT JOIN FETCH vp.produit p " +
-           "LEFT JOIN FETCH p.categorie " +
-           "WHERE c.client.id = :clientId")
-    List<Commande> findByClientIdWithDetails(@Param("clientId") Long clientId);
-    
     @Query("SELECT DISTINCT c FROM Commande c " +
            "LEFT JOIN FETCH c.client " +
            "LEFT JOIN FETCH c.lignesCommande lc " +
@@ -43,4 +44,88 @@ public interface CommandeRepository extends JpaRepository<Commande, Long> {
            "LEFT JOIN FETCH vp.produit p " +
            "LEFT JOIN FETCH p.categorie")
     List<Commande> findAllWithDetails();
+
+    /**
+     * En-têtes des commandes données (lecture seule, sans entité gérée)
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.EnteteCommandeProjection(" +
+           "c.id, cl.id, cl.nom, c.dateCommande, c.statut, c.montantTotal, c.adresseLivraison) " +
+           "FROM Commande c JOIN c.client cl " +
+           "WHERE c.id IN :ids")
+    List<EnteteCommandeProjection> findEntetesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.EnteteCommandeProjection(" +
+           "c.id, cl.id, cl.nom, c.dateCommande, c.statut, c.montantTotal, c.adresseLivraison) " +
+           "FROM Commande c JOIN c.client cl " +
+           "WHERE cl.id = :clientId ORDER BY c.dateCommande DESC, c.id DESC")
+    List<EnteteCommandeProjection> findEntetesByClientId(@Param("clientId") Long clientId);
+
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.EnteteCommandeProjection(" +
+           "c.id, cl.id, cl.nom, c.dateCommande, c.statut, c.montantTotal, c.adresseLivraison) " +
+           "FROM Commande c JOIN c.client cl " +
+           "ORDER BY c.dateCommande DESC, c.id DESC")
+    List<EnteteCommandeProjection> findAllEntetes();
+
+    /**
+     * Lignes des commandes données, aplaties avec produit vendeur, vendeur, produit et catégorie
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.LigneCommandeProjection(" +
+           "lc.commande.id, lc.id, lc.quantite, lc.prixUnitaire, lc.sousTotal, lc.titre, " +
+           "vp.id, vp.prixVendeur, vp.image, vp.description, vp.titre, vp.estApprouve, " +
+           "v.id, v.nom, p.id, p.nom, p.prix, p.quantite, cat.id, cat.nom) " +
+           "FROM LigneCommande lc JOIN lc.vendeurProduit vp JOIN vp.vendeur v JOIN vp.produit p " +
+           "LEFT JOIN p.categorie cat " +
+           "WHERE lc.commande.id IN :commandeIds ORDER BY lc.id")
+    List<LigneCommandeProjection> findLignesByCommandeIds(@Param("commandeIds") Collection<Long> commandeIds);
+
+    /**
+     * Verrouille un ensemble de commandes (SELECT ... FOR UPDATE) avant un changement de statut en masse
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Commande c WHERE c.id IN :ids ORDER BY c.id")
+    List<Commande> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Change le statut des commandes encore dans le statut source (garde contre les modifications concurrentes)
+     */
+    @Modifying
+    @Query("UPDATE Commande c SET c.statut = :cible, c.version = c.version + 1 " +
+           "WHERE c.id IN :ids AND c.statut = :source")
+    int updateStatutEnMasse(@Param("ids") Collection<Long> ids,
+                            @Param("source") Commande.StatutCommande source,
+                            @Param("cible") Commande.StatutCommande cible);
+
+    /**
+     * Première page de l'historique d'un client (résumés, du plus récent au plus ancien)
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.CommandeResumeResponse(" +
+           "c.id, c.dateCommande, c.statut, c.montantTotal, COUNT(lc)) " +
+           "FROM Commande c LEFT JOIN c.lignesCommande lc " +
+           "WHERE c.client.id = :clientId " +
+           "GROUP BY c.id, c.dateCommande, c.statut, c.montantTotal " +
+           "ORDER BY c.dateCommande DESC, c.id DESC")
+    List<CommandeResumeResponse> findResumesByClientId(@Param("clientId") Long clientId, Pageable pageable);
+
+    /**
+     * Page suivante de l'historique, à partir du curseur (dateCommande, id) de la dernière commande reçue
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.CommandeResumeResponse(" +
+           "c.id, c.dateCommande, c.statut, c.montantTotal, COUNT(lc)) " +
+           "FROM Commande c LEFT JOIN c.lignesCommande lc " +
+           "WHERE c.client.id = :clientId " +
+           "AND (c.dateCommande < :date OR (c.dateCommande = :date AND c.id < :id)) " +
+           "GROUP BY c.id, c.dateCommande, c.statut, c.montantTotal " +
+           "ORDER BY c.dateCommande DESC, c.id DESC")
+    List<CommandeResumeResponse> findResumesByClientIdApres(@Param("clientId") Long clientId,
+                                                            @Param("date") LocalDateTime date,
+                                                            @Param("id") Long id,
+                                                            Pageable pageable);
+
+    /**
+     * Image du premier produit de chaque commande : [commandeId, image]
+     */
+    @Query("SELECT lc.commande.id, vp.image FROM LigneCommande lc JOIN lc.vendeurProduit vp " +
+           "WHERE lc.commande.id IN :ids " +
+           "AND lc.id = (SELECT MIN(l2.id) FROM LigneCommande l2 WHERE l2.commande = lc.commande)")
+    List<Object[]> findPremieresImages(@Param("ids") Collection<Long> ids);
 }
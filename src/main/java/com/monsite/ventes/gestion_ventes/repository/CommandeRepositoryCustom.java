@@ -0,0 +1,23 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.Commande;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Requêtes de CommandeRepository construites à la main (critères dynamiques avec projection)
+ */
+public interface CommandeRepositoryCustom {
+
+    /**
+     * Identifiants des commandes satisfaisant les critères, sans charger les entités
+     */
+    List<Long> findIds(Specification<Commande> criteres, Sort tri);
+
+    /**
+     * Au plus limite identifiants des commandes satisfaisant les critères
+     */
+    List<Long> findIds(Specification<Commande> criteres, Sort tri, int limite);
+}
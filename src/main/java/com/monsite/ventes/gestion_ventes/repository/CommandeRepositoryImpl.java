@@ -0,0 +1,41 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.Commande;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+class CommandeRepositoryImpl implements CommandeRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIds(Specification<Commande> criteres, Sort tri) {
+        return findIds(criteres, tri, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Commande> criteres, Sort tri, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> requete = cb.createQuery(Long.class);
+        Root<Commande> commande = requete.from(Commande.class);
+
+        requete.select(commande.get("id"));
+        Predicate condition = criteres != null ? criteres.toPredicate(commande, requete, cb) : null;
+        if (condition != null) {
+            requete.where(condition);
+        }
+        requete.orderBy(QueryUtils.toOrders(tri, commande, cb));
+
+        return entityManager.createQuery(requete).setMaxResults(limite).getResultList();
+    }
+}
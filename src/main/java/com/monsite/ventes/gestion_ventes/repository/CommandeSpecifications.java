@@ -0,0 +1,84 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.Commande;
+import com.monsite.ventes.gestion_ventes.entity.LigneCommande;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Critères de recherche des commandes, traduits en SQL.
+ * Les filtres sur le contenu des commandes utilisent EXISTS sur lignes_commande
+ * pour ne jamais multiplier les lignes de résultat.
+ */
+public final class CommandeSpecifications {
+
+    private CommandeSpecifications() {
+    }
+
+    public static Specification<Commande> avecStatut(Commande.StatutCommande statut) {
+        return (root, query, cb) -> statut == null ? null : cb.equal(root.get("statut"), statut);
+    }
+
+    /**
+     * Commandes contenant au moins une ligne du vendeur et/ou du produit donnés
+     */
+    public static Specification<Commande> avecLigne(Long vendeurId, Long produitId) {
+        return (root, query, cb) -> {
+            if (vendeurId == null && produitId == null) {
+                return null;
+            }
+
+            Subquery<Long> sousRequete = query.subquery(Long.class);
+            Root<LigneCommande> ligne = sousRequete.from(LigneCommande.class);
+            Join<Object, Object> vendeurProduit = ligne.join("vendeurProduit");
+
+            List<Predicate> conditions = new ArrayList<>();
+            conditions.add(cb.equal(ligne.get("commande"), root));
+            if (vendeurId != null) {
+                conditions.add(cb.equal(vendeurProduit.get("vendeur").get("id"), vendeurId));
+            }
+            if (produitId != null) {
+                conditions.add(cb.equal(vendeurProduit.get("produit").get("id"), produitId));
+            }
+
+            sousRequete.select(ligne.get("id")).where(conditions.toArray(new Predicate[0]));
+            return cb.exists(sousRequete);
+        };
+    }
+
+    public static Specification<Commande> depuis(LocalDateTime debut) {
+        return (root, query, cb) -> debut == null ? null : cb.greaterThanOrEqualTo(root.get("dateCommande"), debut);
+    }
+
+    public static Specification<Commande> avant(LocalDateTime fin) {
+        return (root, query, cb) -> fin == null ? null : cb.lessThan(root.get("dateCommande"), fin);
+    }
+
+    public static Specification<Commande> duClient(Long clientId) {
+        return (root, query, cb) -> clientId == null ? null : cb.equal(root.get("client").get("id"), clientId);
+    }
+
+    /**
+     * Recherche sur le nom ou l'email du client
+     */
+    public static Specification<Commande> clientCorrespondant(String recherche) {
+        return (root, query, cb) -> {
+            if (recherche == null || recherche.isBlank()) {
+                return null;
+            }
+            String motif = "%" + recherche.trim().toLowerCase() + "%";
+            Join<Object, Object> client = root.join("client", JoinType.INNER);
+            return cb.or(
+                    cb.like(cb.lower(client.get("nom")), motif),
+                    cb.like(cb.lower(client.get("email")), motif));
+        };
+    }
+}
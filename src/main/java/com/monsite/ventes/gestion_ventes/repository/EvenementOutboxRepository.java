@@ -0,0 +1,40 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EvenementOutboxRepository extends JpaRepository<EvenementOutbox, Long> {
+
+    /**
+     * Trouve le prochain lot d'événements à distribuer (hors nouvelles tentatives différées), dans l'ordre d'écriture.
+     * Un événement attend tant qu'un événement antérieur du même agrégat est encore en attente :
+     * les événements d'un agrégat sont livrés dans l'ordre, y compris après un échec.
+     */
+    @Query("SELECT e FROM EvenementOutbox e " +
+           "WHERE e.statut = com.monsite.ventes.gestion_ventes.entity.EvenementOutbox.StatutEvenement.EN_ATTENTE " +
+           "AND e.dateDisponibilite <= :date " +
+           "AND NOT EXISTS (SELECT 1 FROM EvenementOutbox p " +
+           "  WHERE p.typeAgregat = e.typeAgregat AND p.agregatId = e.agregatId AND p.id < e.id " +
+           "  AND p.statut = com.monsite.ventes.gestion_ventes.entity.EvenementOutbox.StatutEvenement.EN_ATTENTE) " +
+           "ORDER BY e.id")
+    List<EvenementOutbox> findDistribuables(@Param("date") LocalDateTime date, Pageable pageable);
+
+    /**
+     * Supprime les événements traités plus anciens que la date donnée
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EvenementOutbox e WHERE e.statut = com.monsite.ventes.gestion_ventes.entity.EvenementOutbox.StatutEvenement.TRAITE " +
+           "AND e.dateTraitement < :date")
+    int deleteTraitesAvant(@Param("date") LocalDateTime date);
+}
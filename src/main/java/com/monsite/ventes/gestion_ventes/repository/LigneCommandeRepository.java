@@ -1,7 +1,11 @@
 package com.monsite.ventes.gestion_ventes.repository;
 
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
 import com.monsite.ventes.gestion_ventes.entity.LigneCommande;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +13,19 @@ import java.util.List;
 @Repository
 public interface LigneCommandeRepository extends JpaRepository<LigneCommande, Long> {
     List<LigneCommande> findByCommandeId(Long commandeId);
+
+    /**
+     * Quantités vendues par produit vendeur, hors commandes au statut exclu : [vendeurProduitId, quantite]
+     */
+    @Query("SELECT lc.vendeurProduit.id, SUM(lc.quantite) FROM LigneCommande lc " +
+           "WHERE lc.commande.statut <> :exclu GROUP BY lc.vendeurProduit.id")
+    List<Object[]> sommeQuantitesParVendeurProduit(@Param("exclu") StatutCommande exclu);
+
+    /**
+     * Produits vendeur approuvés les plus vendus, hors commandes au statut exclu
+     */
+    @Query("SELECT lc.vendeurProduit.id FROM LigneCommande lc " +
+           "WHERE lc.commande.statut <> :exclu AND lc.vendeurProduit.estApprouve = true " +
+           "GROUP BY lc.vendeurProduit.id ORDER BY SUM(lc.quantite) DESC, lc.vendeurProduit.id")
+    List<Long> findMeilleuresVentes(@Param("exclu") StatutCommande exclu, Pageable pageable);
 }
@@ -1,11 +1,15 @@
 package com.monsite.ventes.gestion_ventes.repository;
 
+import com.monsite.ventes.gestion_ventes.dto.projection.LignePanierCheckoutProjection;
 import com.monsite.ventes.gestion_ventes.entity.LignePanier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +31,30 @@ public interface LignePanierRepository extends JpaRepository<LignePanier, Long>
      */
     void deleteByPanierId(Long panierId);
 
+    /**
+     * Lignes du panier d'un client avec prix, approbation et stock, en une seule requête (checkout)
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.LignePanierCheckoutProjection(" +
+           "pa.id, vp.id, lp.quantite, vp.prixVendeur, vp.estApprouve, vp.titre, pr.id, pr.quantite, pr.stockChaud) " +
+           "FROM LignePanier lp JOIN lp.panier pa JOIN lp.vendeurProduit vp JOIN vp.produit pr " +
+           "WHERE pa.client.id = :clientId ORDER BY lp.id")
+    List<LignePanierCheckoutProjection> findLignesCheckout(@Param("clientId") Long clientId);
+
+    /**
+     * Supprime en une seule requête toutes les lignes du panier d'un client
+     */
+    @Modifying
+    @Query("DELETE FROM LignePanier lp WHERE lp.panier.id IN (SELECT p.id FROM Panier p WHERE p.client.id = :clientId)")
+    int supprimerLignesDuClient(@Param("clientId") Long clientId);
+
+    /**
+     * Supprime les lignes des paniers donnés encore inactifs (purge des paniers abandonnés)
+     */
+    @Modifying
+    @Query("DELETE FROM LignePanier lp WHERE lp.panier.id IN " +
+           "(SELECT p.id FROM Panier p WHERE p.id IN :ids AND p.dateModification < :limite)")
+    int supprimerLignesAbandonnees(@Param("ids") Collection<Long> ids, @Param("limite") LocalDateTime limite);
+
     /**
      * Vérifie si un produit existe déjà dans le panier
      */
@@ -0,0 +1,33 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.MouvementStock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MouvementStockRepository extends JpaRepository<MouvementStock, Long> {
+
+    /**
+     * Mouvements pas encore reportés sur les produits
+     */
+    List<MouvementStock> findByReconcilieFalseOrderByIdAsc(Pageable pageable);
+
+    List<MouvementStock> findByProduitIdAndReconcilieFalse(Long produitId);
+
+    /**
+     * Somme des mouvements non reportés d'un produit
+     */
+    @Query("SELECT COALESCE(SUM(m.quantite), 0) FROM MouvementStock m WHERE m.produitId = :produitId AND m.reconcilie = false")
+    long sommeNonReconciliee(@Param("produitId") Long produitId);
+
+    @Modifying
+    @Query("UPDATE MouvementStock m SET m.reconcilie = true WHERE m.id IN :ids")
+    int marquerReconcilies(@Param("ids") Collection<Long> ids);
+}
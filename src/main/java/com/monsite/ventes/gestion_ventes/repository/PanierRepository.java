@@ -1,11 +1,18 @@
 package com.monsite.ventes.gestion_ventes.repository;
 
 import com.monsite.ventes.gestion_ventes.entity.Panier;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -22,6 +29,64 @@ public interface PanierRepository extends JpaRepository<Panier, Long> {
     @Query("SELECT p FROM Panier p LEFT JOIN FETCH p.lignesPanier lp LEFT JOIN FETCH lp.vendeurProduit vp LEFT JOIN FETCH vp.produit WHERE p.client.id = :clientId")
     Optional<Panier> findByClientIdWithDetails(@Param("clientId") Long clientId);
 
+    /**
+     * Date de dernière modification d'un panier (version utilisée par le cache des paniers)
+     */
+    @Query("SELECT p.dateModification FROM Panier p WHERE p.id = :id")
+    Optional<LocalDateTime> findDateModificationById(@Param("id") Long id);
+
+    /**
+     * Rafraîchit la date de modification du panier d'un client si elle est antérieure au seuil
+     * (la ligne est verrouillée jusqu'à la fin de la transaction)
+     */
+    @Modifying
+    @Query("UPDATE Panier p SET p.dateModification = :date WHERE p.client.id = :clientId AND p.dateModification < :seuil")
+    int rafraichirDateModification(@Param("clientId") Long clientId,
+                                   @Param("date") LocalDateTime date,
+                                   @Param("seuil") LocalDateTime seuil);
+
+    /**
+     * Paniers non modifiés depuis la date limite, les plus anciens d'abord (index sur dateModification) :
+     * [id, dateModification]
+     */
+    @Query("SELECT p.id, p.dateModification FROM Panier p WHERE p.dateModification < :limite ORDER BY p.dateModification, p.id")
+    List<Object[]> findAbandonnes(@Param("limite") LocalDateTime limite, Pageable pageable);
+
+    /**
+     * Suite de findAbandonnes après le curseur (dateModification, id) : les paniers gardés au lot
+     * précédent ne sont pas relus
+     */
+    @Query("SELECT p.id, p.dateModification FROM Panier p WHERE p.dateModification < :limite " +
+           "AND (p.dateModification > :date OR (p.dateModification = :date AND p.id > :id)) " +
+           "ORDER BY p.dateModification, p.id")
+    List<Object[]> findAbandonnesApres(@Param("limite") LocalDateTime limite,
+                                       @Param("date") LocalDateTime date,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    /**
+     * Verrouille (SELECT ... FOR UPDATE) ceux des paniers donnés encore inactifs : un chargement concurrent
+     * qui a rafraîchi la date d'un panier le fait sortir du lot
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Panier p WHERE p.id IN :ids AND p.dateModification < :limite ORDER BY p.id")
+    List<Panier> verrouillerAbandonnes(@Param("ids") Collection<Long> ids, @Param("limite") LocalDateTime limite);
+
+    /**
+     * Résumé des lignes d'un lot de paniers : [nombre de paniers non vides, lignes, quantité, montant]
+     */
+    @Query("SELECT COUNT(DISTINCT lp.panier.id), COUNT(lp), COALESCE(SUM(lp.quantite), 0), " +
+           "COALESCE(SUM(lp.quantite * lp.prixUnitaire), 0) " +
+           "FROM LignePanier lp WHERE lp.panier.id IN :ids AND lp.panier.dateModification < :limite")
+    List<Object[]> resumerLignes(@Param("ids") Collection<Long> ids, @Param("limite") LocalDateTime limite);
+
+    /**
+     * Supprime les paniers donnés encore inactifs (un panier modifié entre-temps est conservé)
+     */
+    @Modifying
+    @Query("DELETE FROM Panier p WHERE p.id IN :ids AND p.dateModification < :limite")
+    int supprimerAbandonnes(@Param("ids") Collection<Long> ids, @Param("limite") LocalDateTime limite);
+
     /**
      * Vérifie si un client a déjà un panier
      */
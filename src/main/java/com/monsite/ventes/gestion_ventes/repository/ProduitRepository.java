@@ -1,13 +1,85 @@
 package com.monsite.ventes.gestion_ventes.repository;
 
 import com.monsite.ventes.gestion_ventes.entity.Produit;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProduitRepository extends JpaRepository<Produit, Long> {
     List<Produit> findByCategorieId(Long categorieId);
     List<Produit> findByNomContainingIgnoreCase(String nom);
+
+    List<Produit> findByStockChaudTrue();
+
+    @Query("SELECT p.quantite FROM Produit p WHERE p.id = :id")
+    Integer findQuantiteById(@Param("id") Long id);
+
+    /**
+     * [id, nom, description, categorieId] des produits, par lots dans l'ordre des id (indexation)
+     */
+    @Query("SELECT p.id, p.nom, p.description, c.id FROM Produit p LEFT JOIN p.categorie c WHERE p.id > :apresId ORDER BY p.id")
+    List<Object[]> findTextesApres(@Param("apresId") Long apresId, Pageable pageable);
+
+    @Query("SELECT p.id, p.nom, p.description, c.id FROM Produit p LEFT JOIN p.categorie c WHERE p.id IN :ids")
+    List<Object[]> findTextesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * [id, quantite, stockChaud] des produits demandés
+     */
+    @Query("SELECT p.id, p.quantite, p.stockChaud FROM Produit p WHERE p.id IN :ids")
+    List<Object[]> findStocksByIds(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Produit p WHERE p.id = :id")
+    Optional<Produit> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Quantités à remettre en stock pour un ensemble de commandes : [produitId, quantite]
+     */
+    @Query("SELECT vp.produit.id, SUM(lc.quantite) FROM LigneCommande lc JOIN lc.vendeurProduit vp " +
+           "WHERE lc.commande.id IN :commandeIds GROUP BY vp.produit.id")
+    List<Object[]> sommeQuantitesParProduit(@Param("commandeIds") Collection<Long> commandeIds);
+
+    /**
+     * Remet en stock, en une seule requête, les quantités des lignes des commandes données
+     * (limité aux produits indiqués)
+     */
+    @Modifying
+    @Query("UPDATE Produit p SET p.version = p.version + 1, p.quantite = p.quantite + " +
+           "(SELECT COALESCE(SUM(lc.quantite), 0) FROM LigneCommande lc " +
+           " WHERE lc.vendeurProduit.produit.id = p.id AND lc.commande.id IN :commandeIds) " +
+           "WHERE p.id IN :produitIds")
+    int restaurerStockCommandes(@Param("commandeIds") Collection<Long> commandeIds,
+                                @Param("produitIds") Collection<Long> produitIds);
+
+    /**
+     * Décrémente en une seule requête le stock des produits ordinaires du panier donné.
+     * Un produit dont le stock est insuffisant n'est pas modifié : l'appelant compare le nombre de lignes mises à jour.
+     */
+    @Modifying
+    @Query("UPDATE Produit p SET p.version = p.version + 1, p.quantite = p.quantite - " +
+           "(SELECT SUM(lp.quantite) FROM LignePanier lp " +
+           " WHERE lp.panier.id = :panierId AND lp.vendeurProduit.produit.id = p.id) " +
+           "WHERE p.stockChaud = false " +
+           "AND p.id IN (SELECT lp2.vendeurProduit.produit.id FROM LignePanier lp2 WHERE lp2.panier.id = :panierId) " +
+           "AND p.quantite >= (SELECT SUM(lp3.quantite) FROM LignePanier lp3 " +
+           " WHERE lp3.panier.id = :panierId AND lp3.vendeurProduit.produit.id = p.id)")
+    int retirerStockPanier(@Param("panierId") Long panierId);
+
+    /**
+     * Reporte une variation de stock (consolidation du journal des mouvements)
+     */
+    @Modifying
+    @Query("UPDATE Produit p SET p.version = p.version + 1, p.quantite = p.quantite + :delta WHERE p.id = :id")
+    int ajouterQuantite(@Param("id") Long id, @Param("delta") int delta);
 }
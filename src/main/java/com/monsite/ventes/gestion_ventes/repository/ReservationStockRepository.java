@@ -0,0 +1,30 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.ReservationStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReservationStockRepository extends JpaRepository<ReservationStock, Long> {
+
+    /**
+     * Trouve les réservations dans un statut donné (utilisé au redémarrage)
+     */
+    List<ReservationStock> findByStatut(ReservationStock.StatutReservation statut);
+
+    /**
+     * Supprime les réservations terminées (confirmées, libérées ou expirées) échues avant la date donnée
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ReservationStock r WHERE r.statut <> com.monsite.ventes.gestion_ventes.entity.ReservationStock.StatutReservation.ACTIVE " +
+           "AND r.dateExpiration < :date")
+    int deleteTermineesAvant(@Param("date") LocalDateTime date);
+}
@@ -0,0 +1,25 @@
+package com.monsite.ventes.gestion_ventes.repository;
+
+import com.monsite.ventes.gestion_ventes.entity.TicketCommande;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TicketCommandeRepository extends JpaRepository<TicketCommande, Long> {
+
+    /**
+     * Trouve les tickets dans un statut donné, du plus ancien au plus récent
+     */
+    List<TicketCommande> findByStatutOrderByIdAsc(TicketCommande.StatutTicket statut);
+
+    /**
+     * Identifiants des tickets dans un statut donné, du plus ancien au plus récent
+     */
+    @Query("SELECT t.id FROM TicketCommande t WHERE t.statut = :statut ORDER BY t.id")
+    List<Long> findIdsByStatut(@Param("statut") TicketCommande.StatutTicket statut, Pageable pageable);
+}
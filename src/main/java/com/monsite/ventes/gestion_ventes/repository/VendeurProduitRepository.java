@@ -1,10 +1,18 @@
 package com.monsite.ventes.gestion_ventes.repository;
 
+import com.monsite.ventes.gestion_ventes.dto.projection.OffreIndexationProjection;
+import com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection;
 import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VendeurProduitRepository extends JpaRepository<VendeurProduit, Long> {
@@ -13,4 +21,111 @@ public interface VendeurProduitRepository extends JpaRepository<VendeurProduit,
     List<VendeurProduit> findByEstApprouve(boolean estApprouve);
     List<VendeurProduit> findByVendeurIdAndEstApprouve(Long vendeurId, boolean estApprouve);
     boolean existsByVendeurIdAndProduitId(Long vendeurId, Long produitId);
+
+    @Query("SELECT vp FROM VendeurProduit vp " +
+           "JOIN FETCH vp.vendeur " +
+           "JOIN FETCH vp.produit p " +
+           "LEFT JOIN FETCH p.categorie " +
+           "WHERE vp.id IN :ids")
+    List<VendeurProduit> findAllByIdWithDetails(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT vp FROM VendeurProduit vp " +
+           "JOIN FETCH vp.vendeur " +
+           "JOIN FETCH vp.produit p " +
+           "LEFT JOIN FETCH p.categorie " +
+           "WHERE vp.estApprouve = :estApprouve ORDER BY vp.id")
+    List<VendeurProduit> findByEstApprouveWithDetails(@Param("estApprouve") boolean estApprouve);
+
+    /**
+     * Page du catalogue public : produits approuvés d'id supérieur au curseur, filtres optionnels (null = ignoré).
+     * Avec enStock, les produits en stock chaud sont gardés : leur quantité en base peut être en retard.
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection(" +
+           "vp.id, v.id, v.nom, p.id, p.nom, p.prix, vp.prixVendeur, vp.image, vp.description, vp.titre, " +
+           "c.id, c.nom, p.quantite, p.stockChaud) " +
+           "FROM VendeurProduit vp JOIN vp.vendeur v JOIN vp.produit p LEFT JOIN p.categorie c " +
+           "WHERE vp.estApprouve = true AND vp.id > :apresId " +
+           "AND (:categorieId IS NULL OR c.id = :categorieId) " +
+           "AND (:vendeurId IS NULL OR v.id = :vendeurId) " +
+           "AND (:prixMin IS NULL OR vp.prixVendeur >= :prixMin) " +
+           "AND (:prixMax IS NULL OR vp.prixVendeur <= :prixMax) " +
+           "AND (:enStock = false OR p.quantite > 0 OR p.stockChaud = true) " +
+           "ORDER BY vp.id")
+    List<VendeurProduitCatalogueProjection> findCatalogue(@Param("apresId") Long apresId,
+                                                          @Param("categorieId") Long categorieId,
+                                                          @Param("vendeurId") Long vendeurId,
+                                                          @Param("prixMin") BigDecimal prixMin,
+                                                          @Param("prixMax") BigDecimal prixMax,
+                                                          @Param("enStock") boolean enStock,
+                                                          Pageable pageable);
+
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection(" +
+           "vp.id, v.id, v.nom, p.id, p.nom, p.prix, vp.prixVendeur, vp.image, vp.description, vp.titre, " +
+           "c.id, c.nom, p.quantite, p.stockChaud) " +
+           "FROM VendeurProduit vp JOIN vp.vendeur v JOIN vp.produit p LEFT JOIN p.categorie c " +
+           "WHERE vp.id = :id AND vp.estApprouve = true")
+    Optional<VendeurProduitCatalogueProjection> findCatalogueById(@Param("id") Long id);
+
+    /**
+     * Offres d'une liste d'id qui sont au catalogue, avec les mêmes filtres que findCatalogue (pas d'ordre)
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection(" +
+           "vp.id, v.id, v.nom, p.id, p.nom, p.prix, vp.prixVendeur, vp.image, vp.description, vp.titre, " +
+           "c.id, c.nom, p.quantite, p.stockChaud) " +
+           "FROM VendeurProduit vp JOIN vp.vendeur v JOIN vp.produit p LEFT JOIN p.categorie c " +
+           "WHERE vp.estApprouve = true AND vp.id IN :ids " +
+           "AND (:categorieId IS NULL OR c.id = :categorieId) " +
+           "AND (:vendeurId IS NULL OR v.id = :vendeurId) " +
+           "AND (:prixMin IS NULL OR vp.prixVendeur >= :prixMin) " +
+           "AND (:prixMax IS NULL OR vp.prixVendeur <= :prixMax) " +
+           "AND (:enStock = false OR p.quantite > 0 OR p.stockChaud = true)")
+    List<VendeurProduitCatalogueProjection> findCatalogueByIds(@Param("ids") Collection<Long> ids,
+                                                               @Param("categorieId") Long categorieId,
+                                                               @Param("vendeurId") Long vendeurId,
+                                                               @Param("prixMin") BigDecimal prixMin,
+                                                               @Param("prixMax") BigDecimal prixMax,
+                                                               @Param("enStock") boolean enStock);
+
+    /**
+     * Offres approuvées à indexer, par lots dans l'ordre des id
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.OffreIndexationProjection(" +
+           "vp.id, p.id, vp.vendeur.id, vp.titre, vp.description, p.nom, p.description) " +
+           "FROM VendeurProduit vp JOIN vp.produit p " +
+           "WHERE vp.estApprouve = true AND vp.id > :apresId ORDER BY vp.id")
+    List<OffreIndexationProjection> findOffresIndexationApres(@Param("apresId") Long apresId, Pageable pageable);
+
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.OffreIndexationProjection(" +
+           "vp.id, p.id, vp.vendeur.id, vp.titre, vp.description, p.nom, p.description) " +
+           "FROM VendeurProduit vp JOIN vp.produit p " +
+           "WHERE vp.estApprouve = true " +
+           "AND (vp.id IN :ids OR p.id IN :produitIds OR vp.vendeur.id IN :vendeurIds)")
+    List<OffreIndexationProjection> findOffresIndexation(@Param("ids") Collection<Long> ids,
+                                                         @Param("produitIds") Collection<Long> produitIds,
+                                                         @Param("vendeurIds") Collection<Long> vendeurIds);
+
+    /**
+     * Offres au catalogue parmi une liste d'id, ou rattachées à l'un des produits ou vendeurs donnés
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection(" +
+           "vp.id, v.id, v.nom, p.id, p.nom, p.prix, vp.prixVendeur, vp.image, vp.description, vp.titre, " +
+           "c.id, c.nom, p.quantite, p.stockChaud) " +
+           "FROM VendeurProduit vp JOIN vp.vendeur v JOIN vp.produit p LEFT JOIN p.categorie c " +
+           "WHERE vp.estApprouve = true " +
+           "AND (vp.id IN :ids OR p.id IN :produitIds OR v.id IN :vendeurIds)")
+    List<VendeurProduitCatalogueProjection> findCatalogueConcernes(@Param("ids") Collection<Long> ids,
+                                                                   @Param("produitIds") Collection<Long> produitIds,
+                                                                   @Param("vendeurIds") Collection<Long> vendeurIds);
+
+    /**
+     * Autres offres approuvées du même produit, de la moins chère à la plus chère
+     */
+    @Query("SELECT new com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection(" +
+           "vp.id, v.id, v.nom, p.id, p.nom, p.prix, vp.prixVendeur, vp.image, vp.description, vp.titre, " +
+           "c.id, c.nom, p.quantite, p.stockChaud) " +
+           "FROM VendeurProduit vp JOIN vp.vendeur v JOIN vp.produit p LEFT JOIN p.categorie c " +
+           "WHERE vp.estApprouve = true AND p.id = :produitId AND vp.id <> :exclu " +
+           "ORDER BY vp.prixVendeur, vp.id")
+    List<VendeurProduitCatalogueProjection> findAutresOffres(@Param("produitId") Long produitId,
+                                                             @Param("exclu") Long exclu);
 }
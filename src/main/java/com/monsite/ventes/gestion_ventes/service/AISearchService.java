@@ -76,32 +76,7 @@ public class AISearchService {
     @Async
     public void syncProductWithAI(VendeurProduit vendeurProduit) {
         try {
-            String url = aiServiceUrl + "/products/add_product";
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> productData = new HashMap<>();
-            productData.put("id", vendeurProduit.getId());
-            productData.put("vendor_price", vendeurProduit.getPrixVendeur());
-            productData.put("title", vendeurProduit.getTitre() != null ? 
-                    vendeurProduit.getTitre() : vendeurProduit.getProduit().getNom());
-            productData.put("description", vendeurProduit.getDescription() != null ? 
-                    vendeurProduit.getDescription() : "");
-            
-            // Construire le chemin WSL de l'image pour le service AI Linux
-            String imageWslPath = "";
-            if (vendeurProduit.getImage() != null && !vendeurProduit.getImage().isEmpty()) {
-                imageWslPath = convertToWSLPath(vendeurProduit.getImage());
-                logger.debug("Chemin image converti: {} -> {}", vendeurProduit.getImage(), imageWslPath);
-            }
-            productData.put("img_url", imageWslPath);
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(productData, headers);
-
-            restTemplate.postForObject(url, request, String.class);
-            
-            logger.info("Produit {} synchronisé avec le service AI (image: {})", vendeurProduit.getId(), imageWslPath);
+            envoyerProduit(vendeurProduit);
         } catch (Exception e) {
             logger.warn("Impossible de synchroniser le produit {} avec le service AI: {}", 
                     vendeurProduit.getId(), e.getMessage());
@@ -109,6 +84,39 @@ public class AISearchService {
         }
     }
 
+    /**
+     * Envoie un produit au service AI de manière synchrone.
+     * Les erreurs sont propagées pour permettre une nouvelle tentative (outbox).
+     */
+    public void envoyerProduit(VendeurProduit vendeurProduit) {
+        String url = aiServiceUrl + "/products/add_product";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        Map<String, Object> productData = new HashMap<>();
+        productData.put("id", vendeurProduit.getId());
+        productData.put("vendor_price", vendeurProduit.getPrixVendeur());
+        productData.put("title", vendeurProduit.getTitre() != null ? 
+                vendeurProduit.getTitre() : vendeurProduit.getProduit().getNom());
+        productData.put("description", vendeurProduit.getDescription() != null ? 
+                vendeurProduit.getDescription() : "");
+        
+        // Construire le chemin WSL de l'image pour le service AI Linux
+        String imageWslPath = "";
+        if (vendeurProduit.getImage() != null && !vendeurProduit.getImage().isEmpty()) {
+            imageWslPath = convertToWSLPath(vendeurProduit.getImage());
+            logger.debug("Chemin image converti: {} -> {}", vendeurProduit.getImage(), imageWslPath);
+        }
+        productData.put("img_url", imageWslPath);
+
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(productData, headers);
+
+        restTemplate.postForObject(url, request, String.class);
+        
+        logger.info("Produit {} synchronisé avec le service AI (image: {})", vendeurProduit.getId(), imageWslPath);
+    }
+
     /**
      * Synchronise tous les produits approuvés avec le service AI.
      */
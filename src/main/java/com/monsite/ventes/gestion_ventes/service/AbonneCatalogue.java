@@ -0,0 +1,24 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+/**
+ * Abonné aux modifications du catalogue public, prévenu après le commit de l'écriture
+ * (ou immédiatement hors transaction). L'appel a lieu sur le fil de l'écriture :
+ * l'abonné doit seulement noter la modification et la traiter plus tard.
+ */
+public interface AbonneCatalogue {
+
+    void catalogueModifie(Portee portee, Long id);
+
+    /**
+     * Ce que désigne l'identifiant : une offre vendeur, un produit (toutes ses offres),
+     * un vendeur (toutes ses offres), une catégorie (id null pour une création)
+     * ou le stock d'un produit
+     */
+    enum Portee {
+        OFFRE,
+        PRODUIT,
+        VENDEUR,
+        CATEGORIE,
+        STOCK
+    }
+}
@@ -0,0 +1,18 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox;
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox.TypeEvenement;
+
+import java.util.Set;
+
+/**
+ * Abonné aux événements de l'outbox. La livraison est « au moins une fois » :
+ * un même événement peut être reçu plusieurs fois et son traitement doit être idempotent.
+ * Lever une exception provoque une nouvelle tentative plus tard.
+ */
+public interface AbonneEvenement {
+
+    Set<TypeEvenement> getTypesEcoutes();
+
+    void traiter(EvenementOutbox evenement);
+}
@@ -1,8 +1,10 @@
 package com.monsite.ventes.gestion_ventes.service;
 
+import com.monsite.ventes.gestion_ventes.config.ReessaiSurConflit;
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
 import com.monsite.ventes.gestion_ventes.dto.VendeurProduitResponse;
 import com.monsite.ventes.gestion_ventes.entity.Categorie;
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox;
 import com.monsite.ventes.gestion_ventes.entity.Produit;
 import com.monsite.ventes.gestion_ventes.entity.Vendeur;
 import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
@@ -24,20 +26,26 @@ public class AdminService {
     private final CategorieRepository categorieRepository;
     private final ProduitRepository produitRepository;
     private final CommandeRepository commandeRepository;
-    private final AISearchService aiSearchService;
+    private final OutboxService outboxService;
+    private final InventaireService inventaireService;
+    private final CatalogueCacheService catalogueCacheService;
 
     public AdminService(VendeurRepository vendeurRepository,
                         VendeurProduitRepository vendeurProduitRepository,
                         CategorieRepository categorieRepository,
                         ProduitRepository produitRepository,
                         CommandeRepository commandeRepository,
-                        AISearchService aiSearchService) {
+                        OutboxService outboxService,
+                        InventaireService inventaireService,
+                        CatalogueCacheService catalogueCacheService) {
         this.vendeurRepository = vendeurRepository;
         this.vendeurProduitRepository = vendeurProduitRepository;
         this.categorieRepository = categorieRepository;
         this.produitRepository = produitRepository;
         this.commandeRepository = commandeRepository;
-        this.aiSearchService = aiSearchService;
+        this.outboxService = outboxService;
+        this.inventaireService = inventaireService;
+        this.catalogueCacheService = catalogueCacheService;
     }
 
     // ========== Gestion des Vendeurs ==========
@@ -68,6 +76,7 @@ public class AdminService {
 
         vendeur.setEstApprouve(true);
         vendeurRepository.save(vendeur);
+        catalogueCacheService.invaliderVendeurApresCommit(vendeurId);
 
         return MessageResponse.builder()
                 .success(true)
@@ -94,6 +103,7 @@ public class AdminService {
         List<VendeurProduit> inscriptions = vendeurProduitRepository.findByVendeurId(vendeurId);
         inscriptions.forEach(vp -> vp.setEstApprouve(false));
         vendeurProduitRepository.saveAll(inscriptions);
+        catalogueCacheService.invaliderVendeurApresCommit(vendeurId);
 
         return MessageResponse.builder()
                 .success(true)
@@ -114,6 +124,8 @@ public class AdminService {
         }
 
         vendeurRepository.delete(vendeur);
+        // Ses inscriptions produits disparaissent avec lui
+        catalogueCacheService.invaliderVendeurApresCommit(vendeurId);
 
         return MessageResponse.builder()
                 .success(true)
@@ -165,9 +177,11 @@ public class AdminService {
 
         vendeurProduit.setEstApprouve(true);
         vendeurProduitRepository.save(vendeurProduit);
+        catalogueCacheService.invaliderProduitVendeurApresCommit(vendeurProduitId);
 
-        // Synchroniser avec le service AI pour la recherche sémantique
-        aiSearchService.syncProductWithAI(vendeurProduit);
+        // La synchronisation avec le service AI est faite par l'abonné de l'outbox
+        outboxService.publier(EvenementOutbox.TypeEvenement.VENDEUR_PRODUIT_APPROUVE, vendeurProduit.getId(), Map.of(
+                "vendeurId", vendeurProduit.getVendeur().getId()));
 
         return MessageResponse.builder()
                 .success(true)
@@ -188,6 +202,7 @@ public class AdminService {
         }
 
         vendeurProduitRepository.delete(vendeurProduit);
+        catalogueCacheService.invaliderProduitVendeurApresCommit(vendeurProduitId);
 
         return MessageResponse.builder()
                 .success(true)
@@ -209,6 +224,7 @@ public class AdminService {
 
         vendeurProduit.setEstApprouve(false);
         vendeurProduitRepository.save(vendeurProduit);
+        catalogueCacheService.invaliderProduitVendeurApresCommit(vendeurProduitId);
 
         return MessageResponse.builder()
                 .success(true)
@@ -231,11 +247,12 @@ public class AdminService {
     // ========== Gestion des Catégories ==========
 
     public List<Categorie> getAllCategories() {
-        return categorieRepository.findAll();
+        return catalogueCacheService.lireCategories(categorieRepository::findAll);
     }
 
     @Transactional
     public Categorie createCategorie(Categorie categorie) {
+        catalogueCacheService.invaliderCategorieApresCommit(null);
         return categorieRepository.save(categorie);
     }
 
@@ -246,6 +263,7 @@ public class AdminService {
         
         categorie.setNom(categorieDetails.getNom());
         categorie.setImage(categorieDetails.getImage());
+        catalogueCacheService.invaliderCategorieApresCommit(id);
         
         return categorieRepository.save(categorie);
     }
@@ -253,6 +271,7 @@ public class AdminService {
     @Transactional
     public void deleteCategorie(Long id) {
         categorieRepository.deleteById(id);
+        catalogueCacheService.invaliderCategorieApresCommit(id);
     }
 
     // ========== Gestion des Produits ==========
@@ -264,9 +283,12 @@ public class AdminService {
     @Transactional
     public Produit createProduit(Produit produit) {
         produit.setDateDernierStock(LocalDate.now());
-        return produitRepository.save(produit);
+        Produit savedProduit = produitRepository.save(produit);
+        catalogueCacheService.invaliderProduitApresCommit(savedProduit.getId());
+        return savedProduit;
     }
 
+    @ReessaiSurConflit
     @Transactional
     public Produit updateProduit(Long id, Produit produitDetails) {
         Produit produit = produitRepository.findById(id)
@@ -275,13 +297,17 @@ public class AdminService {
         produit.setNom(produitDetails.getNom());
         produit.setDescription(produitDetails.getDescription());
         produit.setPrix(produitDetails.getPrix());
-        produit.setQuantite(produitDetails.getQuantite());
+        if (produitDetails.getQuantite() != null) {
+            inventaireService.definirStock(produit, produitDetails.getQuantite());
+        }
         produit.setImage(produitDetails.getImage());
         produit.setCategorie(produitDetails.getCategorie());
+        catalogueCacheService.invaliderProduitApresCommit(id);
         
         return produitRepository.save(produit);
     }
 
+    @ReessaiSurConflit
     @Transactional
     public MessageResponse updateStock(Long produitId, Integer quantite) {
         Produit produit = produitRepository.findById(produitId)
@@ -294,7 +320,7 @@ public class AdminService {
                     .build();
         }
 
-        produit.setQuantite(quantite);
+        inventaireService.definirStock(produit, quantite);
         produit.setDateDernierStock(LocalDate.now());
         produitRepository.save(produit);
 
@@ -304,9 +330,17 @@ public class AdminService {
                 .build();
     }
 
+    /**
+     * Active ou désactive le stock en mémoire (produit très demandé)
+     */
+    public MessageResponse changerModeStock(Long produitId, boolean actif) {
+        return inventaireService.changerModeStock(produitId, actif);
+    }
+
     @Transactional
     public void deleteProduit(Long id) {
         produitRepository.deleteById(id);
+        catalogueCacheService.invaliderProduitApresCommit(id);
     }
 
     // ========== Statistiques ==========
@@ -0,0 +1,87 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Découpage des textes du catalogue (français et anglais) en termes indexables :
+ * minuscules, accents retirés, mots vides écartés et pluriels réduits au singulier.
+ * Le même traitement est appliqué aux textes indexés et aux requêtes.
+ */
+final class AnalyseurTexte {
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final Set<String> MOTS_VIDES = Set.of(
+            // Français
+            "a", "au", "aux", "avec", "ce", "ces", "dans", "de", "des", "du", "elle", "en", "et", "il",
+            "la", "le", "les", "leur", "mais", "ou", "par", "pas", "pour", "qui", "que", "sa", "se", "ses",
+            "son", "sur", "un", "une", "vos", "votre", "nos", "notre", "est", "sont", "d", "l", "n", "s", "c", "qu",
+            // Anglais
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "the", "this", "to", "with", "your", "our");
+
+    private AnalyseurTexte() {
+    }
+
+    /**
+     * Minuscules sans accents
+     */
+    static String normaliser(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        return DIACRITIQUES.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Termes d'un texte, dans l'ordre, mots vides exclus
+     */
+    static List<String> analyser(String texte) {
+        List<String> termes = new ArrayList<>();
+        for (String mot : decouper(texte)) {
+            if (!MOTS_VIDES.contains(mot)) {
+                termes.add(raciniser(mot));
+            }
+        }
+        return termes;
+    }
+
+    /**
+     * Mots normalisés d'un texte, sans filtrage ni racinisation (préfixes saisis par l'utilisateur)
+     */
+    static List<String> decouper(String texte) {
+        List<String> mots = new ArrayList<>();
+        for (String mot : SEPARATEURS.split(normaliser(texte))) {
+            if (!mot.isEmpty()) {
+                mots.add(mot);
+            }
+        }
+        return mots;
+    }
+
+    /**
+     * Racinisation légère commune au français et à l'anglais : seuls les pluriels réguliers sont réduits
+     */
+    static String raciniser(String mot) {
+        if (mot.length() <= 3 || !Character.isLetter(mot.charAt(mot.length() - 1))) {
+            return mot;
+        }
+        if (mot.endsWith("ies") && mot.length() > 4) {
+            return mot.substring(0, mot.length() - 3) + "y";
+        }
+        if (mot.endsWith("aux") && mot.length() > 4) {
+            return mot.substring(0, mot.length() - 3) + "al";
+        }
+        if ((mot.endsWith("s") && !mot.endsWith("ss")) || mot.endsWith("x")) {
+            return mot.substring(0, mot.length() - 1);
+        }
+        return mot;
+    }
+}
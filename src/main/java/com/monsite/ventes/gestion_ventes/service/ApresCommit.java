@@ -0,0 +1,45 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Actions liées à la validation de la transaction en cours (caches, versions, abonnés)
+ */
+final class ApresCommit {
+
+    private ApresCommit() {
+    }
+
+    /**
+     * Exécute l'action après le commit de la transaction en cours, ou immédiatement sans transaction
+     */
+    static void executer(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Exécute l'action immédiatement, puis une seconde fois après le commit : une lecture concurrente
+     * a pu remettre l'ancien état en cache avant la validation
+     */
+    static void maintenantEtApresCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
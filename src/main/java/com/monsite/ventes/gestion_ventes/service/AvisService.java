@@ -3,18 +3,25 @@ package com.monsite.ventes.gestion_ventes.service;
 import com.monsite.ventes.gestion_ventes.dto.AvisRequest;
 import com.monsite.ventes.gestion_ventes.dto.AvisResponse;
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageCurseurResponse;
+import com.monsite.ventes.gestion_ventes.dto.VersionRessource;
 import com.monsite.ventes.gestion_ventes.entity.Avis;
 import com.monsite.ventes.gestion_ventes.entity.Client;
 import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
 import com.monsite.ventes.gestion_ventes.repository.AvisRepository;
 import com.monsite.ventes.gestion_ventes.repository.ClientRepository;
 import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +31,11 @@ public class AvisService {
     private final ClientRepository clientRepository;
     private final VendeurProduitRepository vendeurProduitRepository;
 
+    // Dernière modification des avis de chaque produit depuis le démarrage (validateurs HTTP des statistiques)
+    private final long demarrage = System.currentTimeMillis();
+    private final AtomicLong sequenceModifications = new AtomicLong();
+    private final Map<Long, ModificationAvis> modificationsParProduit = new ConcurrentHashMap<>();
+
     // Lexique de mots positifs et négatifs pour l'analyse de sentiment
     private static final List<String> MOTS_POSITIFS = Arrays.asList(
         "excellent", "super", "génial", "parfait", "magnifique", "formidable", "incroyable",
@@ -93,6 +105,7 @@ public class AvisService {
         avis.setEstCache(false);
 
         avisRepository.save(avis);
+        signalerModificationApresCommit(vendeurProduit.getId());
 
         return MessageResponse.builder()
                 .success(true)
@@ -106,6 +119,55 @@ public class AvisService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Page d'avis visibles d'un produit, des plus récents aux plus anciens (pagination par curseur sur dateAvis et id)
+     */
+    public PageCurseurResponse<AvisResponse> getPageAvis(Long vendeurProduitId, String curseur, int taille) {
+        int tailleEffective = Math.max(1, Math.min(taille, 50));
+        // Une ligne de plus que demandé pour savoir s'il existe une page suivante
+        PageRequest limite = PageRequest.of(0, tailleEffective + 1);
+
+        List<Avis> avis;
+        if (curseur == null || curseur.isBlank()) {
+            avis = avisRepository.findPageVisiblesByVendeurProduitId(vendeurProduitId, limite);
+        } else {
+            CurseurDateId position = CurseurDateId.decoder(curseur);
+            avis = avisRepository.findPageVisiblesByVendeurProduitIdApres(vendeurProduitId,
+                    position.date(), position.id(), limite);
+        }
+
+        boolean aSuite = avis.size() > tailleEffective;
+        if (aSuite) {
+            avis = avis.subList(0, tailleEffective);
+        }
+
+        String curseurSuivant = null;
+        if (aSuite) {
+            Avis dernier = avis.get(avis.size() - 1);
+            curseurSuivant = new CurseurDateId(dernier.getDateAvis(), dernier.getId()).encoder();
+        }
+
+        return PageCurseurResponse.<AvisResponse>builder()
+                .elements(avis.stream().map(this::toAvisResponse).collect(Collectors.toList()))
+                .curseurSuivant(curseurSuivant)
+                .suite(aSuite)
+                .build();
+    }
+
+    /**
+     * Nombre d'avis visibles pour chaque note de 1 à 5
+     */
+    public Map<Integer, Long> getHistogrammeNotes(Long vendeurProduitId) {
+        Map<Integer, Long> histogramme = new TreeMap<>();
+        for (int note = 1; note <= 5; note++) {
+            histogramme.put(note, 0L);
+        }
+        for (Object[] ligne : avisRepository.countParNoteByVendeurProduitId(vendeurProduitId)) {
+            histogramme.put(((Number) ligne[0]).intValue(), ((Number) ligne[1]).longValue());
+        }
+        return histogramme;
+    }
+
     public List<AvisResponse> getAvisParVendeur(Long vendeurId) {
         return avisRepository.findByVendeurId(vendeurId).stream()
                 .map(this::toAvisResponse)
@@ -121,6 +183,25 @@ public class AvisService {
         return avisRepository.countByVendeurProduitId(vendeurProduitId);
     }
 
+    /**
+     * Validateurs HTTP des avis et statistiques d'un produit, sans requête en base
+     */
+    public VersionRessource getVersionAvis(Long vendeurProduitId) {
+        ModificationAvis modification = modificationsParProduit.get(vendeurProduitId);
+        long sequence = modification != null ? modification.sequence() : 0;
+        return new VersionRessource("\"a" + demarrage + "-" + sequence + "\"",
+                modification != null ? modification.date() : demarrage);
+    }
+
+    private void signalerModificationApresCommit(Long vendeurProduitId) {
+        ApresCommit.maintenantEtApresCommit(() -> signalerModification(vendeurProduitId));
+    }
+
+    private void signalerModification(Long vendeurProduitId) {
+        modificationsParProduit.put(vendeurProduitId,
+                new ModificationAvis(sequenceModifications.incrementAndGet(), System.currentTimeMillis()));
+    }
+
     @Transactional
     public MessageResponse toggleVisibiliteAvis(Long vendeurId, Long avisId) {
         Avis avis = avisRepository.findById(avisId)
@@ -144,6 +225,7 @@ public class AvisService {
         // Toggle la visibilité
         avis.setEstCache(!avis.getEstCache());
         avisRepository.save(avis);
+        signalerModificationApresCommit(avis.getVendeurProduit().getId());
 
         String message = avis.getEstCache() ? "Avis masqué" : "Avis affiché";
         return MessageResponse.builder()
@@ -202,4 +284,7 @@ public class AvisService {
                 .estCache(avis.getEstCache())
                 .build();
     }
+
+    private record ModificationAvis(long sequence, long date) {
+    }
 }
@@ -0,0 +1,201 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.dto.VersionRessource;
+import com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection;
+import com.monsite.ventes.gestion_ventes.entity.Categorie;
+import com.monsite.ventes.gestion_ventes.service.AbonneCatalogue.Portee;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache de lecture du catalogue public : pages de produits approuvés, fiches produit et catégories.
+ * Les pages sont marquées par une version globale du catalogue, incrémentée à chaque écriture qui
+ * touche le catalogue ; les fiches ne sont retirées que pour les produits concernés.
+ * Le stock n'est pas mis en cache ici : il est relu à part à chaque requête, ses changements
+ * fréquents n'invalident donc ni les pages ni les fiches.
+ */
+@Service
+public class CatalogueCacheService {
+
+    private final InventaireService inventaireService;
+    private final ObjectProvider<AbonneCatalogue> abonnes;
+
+    // Les versions repartent de zéro au redémarrage : l'instant de démarrage entre dans les ETag
+    private final long demarrage = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong versionCategories = new AtomicLong();
+    private volatile long derniereModification = demarrage;
+    private volatile long derniereModificationCategories = demarrage;
+
+    private final Map<String, PageCatalogue> pages;
+    private final Map<Long, VendeurProduitCatalogueProjection> fiches;
+    private volatile CategoriesFigees categories;
+
+    public CatalogueCacheService(InventaireService inventaireService,
+                                 ObjectProvider<AbonneCatalogue> abonnes,
+                                 @Value("${catalogue.cache.pages-capacite:2000}") int capacitePages,
+                                 @Value("${catalogue.cache.fiches-capacite:20000}") int capaciteFiches) {
+        this.inventaireService = inventaireService;
+        this.abonnes = abonnes;
+        this.pages = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PageCatalogue> eldest) {
+                return size() > capacitePages;
+            }
+        };
+        this.fiches = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, VendeurProduitCatalogueProjection> eldest) {
+                return size() > capaciteFiches;
+            }
+        };
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Validateurs HTTP des réponses du catalogue (produits et offres vendeur) : version du catalogue et du stock.
+     * À lire avant de charger les données, pour qu'une écriture concurrente donne au pire une réponse revalidée.
+     */
+    public VersionRessource getVersionCatalogue() {
+        long versionStock = inventaireService.getVersionStock();
+        long modification = Math.max(derniereModification, inventaireService.getDerniereModificationStock());
+        return new VersionRessource("\"c" + demarrage + "-" + version.get() + "-" + versionStock + "\"", modification);
+    }
+
+    public VersionRessource getVersionCategories() {
+        return new VersionRessource("\"k" + demarrage + "-" + versionCategories.get() + "\"",
+                derniereModificationCategories);
+    }
+
+    /**
+     * Page du catalogue en cache pour cette clé, chargée si absente ou d'une version antérieure
+     */
+    public PageCatalogue lirePage(String cle, Supplier<PageCatalogue> chargement) {
+        long versionLue = version.get();
+        PageCatalogue page;
+        synchronized (pages) {
+            page = pages.get(cle);
+        }
+        if (page != null && page.version() == versionLue) {
+            return page;
+        }
+
+        PageCatalogue chargee = chargement.get();
+        PageCatalogue figee = new PageCatalogue(versionLue, chargee.lignes(), chargee.suite());
+        // Une écriture pendant le chargement a pu rendre la page obsolète : elle sert la requête mais n'est pas gardée
+        if (version.get() == versionLue) {
+            synchronized (pages) {
+                pages.put(cle, figee);
+            }
+        }
+        return figee;
+    }
+
+    /**
+     * Fiche d'un produit vendeur approuvé, ou null s'il n'est pas (ou plus) au catalogue
+     */
+    public VendeurProduitCatalogueProjection lireFiche(Long vendeurProduitId,
+                                                       Supplier<VendeurProduitCatalogueProjection> chargement) {
+        long versionLue = version.get();
+        VendeurProduitCatalogueProjection fiche;
+        synchronized (fiches) {
+            fiche = fiches.get(vendeurProduitId);
+        }
+        if (fiche != null) {
+            return fiche;
+        }
+
+        fiche = chargement.get();
+        if (fiche != null && version.get() == versionLue) {
+            synchronized (fiches) {
+                fiches.put(vendeurProduitId, fiche);
+            }
+        }
+        return fiche;
+    }
+
+    public List<Categorie> lireCategories(Supplier<List<Categorie>> chargement) {
+        long versionLue = versionCategories.get();
+        CategoriesFigees figees = categories;
+        if (figees != null && figees.version() == versionLue) {
+            return figees.categories();
+        }
+
+        List<Categorie> chargees = List.copyOf(chargement.get());
+        if (versionCategories.get() == versionLue) {
+            categories = new CategoriesFigees(versionLue, chargees);
+        }
+        return chargees;
+    }
+
+    /**
+     * Inscription vendeur-produit modifiée, approuvée, rejetée ou bannie
+     */
+    public void invaliderProduitVendeurApresCommit(Long vendeurProduitId) {
+        invaliderApresCommit(fiche -> fiche.id().equals(vendeurProduitId));
+        prevenirApresCommit(Portee.OFFRE, vendeurProduitId);
+    }
+
+    /**
+     * Produit du catalogue modifié ou supprimé (nom, prix, catégorie...) : toutes ses offres vendeur sont concernées
+     */
+    public void invaliderProduitApresCommit(Long produitId) {
+        invaliderApresCommit(fiche -> fiche.produitId().equals(produitId));
+        prevenirApresCommit(Portee.PRODUIT, produitId);
+    }
+
+    public void invaliderVendeurApresCommit(Long vendeurId) {
+        invaliderApresCommit(fiche -> fiche.vendeurId().equals(vendeurId));
+        prevenirApresCommit(Portee.VENDEUR, vendeurId);
+    }
+
+    /**
+     * Catégorie créée, modifiée ou supprimée : la liste des catégories et les produits qui y sont rangés
+     */
+    public void invaliderCategorieApresCommit(Long categorieId) {
+        ApresCommit.maintenantEtApresCommit(this::invaliderCategories);
+        invaliderApresCommit(fiche -> categorieId != null && categorieId.equals(fiche.categorieId()));
+        prevenirApresCommit(Portee.CATEGORIE, categorieId);
+    }
+
+    private void invaliderCategories() {
+        versionCategories.incrementAndGet();
+        derniereModificationCategories = System.currentTimeMillis();
+    }
+
+    private void invaliderApresCommit(Predicate<VendeurProduitCatalogueProjection> concernee) {
+        ApresCommit.maintenantEtApresCommit(() -> invalider(concernee));
+    }
+
+    private void prevenirApresCommit(Portee portee, Long id) {
+        ApresCommit.executer(() -> abonnes.orderedStream().forEach(abonne -> abonne.catalogueModifie(portee, id)));
+    }
+
+    private void invalider(Predicate<VendeurProduitCatalogueProjection> concernee) {
+        version.incrementAndGet();
+        derniereModification = System.currentTimeMillis();
+        synchronized (fiches) {
+            fiches.values().removeIf(concernee);
+        }
+    }
+
+    /**
+     * Page du catalogue sans stock (quantiteStock est celle du chargement et doit être relue)
+     */
+    public record PageCatalogue(long version, List<VendeurProduitCatalogueProjection> lignes, boolean suite) {
+    }
+
+    private record CategoriesFigees(long version, List<Categorie> categories) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monsite.ventes.gestion_ventes.dto.CommandeResponse;
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache des commandes dans un état final (LIVREE, ANNULEE).
+ * Ces commandes ne changent plus : les entrées n'expirent jamais dans le temps et ne sortent
+ * du cache que par éviction LRU (taille bornée) : la machine à états n'autorise aucune sortie d'un état final.
+ * Chaque entrée porte un ETag fort calculé sur sa représentation JSON : celle-ci ne doit contenir que des
+ * données figées à la commande (voir CommandeService.figer), jamais l'état actuel des offres ou du client.
+ */
+@Service
+public class CommandeCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandeCacheService.class);
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, CommandeFigee> commandes;
+    // Incrémentée à chaque invalidation : une lecture commencée avant ne remet pas l'ancienne version en cache
+    private final AtomicLong version = new AtomicLong();
+
+    public CommandeCacheService(ObjectMapper objectMapper,
+                                @Value("${commande.cache.capacite:10000}") int capacite) {
+        this.objectMapper = objectMapper;
+        // Ordre d'accès : l'entrée la moins récemment lue est évincée en premier
+        this.commandes = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CommandeFigee> eldest) {
+                return size() > capacite;
+            }
+        };
+    }
+
+    public static boolean estTerminal(StatutCommande statut) {
+        return statut == StatutCommande.LIVREE || statut == StatutCommande.ANNULEE;
+    }
+
+    /**
+     * Commande en cache, ou chargée et mise en cache si elle est dans un état final.
+     * La réponse est partagée entre les appelants et ne doit pas être modifiée.
+     */
+    public CommandeFigee lire(Long commandeId, Supplier<CommandeResponse> chargement) {
+        long versionLue = version.get();
+        CommandeFigee figee;
+        synchronized (commandes) {
+            figee = commandes.get(commandeId);
+        }
+        if (figee != null) {
+            return figee;
+        }
+
+        CommandeResponse commande = chargement.get();
+        if (!estTerminal(commande.getStatut())) {
+            return new CommandeFigee(commande, null);
+        }
+        figee = new CommandeFigee(commande, calculerEtag(commande));
+        // Une invalidation pendant le chargement : la commande lue sert la requête mais n'est pas gardée
+        synchronized (commandes) {
+            if (version.get() == versionLue) {
+                commandes.put(commandeId, figee);
+            }
+        }
+        return figee;
+    }
+
+    /**
+     * Retire une commande du cache après validation de la transaction en cours (ou immédiatement sans transaction)
+     */
+    public void invaliderApresCommit(Long commandeId) {
+        ApresCommit.maintenantEtApresCommit(() -> invalider(commandeId));
+    }
+
+    private void invalider(Long commandeId) {
+        synchronized (commandes) {
+            version.incrementAndGet();
+            commandes.remove(commandeId);
+        }
+    }
+
+    private String calculerEtag(CommandeResponse commande) {
+        try {
+            byte[] empreinte = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(commande));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(empreinte, 16)) + "\"";
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            logger.warn("Impossible de calculer l'ETag de la commande {}: {}", commande.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Commande lue avec son ETag (null si la commande n'est pas dans un état final)
+     */
+    public record CommandeFigee(CommandeResponse commande, String etag) {
+    }
+}
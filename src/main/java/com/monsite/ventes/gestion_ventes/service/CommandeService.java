@@ -1,23 +1,51 @@
 package com.monsite.ventes.gestion_ventes.service;
 
+import com.monsite.ventes.gestion_ventes.config.ReessaiSurConflit;
 import com.monsite.ventes.gestion_ventes.dto.CommandeRequest;
 import com.monsite.ventes.gestion_ventes.dto.CommandeResponse;
+import com.monsite.ventes.gestion_ventes.dto.CommandeResumeResponse;
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageCurseurResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageResponse;
+import com.monsite.ventes.gestion_ventes.dto.TransitionCommandesRequest;
+import com.monsite.ventes.gestion_ventes.dto.TransitionCommandesResponse;
 import com.monsite.ventes.gestion_ventes.dto.VendeurProduitResponse;
+import com.monsite.ventes.gestion_ventes.dto.projection.EnteteCommandeProjection;
+import com.monsite.ventes.gestion_ventes.dto.projection.LignePanierCheckoutProjection;
+import com.monsite.ventes.gestion_ventes.dto.projection.LigneCommandeProjection;
 import com.monsite.ventes.gestion_ventes.entity.*;
 import com.monsite.ventes.gestion_ventes.repository.ClientRepository;
 import com.monsite.ventes.gestion_ventes.repository.CommandeRepository;
-import com.monsite.ventes.gestion_ventes.repository.PanierRepository;
+import com.monsite.ventes.gestion_ventes.repository.CommandeSpecifications;
+import com.monsite.ventes.gestion_ventes.repository.LignePanierRepository;
+import com.monsite.ventes.gestion_ventes.repository.ProduitRepository;
 import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import com.monsite.ventes.gestion_ventes.service.CommandeCacheService.CommandeFigee;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,21 +53,51 @@ public class CommandeService {
 
     private static final Logger logger = LoggerFactory.getLogger(CommandeService.class);
 
+    // Nombre de commandes traitées par transaction lors d'un changement de statut en masse
+    private static final int TAILLE_LOT_TRANSITION = 200;
+
+    // Nombre maximal de commandes par requête de chargement des lignes (taille de la clause IN)
+    private static final int TAILLE_TRANCHE_LIGNES = 500;
+
+    private static final Sort TRI_COMMANDES = Sort.by(Sort.Order.desc("dateCommande"), Sort.Order.desc("id"));
+
     private final CommandeRepository commandeRepository;
     private final VendeurProduitRepository vendeurProduitRepository;
     private final ClientRepository clientRepository;
-    private final PanierRepository panierRepository;
+    private final LignePanierRepository lignePanierRepository;
+    private final ReservationStockService reservationStockService;
+    private final ProduitRepository produitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final InventaireService inventaireService;
+    private final CommandeCacheService commandeCacheService;
+    private final PanierCacheService panierCacheService;
+
+    @Value("${commande.transition.max:5000}")
+    private int transitionCommandesMax;
 
     public CommandeService(CommandeRepository commandeRepository,
                           VendeurProduitRepository vendeurProduitRepository,
                           ClientRepository clientRepository,
-                          PanierRepository panierRepository) {
+                          LignePanierRepository lignePanierRepository,
+                          ReservationStockService reservationStockService,
+                          ProduitRepository produitRepository,
+                          PlatformTransactionManager transactionManager,
+                          InventaireService inventaireService,
+                          CommandeCacheService commandeCacheService,
+                          PanierCacheService panierCacheService) {
         this.commandeRepository = commandeRepository;
         this.vendeurProduitRepository = vendeurProduitRepository;
         this.clientRepository = clientRepository;
-        this.panierRepository = panierRepository;
+        this.lignePanierRepository = lignePanierRepository;
+        this.reservationStockService = reservationStockService;
+        this.produitRepository = produitRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.inventaireService = inventaireService;
+        this.commandeCacheService = commandeCacheService;
+        this.panierCacheService = panierCacheService;
     }
 
+    @ReessaiSurConflit
     @Transactional
     public CommandeResponse passerCommande(Long clientId, CommandeRequest request) {
         logger.info("Tentative de commande pour client ID: {}", clientId);
@@ -65,20 +123,32 @@ public class CommandeService {
 
         logger.info("Nombre de produits dans la commande: {}", request.getLignesCommande().size());
 
+        // Charger en une seule requête tous les produits vendeurs demandés (avec vendeur, produit et catégorie)
+        Set<Long> vendeurProduitIds = request.getLignesCommande().stream()
+                .map(CommandeRequest.LigneCommandeRequest::getVendeurProduitId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, VendeurProduit> vendeurProduits = vendeurProduitRepository.findAllByIdWithDetails(vendeurProduitIds).stream()
+                .collect(Collectors.toMap(VendeurProduit::getId, Function.identity()));
+
         // Première passe : vérifier la disponibilité du stock pour tous les produits
         for (CommandeRequest.LigneCommandeRequest ligneRequest : request.getLignesCommande()) {
-            VendeurProduit vendeurProduit = vendeurProduitRepository.findById(ligneRequest.getVendeurProduitId())
-                    .orElseThrow(() -> new RuntimeException("Produit vendeur non trouvé: " + ligneRequest.getVendeurProduitId()));
+            VendeurProduit vendeurProduit = vendeurProduits.get(ligneRequest.getVendeurProduitId());
+            if (vendeurProduit == null) {
+                throw new RuntimeException("Produit vendeur non trouvé: " + ligneRequest.getVendeurProduitId());
+            }
 
             if (!vendeurProduit.isEstApprouve()) {
                 throw new RuntimeException("Le produit '" + vendeurProduit.getTitre() + "' n'est pas disponible à la vente");
             }
 
-            // Vérifier le stock dans la table Produit
+            // Vérifier le stock dans la table Produit, hors quantités réservées par d'autres clients
             Produit produit = vendeurProduit.getProduit();
-            if (produit.getQuantite() < ligneRequest.getQuantite()) {
+            int stockDisponible = inventaireService.getStockDisponible(produit)
+                    - reservationStockService.getQuantiteReserveeParAutres(produit.getId(), clientId);
+            if (stockDisponible < ligneRequest.getQuantite()) {
                 throw new RuntimeException("Stock insuffisant pour le produit '" + vendeurProduit.getTitre() + 
-                    "'. Stock disponible: " + produit.getQuantite() + ", demandé: " + ligneRequest.getQuantite());
+                    "'. Stock disponible: " + stockDisponible + ", demandé: " + ligneRequest.getQuantite());
             }
         }
 
@@ -86,6 +156,7 @@ public class CommandeService {
         commande.setClient(client);
         commande.setDateCommande(LocalDateTime.now());
         commande.setStatut(Commande.StatutCommande.EN_ATTENTE);
+        commande.setAdresseLivraison(client.getAdresseLivraison());
 
         List<LigneCommande> lignesCommande = new ArrayList<>();
         BigDecimal montantTotal = BigDecimal.ZERO;
@@ -93,19 +164,19 @@ public class CommandeService {
         for (CommandeRequest.LigneCommandeRequest ligneRequest : request.getLignesCommande()) {
             logger.info("Traitement du produit ID: {}", ligneRequest.getVendeurProduitId());
             
-            VendeurProduit vendeurProduit = vendeurProduitRepository.findById(ligneRequest.getVendeurProduitId())
-                    .orElseThrow(() -> new RuntimeException("Produit vendeur non trouvé: " + ligneRequest.getVendeurProduitId()));
+            VendeurProduit vendeurProduit = vendeurProduits.get(ligneRequest.getVendeurProduitId());
 
-            // Décrémenter le stock dans la table Produit
+            // Décrémenter le stock (ligne produit, ou compteur en mémoire pour un produit chaud)
             Produit produit = vendeurProduit.getProduit();
-            produit.setQuantite(produit.getQuantite() - ligneRequest.getQuantite());
-            logger.info("Stock mis à jour pour produit {}: nouveau stock = {}", produit.getId(), produit.getQuantite());
+            inventaireService.retirer(produit, ligneRequest.getQuantite());
+            logger.info("Stock mis à jour pour produit {}: nouveau stock = {}", produit.getId(), inventaireService.getStockDisponible(produit));
 
             LigneCommande ligneCommande = new LigneCommande();
             ligneCommande.setCommande(commande);
             ligneCommande.setVendeurProduit(vendeurProduit);
             ligneCommande.setQuantite(ligneRequest.getQuantite());
             ligneCommande.setPrixUnitaire(vendeurProduit.getPrixVendeur());
+            ligneCommande.setTitre(vendeurProduit.getTitre());
             
             BigDecimal sousTotal = vendeurProduit.getPrixVendeur().multiply(BigDecimal.valueOf(ligneRequest.getQuantite()));
             ligneCommande.setSousTotal(sousTotal);
@@ -121,102 +192,482 @@ public class CommandeService {
         Commande savedCommande = commandeRepository.save(commande);
         logger.info("Commande sauvegardée avec succès, ID: {}", savedCommande.getId());
 
-        // Vider le panier du client après la commande
-        panierRepository.findByClientId(clientId).ifPresent(panier -> {
-            panier.vider();
-            panierRepository.save(panier);
-            logger.info("Panier du client {} vidé après la commande", clientId);
+        // Vider le panier du client après la commande (une seule requête de suppression)
+        int lignesSupprimees = lignePanierRepository.supprimerLignesDuClient(clientId);
+        panierCacheService.viderApresCommit(clientId);
+        logger.info("Panier du client {} vidé après la commande ({} ligne(s))", clientId, lignesSupprimees);
+
+        // Les réservations du client sont consommées par la commande
+        reservationStockService.confirmerApresCommit(clientId);
+
+        // Les produits vendeurs sont déjà chargés avec leurs relations : pas besoin de relire la commande
+        return toCommandeResponse(savedCommande);
+    }
+
+    /**
+     * Transforme le panier enregistré du client en commande, côté serveur :
+     * une requête pour lire et valider les lignes (prix, approbation, stock), une requête pour décrémenter
+     * le stock des produits ordinaires, une requête pour vider le panier.
+     */
+    @ReessaiSurConflit
+    @Transactional
+    public CommandeResponse passerCommandeDepuisPanier(Long clientId, String adresseLivraison) {
+        logger.info("Commande depuis le panier pour le client ID: {}", clientId);
+
+        // Les dernières modifications du panier en mémoire doivent être en base avant la lecture
+        panierCacheService.ecrire(clientId);
+
+        Client client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new RuntimeException("Client non trouvé. Veuillez vous reconnecter."));
+        if (adresseLivraison != null && !adresseLivraison.isEmpty()) {
+            client.setAdresseLivraison(adresseLivraison);
+        }
+
+        List<LignePanierCheckoutProjection> lignes = lignePanierRepository.findLignesCheckout(clientId);
+        if (lignes.isEmpty()) {
+            throw new RuntimeException("Le panier est vide");
+        }
+
+        // Quantités demandées par produit (plusieurs vendeurs peuvent proposer le même produit)
+        Map<Long, Integer> quantitesParProduit = new HashMap<>();
+        Map<Long, Integer> stockParProduit = new HashMap<>();
+        // Mode de stock lu en base avec les lignes, comme le filtre du décrément ensembliste
+        Set<Long> produitsChauds = new HashSet<>();
+        for (LignePanierCheckoutProjection ligne : lignes) {
+            if (!ligne.estApprouve()) {
+                throw new RuntimeException("Le produit '" + ligne.titre() + "' n'est pas disponible à la vente");
+            }
+            quantitesParProduit.merge(ligne.produitId(), ligne.quantite(), Integer::sum);
+            stockParProduit.put(ligne.produitId(), ligne.stockProduit());
+            if (ligne.stockChaud()) {
+                produitsChauds.add(ligne.produitId());
+            }
+        }
+
+        List<Long> produitsOrdinaires = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entree : quantitesParProduit.entrySet()) {
+            Long produitId = entree.getKey();
+            int stockDisponible = inventaireService.getStockDisponible(produitId, stockParProduit.get(produitId))
+                    - reservationStockService.getQuantiteReserveeParAutres(produitId, clientId);
+            if (stockDisponible < entree.getValue()) {
+                String titre = lignes.stream().filter(l -> l.produitId().equals(produitId))
+                        .map(LignePanierCheckoutProjection::titre).findFirst().orElse("");
+                throw new RuntimeException("Stock insuffisant pour le produit '" + titre +
+                        "'. Stock disponible: " + stockDisponible + ", demandé: " + entree.getValue());
+            }
+            if (!produitsChauds.contains(produitId)) {
+                produitsOrdinaires.add(produitId);
+            }
+        }
+
+        // Décrément ensembliste, gardé par la condition quantite >= demandé
+        Long panierId = lignes.get(0).panierId();
+        if (!produitsOrdinaires.isEmpty()) {
+            int misAJour = produitRepository.retirerStockPanier(panierId);
+            inventaireService.signalerModificationStock(produitsOrdinaires);
+            if (misAJour != produitsOrdinaires.size()) {
+                throw new RuntimeException("Stock insuffisant pour un ou plusieurs produits du panier, veuillez réessayer");
+            }
+        }
+        quantitesParProduit.forEach((produitId, quantite) -> {
+            if (produitsChauds.contains(produitId)) {
+                inventaireService.retirer(produitRepository.getReferenceById(produitId), quantite);
+            }
         });
 
-        // Recharger la commande avec toutes ses relations pour éviter les problèmes de Lazy Loading
-        Commande commandeWithDetails = commandeRepository.findByIdWithDetails(savedCommande.getId())
-                .orElse(savedCommande);
+        Commande commande = new Commande();
+        commande.setClient(client);
+        commande.setDateCommande(LocalDateTime.now());
+        commande.setStatut(Commande.StatutCommande.EN_ATTENTE);
+        commande.setAdresseLivraison(client.getAdresseLivraison());
 
-        return toCommandeResponse(commandeWithDetails);
+        List<LigneCommande> lignesCommande = new ArrayList<>();
+        BigDecimal montantTotal = BigDecimal.ZERO;
+        for (LignePanierCheckoutProjection ligne : lignes) {
+            LigneCommande ligneCommande = new LigneCommande();
+            ligneCommande.setCommande(commande);
+            ligneCommande.setVendeurProduit(vendeurProduitRepository.getReferenceById(ligne.vendeurProduitId()));
+            ligneCommande.setQuantite(ligne.quantite());
+            ligneCommande.setPrixUnitaire(ligne.prixVendeur());
+            ligneCommande.setTitre(ligne.titre());
+
+            BigDecimal sousTotal = ligne.prixVendeur().multiply(BigDecimal.valueOf(ligne.quantite()));
+            ligneCommande.setSousTotal(sousTotal);
+
+            lignesCommande.add(ligneCommande);
+            montantTotal = montantTotal.add(sousTotal);
+        }
+        commande.setLignesCommande(lignesCommande);
+        commande.setMontantTotal(montantTotal);
+        Commande savedCommande = commandeRepository.save(commande);
+
+        lignePanierRepository.supprimerLignesDuClient(clientId);
+        panierCacheService.viderApresCommit(clientId);
+        reservationStockService.confirmerApresCommit(clientId);
+
+        logger.info("Commande {} créée depuis le panier du client {} ({} ligne(s), montant {})",
+                savedCommande.getId(), clientId, lignes.size(), montantTotal);
+        return assembler(List.of(chargerEntete(savedCommande.getId()))).get(0);
     }
 
     public List<CommandeResponse> getMesCommandes(Long clientId) {
-        List<Commande> commandes = commandeRepository.findByClientIdWithDetails(clientId);
-        return commandes.stream()
-                .map(this::toCommandeResponse)
-                .collect(Collectors.toList());
+        return assembler(commandeRepository.findEntetesByClientId(clientId));
     }
 
-    public CommandeResponse getCommandeById(Long clientId, Long commandeId) {
-        Commande commande = commandeRepository.findByIdWithDetails(commandeId)
-                .orElseThrow(() -> new RuntimeException("Commande non trouvée"));
+    /**
+     * Historique paginé des commandes d'un client (résumés, pagination par curseur sur dateCommande et id).
+     * Le détail complet d'une commande reste disponible via getCommandeById.
+     */
+    public PageCurseurResponse<CommandeResumeResponse> getHistoriqueCommandes(Long clientId, String curseur, int taille) {
+        int tailleEffective = Math.max(1, Math.min(taille, 100));
+        // Une ligne de plus que demandé pour savoir s'il existe une page suivante
+        PageRequest limite = PageRequest.of(0, tailleEffective + 1);
+
+        List<CommandeResumeResponse> resumes;
+        if (curseur == null || curseur.isBlank()) {
+            resumes = commandeRepository.findResumesByClientId(clientId, limite);
+        } else {
+            CurseurDateId position = CurseurDateId.decoder(curseur);
+            resumes = commandeRepository.findResumesByClientIdApres(clientId, position.date(), position.id(), limite);
+        }
 
-        if (!commande.getClient().getId().equals(clientId)) {
+        boolean aSuite = resumes.size() > tailleEffective;
+        if (aSuite) {
+            resumes = new ArrayList<>(resumes.subList(0, tailleEffective));
+        }
+
+        if (!resumes.isEmpty()) {
+            Map<Long, CommandeResumeResponse> parId = resumes.stream()
+                    .collect(Collectors.toMap(CommandeResumeResponse::getId, Function.identity()));
+            for (Object[] ligne : commandeRepository.findPremieresImages(parId.keySet())) {
+                parId.get((Long) ligne[0]).setPremiereImage((String) ligne[1]);
+            }
+        }
+
+        String curseurSuivant = null;
+        if (aSuite) {
+            CommandeResumeResponse derniere = resumes.get(resumes.size() - 1);
+            curseurSuivant = new CurseurDateId(derniere.getDateCommande(), derniere.getId()).encoder();
+        }
+
+        return PageCurseurResponse.<CommandeResumeResponse>builder()
+                .elements(resumes)
+                .curseurSuivant(curseurSuivant)
+                .suite(aSuite)
+                .build();
+    }
+
+    public CommandeFigee getCommandeById(Long clientId, Long commandeId) {
+        CommandeFigee commande = lireCommande(commandeId);
+
+        if (!commande.commande().getClientId().equals(clientId)) {
             throw new RuntimeException("Accès non autorisé à cette commande");
         }
 
-        return toCommandeResponse(commande);
+        return commande;
     }
 
     public List<CommandeResponse> getAllCommandes() {
-        return commandeRepository.findAllWithDetails().stream()
-                .map(this::toCommandeResponse)
-                .collect(Collectors.toList());
+        return assembler(commandeRepository.findAllEntetes());
     }
 
     public List<CommandeResponse> getAllCommandesFiltered(Long vendeurId, Long produitId, String statut) {
-        List<Commande> commandes = commandeRepository.findAllWithDetails();
-        
-        return commandes.stream()
-                .filter(commande -> {
-                    // Filtre par statut
-                    if (statut != null && !statut.isEmpty()) {
-                        try {
-                            Commande.StatutCommande statutEnum = Commande.StatutCommande.valueOf(statut);
-                            if (commande.getStatut() != statutEnum) {
-                                return false;
-                            }
-                        } catch (IllegalArgumentException e) {
-                            // Statut invalide, ignorer le filtre
-                        }
-                    }
-                    
-                    // Filtre par vendeur ou produit
-                    if (vendeurId != null || produitId != null) {
-                        boolean hasMatch = commande.getLignesCommande().stream().anyMatch(ligne -> {
-                            VendeurProduit vp = ligne.getVendeurProduit();
-                            if (vendeurId != null && !vp.getVendeur().getId().equals(vendeurId)) {
-                                return false;
-                            }
-                            if (produitId != null && !vp.getProduit().getId().equals(produitId)) {
-                                return false;
-                            }
-                            return true;
-                        });
-                        return hasMatch;
-                    }
-                    
-                    return true;
-                })
-                .map(this::toCommandeResponse)
+        Specification<Commande> criteres = Specification
+                .where(CommandeSpecifications.avecStatut(parseStatut(statut)))
+                .and(CommandeSpecifications.avecLigne(vendeurId, produitId));
+
+        // Seuls les id sont lus : le détail est chargé ensuite en quelques requêtes groupées
+        return chargerDetails(commandeRepository.findIds(criteres, TRI_COMMANDES));
+    }
+
+    /**
+     * Recherche paginée des commandes (administration) : tous les filtres sont appliqués en SQL,
+     * le détail des lignes n'est chargé que pour les commandes de la page.
+     */
+    public PageResponse<CommandeResponse> rechercherCommandes(String statut, Long vendeurId, Long produitId,
+                                                              Long clientId, String client,
+                                                              LocalDate dateDebut, LocalDate dateFin,
+                                                              int page, int taille) {
+        Specification<Commande> criteres = Specification
+                .where(CommandeSpecifications.avecStatut(parseStatut(statut)))
+                .and(CommandeSpecifications.avecLigne(vendeurId, produitId))
+                .and(CommandeSpecifications.duClient(clientId))
+                .and(CommandeSpecifications.clientCorrespondant(client))
+                .and(CommandeSpecifications.depuis(dateDebut != null ? dateDebut.atStartOfDay() : null))
+                .and(CommandeSpecifications.avant(dateFin != null ? dateFin.plusDays(1).atStartOfDay() : null));
+
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(taille, 100)), TRI_COMMANDES);
+        Page<Commande> resultat = commandeRepository.findAll(criteres, pageRequest);
+
+        List<Long> ids = resultat.getContent().stream()
+                .map(Commande::getId)
                 .collect(Collectors.toList());
+
+        return PageResponse.<CommandeResponse>builder()
+                .contenu(chargerDetails(ids))
+                .page(resultat.getNumber())
+                .taille(resultat.getSize())
+                .totalElements(resultat.getTotalElements())
+                .totalPages(resultat.getTotalPages())
+                .build();
     }
 
-    public CommandeResponse getCommandeByIdAdmin(Long commandeId) {
-        Commande commande = commandeRepository.findByIdWithDetails(commandeId)
-                .orElseThrow(() -> new RuntimeException("Commande non trouvée"));
-        return toCommandeResponse(commande);
+    /**
+     * Charge le détail des commandes en conservant l'ordre des identifiants
+     */
+    private List<CommandeResponse> chargerDetails(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, EnteteCommandeProjection> parId = commandeRepository.findEntetesByIds(ids).stream()
+                .collect(Collectors.toMap(EnteteCommandeProjection::id, Function.identity()));
+        return assembler(ids.stream()
+                .map(parId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
     }
 
+    private EnteteCommandeProjection chargerEntete(Long commandeId) {
+        List<EnteteCommandeProjection> entetes = commandeRepository.findEntetesByIds(List.of(commandeId));
+        if (entetes.isEmpty()) {
+            throw new RuntimeException("Commande non trouvée");
+        }
+        return entetes.get(0);
+    }
+
+    /**
+     * Construit les réponses à partir des projections : une requête pour les en-têtes (faite par l'appelant),
+     * une requête par tranche de commandes pour les lignes, sans aucune entité chargée dans le contexte de persistance
+     */
+    private List<CommandeResponse> assembler(List<EnteteCommandeProjection> entetes) {
+        if (entetes.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, List<CommandeResponse.LigneCommandeResponse>> lignesParCommande = new HashMap<>();
+        List<Long> ids = entetes.stream().map(EnteteCommandeProjection::id).collect(Collectors.toList());
+        for (int debut = 0; debut < ids.size(); debut += TAILLE_TRANCHE_LIGNES) {
+            List<Long> tranche = ids.subList(debut, Math.min(debut + TAILLE_TRANCHE_LIGNES, ids.size()));
+            for (LigneCommandeProjection ligne : commandeRepository.findLignesByCommandeIds(tranche)) {
+                lignesParCommande.computeIfAbsent(ligne.commandeId(), id -> new ArrayList<>())
+                        .add(toLigneCommandeResponse(ligne));
+            }
+        }
+
+        return entetes.stream()
+                .map(entete -> CommandeResponse.builder()
+                        .id(entete.id())
+                        .clientId(entete.clientId())
+                        .clientNom(entete.clientNom())
+                        .dateCommande(entete.dateCommande())
+                        .statut(entete.statut())
+                        .montantTotal(entete.montantTotal())
+                        .adresseLivraison(entete.adresseLivraison())
+                        .lignesCommande(lignesParCommande.getOrDefault(entete.id(), new ArrayList<>()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private Commande.StatutCommande parseStatut(String statut) {
+        if (statut == null || statut.isEmpty()) {
+            return null;
+        }
+        try {
+            return Commande.StatutCommande.valueOf(statut);
+        } catch (IllegalArgumentException e) {
+            // Statut invalide, ignorer le filtre
+            return null;
+        }
+    }
+
+    public CommandeFigee getCommandeByIdAdmin(Long commandeId) {
+        return lireCommande(commandeId);
+    }
+
+    /**
+     * Lecture d'une commande : les commandes dans un état final sont servies depuis le cache,
+     * les autres sont relues en base à chaque appel
+     */
+    private CommandeFigee lireCommande(Long commandeId) {
+        return commandeCacheService.lire(commandeId, () -> figer(assembler(List.of(chargerEntete(commandeId))).get(0)));
+    }
+
+    /**
+     * Change le statut d'une commande avec les mêmes règles qu'un changement en masse :
+     * machine à états, remise en stock à l'annulation et mêmes événements
+     */
+    @ReessaiSurConflit
     @Transactional
     public MessageResponse updateStatutCommande(Long commandeId, Commande.StatutCommande nouveauStatut) {
-        Commande commande = commandeRepository.findById(commandeId)
-                .orElseThrow(() -> new RuntimeException("Commande non trouvée"));
-
-        commande.setStatut(nouveauStatut);
-        commandeRepository.save(commande);
+        TransitionCommandesResponse.ResultatTransition resultat =
+                transitionnerLot(List.of(commandeId), nouveauStatut).get(0);
 
         return MessageResponse.builder()
-                .success(true)
-                .message("Statut de la commande mis à jour avec succès")
+                .success(resultat.isSucces())
+                .message(resultat.isSucces() ? "Statut de la commande mis à jour avec succès" : resultat.getMessage())
                 .build();
     }
 
+    /**
+     * Change le statut d'un ensemble de commandes (liste d'identifiants ou filtre).
+     * Les commandes sont traitées par lots, chaque lot dans sa propre transaction ;
+     * seules les transitions autorisées par la machine à états sont appliquées.
+     */
+    public TransitionCommandesResponse transitionnerCommandes(TransitionCommandesRequest request) {
+        Commande.StatutCommande cible = request.getStatutCible();
+        if (cible == null) {
+            throw new RuntimeException("Le statut cible est obligatoire");
+        }
+
+        List<Long> ids = resoudreIdsTransition(request);
+        List<TransitionCommandesResponse.ResultatTransition> resultats = new ArrayList<>(ids.size());
+
+        for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_TRANSITION) {
+            List<Long> lot = ids.subList(debut, Math.min(debut + TAILLE_LOT_TRANSITION, ids.size()));
+            try {
+                resultats.addAll(transactionTemplate.execute(status -> transitionnerLot(lot, cible)));
+            } catch (Exception e) {
+                logger.error("Échec du lot de transition vers {} ({} commandes)", cible, lot.size(), e);
+                for (Long id : lot) {
+                    resultats.add(refus(id, null, "Erreur lors du traitement du lot: " + e.getMessage()));
+                }
+            }
+        }
+
+        int modifiees = (int) resultats.stream().filter(TransitionCommandesResponse.ResultatTransition::isSucces).count();
+        logger.info("Transition en masse vers {}: {} commande(s) modifiée(s) sur {}", cible, modifiees, ids.size());
+
+        return TransitionCommandesResponse.builder()
+                .statutCible(cible)
+                .nombreDemandees(ids.size())
+                .nombreModifiees(modifiees)
+                .nombreRefusees(ids.size() - modifiees)
+                .resultats(resultats)
+                .build();
+    }
+
+    private List<Long> resoudreIdsTransition(TransitionCommandesRequest request) {
+        if (request.getIds() != null && !request.getIds().isEmpty()) {
+            List<Long> ids = new ArrayList<>(new LinkedHashSet<>(request.getIds()));
+            if (ids.size() > transitionCommandesMax) {
+                throw new RuntimeException("Au plus " + transitionCommandesMax + " commandes par changement de statut");
+            }
+            return ids;
+        }
+
+        TransitionCommandesRequest.FiltreCommandes filtre = request.getFiltre();
+        if (filtre == null) {
+            throw new RuntimeException("Une liste d'identifiants ou un filtre est obligatoire");
+        }
+        // Un filtre sans critère sélectionnerait toutes les commandes de la base
+        if (filtre.getStatut() == null && filtre.getVendeurId() == null && filtre.getProduitId() == null
+                && filtre.getDateDebut() == null && filtre.getDateFin() == null) {
+            throw new RuntimeException("Le filtre doit comporter au moins un critère");
+        }
+
+        Specification<Commande> criteres = Specification
+                .where(CommandeSpecifications.avecStatut(filtre.getStatut()))
+                .and(CommandeSpecifications.avecLigne(filtre.getVendeurId(), filtre.getProduitId()))
+                .and(CommandeSpecifications.depuis(filtre.getDateDebut() != null ? filtre.getDateDebut().atStartOfDay() : null))
+                .and(CommandeSpecifications.avant(filtre.getDateFin() != null ? filtre.getDateFin().plusDays(1).atStartOfDay() : null));
+
+        // Une commande de plus que le maximum : le filtre est refusé plutôt que tronqué
+        List<Long> ids = commandeRepository.findIds(criteres, Sort.by("id"), transitionCommandesMax + 1);
+        if (ids.size() > transitionCommandesMax) {
+            throw new RuntimeException("Le filtre sélectionne plus de " + transitionCommandesMax
+                    + " commandes, précisez-le");
+        }
+        return ids;
+    }
+
+    private List<TransitionCommandesResponse.ResultatTransition> transitionnerLot(List<Long> ids,
+                                                                                 Commande.StatutCommande cible) {
+        // Verrouillage des lignes dans l'ordre des identifiants pour éviter les interblocages
+        Map<Long, Commande.StatutCommande> statuts = new HashMap<>();
+        for (Commande commande : commandeRepository.findAllByIdForUpdate(ids)) {
+            statuts.put(commande.getId(), commande.getStatut());
+        }
+
+        List<TransitionCommandesResponse.ResultatTransition> resultats = new ArrayList<>(ids.size());
+        Map<Commande.StatutCommande, List<Long>> parStatutSource = new EnumMap<>(Commande.StatutCommande.class);
+
+        for (Long id : ids) {
+            Commande.StatutCommande actuel = statuts.get(id);
+            if (actuel == null) {
+                resultats.add(refus(id, null, "Commande non trouvée"));
+            } else if (actuel == cible) {
+                resultats.add(refus(id, actuel, "La commande est déjà au statut " + cible));
+            } else if (!actuel.peutPasserA(cible)) {
+                resultats.add(refus(id, actuel, "Transition " + actuel + " -> " + cible + " non autorisée"));
+            } else {
+                parStatutSource.computeIfAbsent(actuel, s -> new ArrayList<>()).add(id);
+            }
+        }
+
+        List<Long> modifiees = new ArrayList<>();
+
+        for (Map.Entry<Commande.StatutCommande, List<Long>> groupe : parStatutSource.entrySet()) {
+            Commande.StatutCommande source = groupe.getKey();
+            commandeRepository.updateStatutEnMasse(groupe.getValue(), source, cible);
+
+            for (Long id : groupe.getValue()) {
+                modifiees.add(id);
+                resultats.add(TransitionCommandesResponse.ResultatTransition.builder()
+                        .commandeId(id)
+                        .succes(true)
+                        .ancienStatut(source)
+                        .message("Statut mis à jour")
+                        .build());
+            }
+        }
+
+        if (!modifiees.isEmpty()) {
+            // Aucune transition ne quitte un état final : l'invalidation garde le cache juste si cela change
+            modifiees.forEach(commandeCacheService::invaliderApresCommit);
+            if (cible == Commande.StatutCommande.ANNULEE) {
+                restaurerStockEnMasse(modifiees);
+            }
+        }
+
+        return resultats;
+    }
+
+    /**
+     * Remise en stock des commandes annulées d'un lot : une seule requête pour les produits ordinaires,
+     * un lot de mouvements pour les produits en stock chaud
+     */
+    private void restaurerStockEnMasse(List<Long> commandeIds) {
+        List<Long> produitsOrdinaires = new ArrayList<>();
+        Map<Long, Long> produitsChauds = new HashMap<>();
+
+        for (Object[] ligne : produitRepository.sommeQuantitesParProduit(commandeIds)) {
+            Long produitId = (Long) ligne[0];
+            if (inventaireService.estChaud(produitId)) {
+                produitsChauds.put(produitId, (Long) ligne[1]);
+            } else {
+                produitsOrdinaires.add(produitId);
+            }
+        }
+
+        if (!produitsOrdinaires.isEmpty()) {
+            produitRepository.restaurerStockCommandes(commandeIds, produitsOrdinaires);
+            inventaireService.signalerModificationStock(produitsOrdinaires);
+        }
+        if (!produitsChauds.isEmpty()) {
+            inventaireService.restituerProduitsChauds(produitsChauds);
+        }
+    }
+
+    private TransitionCommandesResponse.ResultatTransition refus(Long id, Commande.StatutCommande actuel, String message) {
+        return TransitionCommandesResponse.ResultatTransition.builder()
+                .commandeId(id)
+                .succes(false)
+                .ancienStatut(actuel)
+                .message(message)
+                .build();
+    }
+
+    @ReessaiSurConflit
     @Transactional
     public MessageResponse annulerCommande(Long clientId, Long commandeId) {
         Commande commande = commandeRepository.findByIdWithDetails(commandeId)
@@ -241,8 +692,8 @@ public class CommandeService {
         // Restaurer le stock des produits
         for (LigneCommande ligne : commande.getLignesCommande()) {
             Produit produit = ligne.getVendeurProduit().getProduit();
-            produit.setQuantite(produit.getQuantite() + ligne.getQuantite());
-            logger.info("Stock restauré pour produit {}: nouveau stock = {}", produit.getId(), produit.getQuantite());
+            inventaireService.restituer(produit, ligne.getQuantite());
+            logger.info("Stock restauré pour produit {}: {} unité(s)", produit.getId(), ligne.getQuantite());
         }
 
         // Annuler la commande
@@ -264,6 +715,7 @@ public class CommandeService {
                         .quantite(ligne.getQuantite())
                         .prixUnitaire(ligne.getPrixUnitaire())
                         .sousTotal(ligne.getSousTotal())
+                        .titre(ligne.getTitre())
                         .build())
                 .collect(Collectors.toList());
 
@@ -274,11 +726,58 @@ public class CommandeService {
                 .dateCommande(commande.getDateCommande())
                 .statut(commande.getStatut())
                 .montantTotal(commande.getMontantTotal())
-                .adresseLivraison(commande.getClient().getAdresseLivraison())
+                .adresseLivraison(commande.getAdresseLivraison())
                 .lignesCommande(lignesResponse)
                 .build();
     }
 
+    private CommandeResponse.LigneCommandeResponse toLigneCommandeResponse(LigneCommandeProjection ligne) {
+        VendeurProduitResponse vendeurProduit = VendeurProduitResponse.builder()
+                .id(ligne.vendeurProduitId())
+                .vendeurId(ligne.vendeurId())
+                .vendeurNom(ligne.vendeurNom())
+                .produitId(ligne.produitId())
+                .produitNom(ligne.produitNom())
+                .prixOriginal(ligne.prixOriginal())
+                .prixVendeur(ligne.prixVendeur())
+                .image(ligne.image())
+                .description(ligne.description())
+                .titre(ligne.titre())
+                .estApprouve(ligne.estApprouve())
+                .categorieId(ligne.categorieId())
+                .categorieNom(ligne.categorieNom())
+                .quantiteStock(ligne.quantiteStock())
+                .build();
+
+        return CommandeResponse.LigneCommandeResponse.builder()
+                .id(ligne.id())
+                .vendeurProduitId(ligne.vendeurProduitId())
+                .vendeurProduit(vendeurProduit)
+                .quantite(ligne.quantite())
+                .prixUnitaire(ligne.prixUnitaire())
+                .sousTotal(ligne.sousTotal())
+                .titre(ligne.titreCommande())
+                .build();
+    }
+
+    /**
+     * Réponse d'une commande dans un état final réduite à ce qui est figé à la commande (prix des lignes,
+     * adresse, titres) : l'offre n'y garde que ses identifiants, sans prix, stock ni approbation actuels.
+     * C'est ce qui permet de la mettre en cache sans fin avec un ETag fort.
+     */
+    private static CommandeResponse figer(CommandeResponse commande) {
+        if (!CommandeCacheService.estTerminal(commande.getStatut())) {
+            return commande;
+        }
+        commande.getLignesCommande().forEach(ligne -> ligne.setVendeurProduit(VendeurProduitResponse.builder()
+                .id(ligne.getVendeurProduitId())
+                .vendeurId(ligne.getVendeurProduit().getVendeurId())
+                .produitId(ligne.getVendeurProduit().getProduitId())
+                .titre(ligne.getTitre())
+                .build()));
+        return commande;
+    }
+
     private VendeurProduitResponse toVendeurProduitResponse(VendeurProduit vp) {
         return VendeurProduitResponse.builder()
                 .id(vp.getId())
@@ -212,6 +212,7 @@ public class CsvImportService {
                     commande.setClient(client);
                     commande.setDateCommande(premiereLigne.dateCommande);
                     commande.setStatut(premiereLigne.statut);
+                    commande.setAdresseLivraison(client.getAdresseLivraison());
                     commande.setMontantTotal(montantTotal.setScale(2, RoundingMode.HALF_UP));
 
                     commande = commandeRepository.save(commande);
@@ -225,6 +226,7 @@ public class CsvImportService {
                         ligneCommande.setCommande(commande);
                         ligneCommande.setVendeurProduit(vendeurProduit);
                         ligneCommande.setQuantite(ligneData.quantite);
+                        ligneCommande.setTitre(vendeurProduit.getTitre());
                         ligneCommande.setPrixUnitaire(ligneData.prixUnitaire.setScale(2, RoundingMode.HALF_UP));
                         ligneCommande.setSousTotal(ligneData.prixUnitaire
                                 .multiply(BigDecimal.valueOf(ligneData.quantite))
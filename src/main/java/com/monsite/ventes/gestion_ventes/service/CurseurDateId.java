@@ -0,0 +1,30 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Curseur de pagination sur (date, id) décroissants, encodé en base64 URL pour être renvoyé tel quel par le client
+ */
+record CurseurDateId(LocalDateTime date, Long id) {
+
+    String encoder() {
+        String valeur = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valeur.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CurseurDateId decoder(String curseur) {
+        try {
+            String valeur = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            String[] position = valeur.split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            return new CurseurDateId(LocalDateTime.parse(position[0]), Long.parseLong(position[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Curseur de pagination invalide");
+        }
+    }
+}
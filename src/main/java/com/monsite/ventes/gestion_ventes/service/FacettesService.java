@@ -0,0 +1,216 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.dto.FacettesResponse;
+import com.monsite.ventes.gestion_ventes.dto.VersionRessource;
+import com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection;
+import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Facettes du catalogue public (catégories, vendeurs, tranches de prix, en stock) servies par un index
+ * de bitmaps en mémoire sur les offres approuvées. L'index est construit au démarrage puis tenu à jour
+ * par lots à partir des écritures du catalogue et des mouvements de stock notés après commit.
+ */
+@Service
+public class FacettesService implements AbonneCatalogue {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacettesService.class);
+
+    private final VendeurProduitRepository vendeurProduitRepository;
+    private final InventaireService inventaireService;
+
+    private final BigDecimal[] bornesPrix;
+    private volatile IndexFacettes index;
+
+    private final ModificationsCatalogue modifications = new ModificationsCatalogue();
+
+    // Validateurs propres aux facettes : l'index suit le catalogue avec un léger décalage
+    private final long demarrage = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private volatile long derniereModification = demarrage;
+
+    @Value("${catalogue.facettes.taille-lot:1000}")
+    private int tailleLot;
+
+    public FacettesService(VendeurProduitRepository vendeurProduitRepository,
+                           InventaireService inventaireService,
+                           @Value("${catalogue.facettes.tranches-prix:0,50,100,200,500,1000}") BigDecimal[] bornesPrix) {
+        this.vendeurProduitRepository = vendeurProduitRepository;
+        this.inventaireService = inventaireService;
+        this.bornesPrix = bornesPrix.clone();
+        Arrays.sort(this.bornesPrix);
+    }
+
+    public boolean estPret() {
+        return index != null;
+    }
+
+    public VersionRessource getVersionFacettes() {
+        return new VersionRessource("\"f" + demarrage + "-" + version.get() + "\"", derniereModification);
+    }
+
+    /**
+     * Comptages des facettes pour une combinaison de filtres : OU entre les valeurs d'une facette, ET entre facettes
+     */
+    public FacettesResponse getFacettes(Collection<Long> categorieIds, Collection<Long> vendeurIds,
+                                        Collection<Integer> tranches, boolean enStock) {
+        IndexFacettes courant = index;
+        if (courant == null) {
+            throw new RuntimeException("Facettes en cours de construction, réessayez dans un instant");
+        }
+        IndexFacettes.Comptage comptage = courant.compter(categorieIds, vendeurIds, tranches, enStock);
+
+        List<FacettesResponse.Facette> tranchesPrix = new ArrayList<>();
+        for (int i = 0; i < comptage.tranches.length; i++) {
+            BigDecimal prixMax = i + 1 < bornesPrix.length ? bornesPrix[i + 1] : null;
+            tranchesPrix.add(FacettesResponse.Facette.builder()
+                    .id((long) i)
+                    .libelle(prixMax != null
+                            ? bornesPrix[i].toPlainString() + " - " + prixMax.toPlainString()
+                            : bornesPrix[i].toPlainString() + " +")
+                    .nombre(comptage.tranches[i])
+                    .prixMin(bornesPrix[i])
+                    .prixMax(prixMax)
+                    .build());
+        }
+
+        return FacettesResponse.builder()
+                .total(comptage.total)
+                .categories(facettes(comptage.categories, comptage.nomsCategories))
+                .vendeurs(facettes(comptage.vendeurs, comptage.nomsVendeurs))
+                .tranchesPrix(tranchesPrix)
+                .enStock(comptage.enStock)
+                .build();
+    }
+
+    @Override
+    public void catalogueModifie(Portee portee, Long id) {
+        modifications.noter(portee, id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruire() {
+        IndexFacettes nouveau = new IndexFacettes(bornesPrix.length);
+        long apresId = 0L;
+        List<VendeurProduitCatalogueProjection> lignes;
+        do {
+            lignes = vendeurProduitRepository.findCatalogue(apresId, null, null, null, null, false,
+                    PageRequest.of(0, tailleLot));
+            indexer(nouveau, lignes);
+            if (!lignes.isEmpty()) {
+                apresId = lignes.get(lignes.size() - 1).id();
+            }
+        } while (lignes.size() == tailleLot);
+
+        index = nouveau;
+        signalerModification();
+        logger.info("Index des facettes construit : {} offre(s)", nouveau.taille());
+    }
+
+    /**
+     * Applique à l'index les écritures du catalogue et les mouvements de stock notés depuis le dernier passage
+     */
+    @Scheduled(fixedDelayString = "${catalogue.facettes.intervalle-ms:1000}")
+    public synchronized void appliquerModifications() {
+        IndexFacettes courant = index;
+        if (courant == null || modifications.estVide()) {
+            return;
+        }
+
+        ModificationsCatalogue.Lot lot = modifications.vider();
+        Set<Long> offreIds = lot.ids(Portee.OFFRE);
+        Set<Long> produitIds = lot.ids(Portee.PRODUIT);
+        Set<Long> vendeurIds = lot.ids(Portee.VENDEUR);
+        Set<Long> categorieIds = lot.ids(Portee.CATEGORIE);
+        Set<Long> stocks = lot.ids(Portee.STOCK);
+
+        try {
+            if (!offreIds.isEmpty() || !produitIds.isEmpty() || !vendeurIds.isEmpty() || !categorieIds.isEmpty()) {
+                // Offres déjà indexées concernées : relues par id, celles qui ne reviennent pas sont retirées
+                offreIds.addAll(courant.offresDe(produitIds, vendeurIds, categorieIds));
+                Set<Long> offresRetirees = new HashSet<>(offreIds);
+                List<VendeurProduitCatalogueProjection> lignes = vendeurProduitRepository.findCatalogueConcernes(
+                        ModificationsCatalogue.nonVide(offreIds), ModificationsCatalogue.nonVide(produitIds),
+                        ModificationsCatalogue.nonVide(vendeurIds));
+                indexer(courant, lignes);
+                lignes.forEach(ligne -> {
+                    offresRetirees.remove(ligne.id());
+                    stocks.remove(ligne.produitId());
+                });
+                offresRetirees.forEach(courant::retirer);
+            }
+
+            if (!stocks.isEmpty()) {
+                Map<Long, Integer> disponibles = inventaireService.getStocksDisponibles(stocks);
+                stocks.forEach(produitId -> courant.definirStock(produitId, disponibles.getOrDefault(produitId, 0) > 0));
+            }
+            signalerModification();
+        } catch (Exception e) {
+            logger.warn("Échec de la mise à jour des facettes: {}", e.getMessage());
+            modifications.remettre(lot);
+        }
+    }
+
+    private void indexer(IndexFacettes cible, List<VendeurProduitCatalogueProjection> lignes) {
+        if (lignes.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> stocks = inventaireService.getStocksDisponibles(
+                lignes.stream().map(VendeurProduitCatalogueProjection::produitId).toList());
+        for (VendeurProduitCatalogueProjection ligne : lignes) {
+            IndexFacettes.Offre offre = new IndexFacettes.Offre(ligne.id(), ligne.produitId(), ligne.vendeurId(),
+                    ligne.categorieId(), tranche(ligne.prixVendeur()));
+            cible.indexer(offre, ligne.categorieNom(), ligne.vendeurNom(),
+                    stocks.getOrDefault(ligne.produitId(), 0) > 0);
+        }
+    }
+
+    /**
+     * Tranche de prix : la dernière borne inférieure ou égale au prix (-1 sans prix ou sous la première borne)
+     */
+    private int tranche(BigDecimal prix) {
+        if (prix == null) {
+            return -1;
+        }
+        int tranche = -1;
+        for (int i = 0; i < bornesPrix.length && prix.compareTo(bornesPrix[i]) >= 0; i++) {
+            tranche = i;
+        }
+        return tranche;
+    }
+
+    private static List<FacettesResponse.Facette> facettes(Map<Long, Integer> nombres, Map<Long, String> noms) {
+        return nombres.entrySet().stream()
+                .map(entree -> FacettesResponse.Facette.builder()
+                        .id(entree.getKey())
+                        .libelle(noms.get(entree.getKey()))
+                        .nombre(entree.getValue())
+                        .build())
+                .sorted(Comparator.comparing(FacettesResponse.Facette::getNombre).reversed()
+                        .thenComparing(FacettesResponse.Facette::getId))
+                .toList();
+    }
+
+    private void signalerModification() {
+        version.incrementAndGet();
+        derniereModification = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,398 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monsite.ventes.gestion_ventes.config.AttenteConflit;
+import com.monsite.ventes.gestion_ventes.dto.CommandeRequest;
+import com.monsite.ventes.gestion_ventes.dto.CommandeResponse;
+import com.monsite.ventes.gestion_ventes.dto.TicketCommandeResponse;
+import com.monsite.ventes.gestion_ventes.entity.TicketCommande;
+import com.monsite.ventes.gestion_ventes.entity.TicketCommande.StatutTicket;
+import com.monsite.ventes.gestion_ventes.repository.TicketCommandeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Prise de commande asynchrone (optionnelle) : les demandes sont validées sommairement,
+ * enregistrées dans la table tickets_commande puis placées dans une file bornée.
+ * Un nombre fixe de workers vide la file par petits lots et crée les commandes d'un lot dans une même
+ * transaction, ce qui libère les threads HTTP pendant les pics de trafic.
+ */
+@Service
+public class FileCommandeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileCommandeService.class);
+
+    private static final int TENTATIVES_MAX = 4;
+
+    private final TicketCommandeRepository ticketCommandeRepository;
+    private final CommandeService commandeService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final AttenteConflit attenteConflit;
+
+    // Clients en attente du résultat d'un ticket (suivi long-polling)
+    private final Map<Long, CompletableFuture<TicketCommandeResponse>> abonnements = new ConcurrentHashMap<>();
+
+    private BlockingQueue<Long> file;
+    // Tickets en file ou en cours de traitement : la reprise périodique ne les remet pas en file une seconde fois
+    private final Set<Long> enFile = ConcurrentHashMap.newKeySet();
+    private ExecutorService workers;
+    private volatile boolean arret = false;
+
+    @Value("${commande.intake.async:false}")
+    private boolean actif;
+
+    @Value("${commande.intake.capacite:1000}")
+    private int capacite;
+
+    @Value("${commande.intake.workers:4}")
+    private int nombreWorkers;
+
+    @Value("${commande.intake.taille-lot:10}")
+    private int tailleLot;
+
+    public FileCommandeService(TicketCommandeRepository ticketCommandeRepository,
+                               CommandeService commandeService,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               AttenteConflit attenteConflit) {
+        this.ticketCommandeRepository = ticketCommandeRepository;
+        this.commandeService = commandeService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.attenteConflit = attenteConflit;
+    }
+
+    @PostConstruct
+    public void initialiser() {
+        if (!actif) {
+            return;
+        }
+
+        file = new ArrayBlockingQueue<>(capacite);
+        AtomicInteger compteur = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(nombreWorkers, r -> {
+            Thread thread = new Thread(r, "commande-worker-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < nombreWorkers; i++) {
+            workers.submit(this::boucleWorker);
+        }
+        logger.info("Prise de commande asynchrone activée ({} workers, file de {} tickets)", nombreWorkers, capacite);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        arret = true;
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Remet en file les tickets encore en attente qui n'y sont plus : ceux du dernier arrêt au démarrage,
+     * puis périodiquement ceux qui n'ont pas trouvé de place (file pleine)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${commande.intake.reprise-ms:30000}", initialDelayString = "${commande.intake.reprise-ms:30000}")
+    public void reprendreTicketsEnAttente() {
+        if (!actif || file.remainingCapacity() == 0) {
+            return;
+        }
+
+        int repris = 0;
+        for (Long ticketId : ticketCommandeRepository.findIdsByStatut(StatutTicket.EN_ATTENTE, PageRequest.of(0, capacite))) {
+            if (enFile.contains(ticketId)) {
+                continue;
+            }
+            if (!mettreEnFile(ticketId)) {
+                logger.warn("File pleine, ticket {} et suivants repris au prochain passage", ticketId);
+                break;
+            }
+            repris++;
+        }
+        if (repris > 0) {
+            logger.info("{} ticket(s) de commande en attente remis en file", repris);
+        }
+    }
+
+    private boolean mettreEnFile(Long ticketId) {
+        if (!enFile.add(ticketId)) {
+            return true;
+        }
+        if (file.offer(ticketId)) {
+            return true;
+        }
+        enFile.remove(ticketId);
+        return false;
+    }
+
+    public boolean estActif() {
+        return actif;
+    }
+
+    /**
+     * Valide sommairement la demande et la place dans la file.
+     * Lève une IllegalStateException si la file est saturée.
+     */
+    public TicketCommandeResponse soumettre(Long clientId, CommandeRequest request) {
+        if (request.getLignesCommande() == null || request.getLignesCommande().isEmpty()) {
+            throw new RuntimeException("Le panier est vide");
+        }
+        for (CommandeRequest.LigneCommandeRequest ligne : request.getLignesCommande()) {
+            if (ligne.getVendeurProduitId() == null) {
+                throw new RuntimeException("L'ID du produit est requis");
+            }
+            if (ligne.getQuantite() == null || ligne.getQuantite() <= 0) {
+                throw new RuntimeException("La quantité doit être supérieure à 0");
+            }
+        }
+        if (file.remainingCapacity() == 0) {
+            throw new IllegalStateException("Trop de commandes en cours de traitement. Veuillez réessayer dans quelques instants.");
+        }
+
+        TicketCommande ticket = new TicketCommande();
+        ticket.setClientId(clientId);
+        ticket.setRequete(serialiser(request));
+        ticket.setStatut(StatutTicket.EN_ATTENTE);
+        ticket.setDateCreation(LocalDateTime.now());
+        ticket = ticketCommandeRepository.save(ticket);
+
+        if (!mettreEnFile(ticket.getId())) {
+            ticket.setStatut(StatutTicket.ECHEC);
+            ticket.setMessageErreur("File de commandes saturée");
+            ticket.setDateTraitement(LocalDateTime.now());
+            ticketCommandeRepository.save(ticket);
+            throw new IllegalStateException("Trop de commandes en cours de traitement. Veuillez réessayer dans quelques instants.");
+        }
+
+        logger.info("Ticket de commande {} mis en file pour le client {}", ticket.getId(), clientId);
+        return toTicketResponse(ticket);
+    }
+
+    /**
+     * Retourne l'état d'un ticket du client
+     */
+    public TicketCommandeResponse getTicket(Long clientId, Long ticketId) {
+        TicketCommande ticket = ticketCommandeRepository.findById(ticketId)
+                .orElseThrow(() -> new RuntimeException("Ticket non trouvé"));
+
+        if (!ticket.getClientId().equals(clientId)) {
+            throw new RuntimeException("Accès non autorisé à ce ticket");
+        }
+
+        return toTicketResponse(ticket);
+    }
+
+    /**
+     * Attend la fin du traitement d'un ticket (long-polling) sans bloquer de thread HTTP.
+     * À l'expiration du délai, l'état du ticket est relu et renvoyé.
+     */
+    public CompletableFuture<TicketCommandeResponse> attendreTicket(Long clientId, Long ticketId, long delaiSecondes) {
+        TicketCommandeResponse courant = getTicket(clientId, ticketId);
+        if (courant.getStatut() != StatutTicket.EN_ATTENTE) {
+            return CompletableFuture.completedFuture(courant);
+        }
+
+        CompletableFuture<TicketCommandeResponse> abonnement = abonnements.computeIfAbsent(ticketId, id -> new CompletableFuture<>());
+        // Relecture une fois abonné : un ticket terminé entre la première lecture et l'abonnement n'est pas manqué
+        TicketCommandeResponse relu = getTicket(clientId, ticketId);
+        if (relu.getStatut() != StatutTicket.EN_ATTENTE) {
+            abonnement.complete(relu);
+            abonnements.remove(ticketId, abonnement);
+            return CompletableFuture.completedFuture(relu);
+        }
+
+        // Chaque client attend sa propre copie : l'expiration de l'un ne termine pas l'attente des autres
+        return abonnement.copy()
+                .completeOnTimeout(null, delaiSecondes, TimeUnit.SECONDS)
+                .thenApplyAsync(resultat -> resultat != null ? resultat : getTicket(clientId, ticketId));
+    }
+
+    private void boucleWorker() {
+        while (!arret && !Thread.currentThread().isInterrupted()) {
+            try {
+                Long premier = file.poll(1, TimeUnit.SECONDS);
+                if (premier == null) {
+                    continue;
+                }
+
+                List<Long> lot = new ArrayList<>(tailleLot);
+                lot.add(premier);
+                file.drainTo(lot, tailleLot - 1);
+
+                try {
+                    traiterLot(lot);
+                } finally {
+                    lot.forEach(enFile::remove);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Erreur inattendue dans le worker de commandes", e);
+            }
+        }
+    }
+
+    private void traiterLot(List<Long> ticketIds) {
+        List<TicketCommande> tickets = ticketCommandeRepository.findAllById(ticketIds).stream()
+                .filter(ticket -> ticket.getStatut() == StatutTicket.EN_ATTENTE)
+                .collect(Collectors.toList());
+        if (tickets.isEmpty()) {
+            return;
+        }
+        logger.debug("Traitement d'un lot de {} ticket(s) de commande", tickets.size());
+
+        // Tout le lot en une transaction ; au premier échec, il est rejoué ticket par ticket
+        if (tickets.size() == 1 || !traiterEnUneTransaction(tickets)) {
+            tickets.forEach(this::traiterSeul);
+        }
+
+        for (TicketCommande ticket : tickets) {
+            CompletableFuture<TicketCommandeResponse> abonnement = abonnements.remove(ticket.getId());
+            if (abonnement != null) {
+                abonnement.complete(toTicketResponse(ticket));
+            }
+        }
+    }
+
+    private boolean traiterEnUneTransaction(List<TicketCommande> tickets) {
+        try {
+            // Les commandes et les tickets sont écrits dans la même transaction :
+            // un ticket marqué traité a toujours sa commande, et inversement
+            transactionTemplate.executeWithoutResult(status -> {
+                for (TicketCommande ticket : tickets) {
+                    marquerTraite(ticket, commandeService.passerCommande(ticket.getClientId(), deserialiser(ticket)));
+                }
+                ticketCommandeRepository.saveAll(tickets);
+            });
+            tickets.forEach(ticket -> logger.info("Ticket {} traité : commande {} créée",
+                    ticket.getId(), ticket.getCommandeId()));
+            return true;
+        } catch (Exception e) {
+            logger.debug("Lot de {} ticket(s) annulé ({}), traitement ticket par ticket", tickets.size(), e.getMessage());
+            tickets.forEach(this::remettreEnAttente);
+            return false;
+        }
+    }
+
+    private void traiterSeul(TicketCommande ticket) {
+        try {
+            traiterTicket(ticket);
+            logger.info("Ticket {} traité : commande {} créée", ticket.getId(), ticket.getCommandeId());
+        } catch (Exception e) {
+            logger.warn("Échec du ticket {}: {}", ticket.getId(), e.getMessage());
+            ticket.setStatut(StatutTicket.ECHEC);
+            ticket.setCommandeId(null);
+            ticket.setMessageErreur(tronquer(e.getMessage()));
+            ticket.setDateTraitement(LocalDateTime.now());
+            ticketCommandeRepository.save(ticket);
+        }
+    }
+
+    private void traiterTicket(TicketCommande ticket) {
+        for (int tentative = 1; ; tentative++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    marquerTraite(ticket, commandeService.passerCommande(ticket.getClientId(), deserialiser(ticket)));
+                    ticketCommandeRepository.save(ticket);
+                });
+                return;
+            } catch (ConcurrencyFailureException e) {
+                // Conflit sur le stock avec une autre commande : la transaction entière est rejouée
+                if (tentative >= TENTATIVES_MAX) {
+                    throw e;
+                }
+                remettreEnAttente(ticket);
+                try {
+                    long attente = attenteConflit.attendre(tentative);
+                    logger.debug("Conflit sur le ticket {} (tentative {}), nouvelle tentative après {} ms",
+                            ticket.getId(), tentative, attente);
+                } catch (InterruptedException interruption) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void marquerTraite(TicketCommande ticket, CommandeResponse commande) {
+        ticket.setStatut(StatutTicket.TRAITE);
+        ticket.setCommandeId(commande.getId());
+        ticket.setDateTraitement(LocalDateTime.now());
+    }
+
+    private void remettreEnAttente(TicketCommande ticket) {
+        ticket.setStatut(StatutTicket.EN_ATTENTE);
+        ticket.setCommandeId(null);
+        ticket.setDateTraitement(null);
+    }
+
+    private String serialiser(CommandeRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Demande de commande invalide", e);
+        }
+    }
+
+    private CommandeRequest deserialiser(TicketCommande ticket) {
+        try {
+            return objectMapper.readValue(ticket.getRequete(), CommandeRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Demande de commande illisible", e);
+        }
+    }
+
+    private String tronquer(String message) {
+        if (message == null) {
+            return "Erreur inconnue";
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    private TicketCommandeResponse toTicketResponse(TicketCommande ticket) {
+        String message = switch (ticket.getStatut()) {
+            case EN_ATTENTE -> "Commande en cours de traitement";
+            case TRAITE -> "Commande créée avec succès";
+            case ECHEC -> ticket.getMessageErreur();
+        };
+
+        return TicketCommandeResponse.builder()
+                .id(ticket.getId())
+                .statut(ticket.getStatut())
+                .commandeId(ticket.getCommandeId())
+                .message(message)
+                .dateCreation(ticket.getDateCreation())
+                .dateTraitement(ticket.getDateTraitement())
+                .build();
+    }
+}
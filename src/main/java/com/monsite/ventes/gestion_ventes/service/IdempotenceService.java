@@ -0,0 +1,323 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.entity.CleIdempotence;
+import com.monsite.ventes.gestion_ventes.repository.CleIdempotenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Service de gestion des clés d'idempotence (en-tête Idempotency-Key).
+ * La clé est écrite dans la transaction de l'opération (voir ReservationIdempotence), puis complétée
+ * par la première réponse, avec une durée de vie. Les requêtes en cours servent de point de rendez-vous :
+ * un doublon concurrent attend la fin de l'original au lieu de réexécuter l'opération. Les réponses
+ * récentes sont gardées dans un cache LRU borné en taille, la base faisant foi au-delà.
+ */
+@Service
+public class IdempotenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenceService.class);
+
+    public static final String EN_TETE_CLE = "Idempotency-Key";
+    public static final String EN_TETE_REJEU = "Idempotent-Replayed";
+
+    private final CleIdempotenceRepository cleIdempotenceRepository;
+    private final ReservationIdempotence reservationIdempotence;
+    private final ObjectMapper objectMapper;
+
+    // Requêtes originales en cours, par client et par clé
+    private final Map<String, CompletableFuture<ReponseMemorisee>> enCours = new ConcurrentHashMap<>();
+
+    // Réponses récentes (LRU), bornées en nombre et en octets
+    private final LinkedHashMap<String, ReponseMemorisee> reponses = new LinkedHashMap<>(256, 0.75f, true);
+    private long octetsMemorises;
+
+    @Value("${idempotence.cache.capacite:10000}")
+    private int capaciteCache;
+
+    @Value("${idempotence.cache.octets-max:8388608}")
+    private long octetsMaxCache;
+
+    @Value("${idempotence.duree-heures:24}")
+    private long dureeHeures;
+
+    @Value("${idempotence.attente-max-secondes:30}")
+    private long attenteMaxSecondes;
+
+    public IdempotenceService(CleIdempotenceRepository cleIdempotenceRepository,
+                              ReservationIdempotence reservationIdempotence,
+                              ObjectMapper objectMapper) {
+        this.cleIdempotenceRepository = cleIdempotenceRepository;
+        this.reservationIdempotence = reservationIdempotence;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exécute l'opération une seule fois par clé d'idempotence.
+     * Sans clé, l'opération est exécutée normalement. La requête (corps ou paramètres) sert d'empreinte :
+     * une même clé présentée avec une autre requête est refusée.
+     */
+    public ResponseEntity<?> executer(Long clientId, String cle, String operation, Object requete,
+                                      Supplier<ResponseEntity<?>> action) {
+        if (cle == null || cle.isBlank()) {
+            return action.get();
+        }
+        if (cle.length() > 100) {
+            return ResponseEntity.badRequest().body(MessageResponse.builder()
+                    .success(false)
+                    .message("Clé d'idempotence trop longue (100 caractères maximum)")
+                    .build());
+        }
+
+        String cleCache = clientId + ":" + cle;
+        String empreinte = empreinte(operation, requete);
+
+        while (true) {
+            ReponseMemorisee connue = lireCache(cleCache);
+            if (connue != null) {
+                return rejouer(connue, operation, empreinte);
+            }
+
+            CompletableFuture<ReponseMemorisee> original = new CompletableFuture<>();
+            CompletableFuture<ReponseMemorisee> existante = enCours.putIfAbsent(cleCache, original);
+
+            if (existante != null) {
+                ReponseMemorisee reponse = attendre(existante);
+                if (reponse == null || reponse.estExpiree()) {
+                    // L'original a échoué ou a expiré : on retente de prendre la main
+                    continue;
+                }
+                return rejouer(reponse, operation, empreinte);
+            }
+
+            try {
+                return executerOriginal(clientId, cle, cleCache, operation, empreinte, original, action);
+            } finally {
+                enCours.remove(cleCache, original);
+            }
+        }
+    }
+
+    /**
+     * Purge les clés expirées en mémoire et en base
+     */
+    @Scheduled(fixedDelayString = "${idempotence.purge-interval-ms:600000}")
+    public void purgerClesExpirees() {
+        synchronized (reponses) {
+            reponses.entrySet().removeIf(e -> {
+                if (!e.getValue().estExpiree()) {
+                    return false;
+                }
+                octetsMemorises -= e.getValue().taille();
+                return true;
+            });
+        }
+
+        int supprimees = cleIdempotenceRepository.deleteExpirees(LocalDateTime.now());
+        if (supprimees > 0) {
+            logger.info("{} clé(s) d'idempotence expirée(s) supprimée(s)", supprimees);
+        }
+    }
+
+    private ResponseEntity<?> executerOriginal(Long clientId, String cle, String cleCache, String operation,
+                                               String empreinte, CompletableFuture<ReponseMemorisee> original,
+                                               Supplier<ResponseEntity<?>> action) {
+        try {
+            // La clé a peut-être été traitée avant un redémarrage ou par une autre instance
+            CleIdempotence connue = cleIdempotenceRepository.findByClientIdAndCle(clientId, cle)
+                    .filter(c -> c.getDateExpiration().isAfter(LocalDateTime.now()))
+                    .orElse(null);
+            if (connue != null) {
+                ReponseMemorisee reponse = ReponseMemorisee.depuis(connue);
+                original.complete(reponse);
+                return rejouer(reponse, operation, empreinte);
+            }
+
+            CleIdempotence entite = new CleIdempotence();
+            entite.setClientId(clientId);
+            entite.setCle(cle);
+            entite.setOperation(operation);
+            entite.setEmpreinte(empreinte);
+            entite.setStatutHttp(0);
+            entite.setDateCreation(LocalDateTime.now());
+            entite.setDateExpiration(LocalDateTime.now().plusHours(dureeHeures));
+
+            ResponseEntity<?> resultat;
+            ReservationIdempotence.Etat reservation;
+            reservationIdempotence.ouvrir(entite);
+            try {
+                resultat = action.get();
+            } finally {
+                reservation = reservationIdempotence.fermer();
+            }
+
+            if (reservation == ReservationIdempotence.Etat.CONFLIT) {
+                // Une autre instance a réservé la même clé : son opération l'emporte, la nôtre a été annulée
+                logger.warn("Clé d'idempotence {} déjà réservée pour le client {}", cle, clientId);
+                original.complete(null);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(MessageResponse.builder()
+                        .success(false)
+                        .message("Une requête avec cette clé d'idempotence a déjà été traitée ou est en cours")
+                        .build());
+            }
+            boolean reservee = reservation == ReservationIdempotence.Etat.ECRITE;
+
+            if (resultat.getStatusCode().is5xxServerError()) {
+                // Les erreurs serveur ne sont pas mémorisées : un nouvel essai doit être possible
+                if (reservee) {
+                    cleIdempotenceRepository.delete(entite);
+                }
+                original.complete(null);
+                return resultat;
+            }
+
+            ReponseMemorisee reponse = memoriser(entite, reservee, resultat);
+            garderEnCache(cleCache, reponse);
+            original.complete(reponse);
+            return resultat;
+        } catch (RuntimeException e) {
+            original.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private ReponseMemorisee memoriser(CleIdempotence entite, boolean reservee, ResponseEntity<?> resultat) {
+        try {
+            entite.setReponse(objectMapper.writeValueAsString(resultat.getBody()));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Impossible de sérialiser la réponse idempotente", e);
+        }
+        entite.setStatutHttp(resultat.getStatusCode().value());
+
+        // Clé réservée dans la transaction de l'opération : seule la réponse reste à enregistrer.
+        // Sinon (opération sans écriture ou annulée), la clé est écrite maintenant avec sa réponse.
+        if (!reservee) {
+            entite.setId(null);
+        }
+        try {
+            cleIdempotenceRepository.save(entite);
+        } catch (DataIntegrityViolationException e) {
+            // Une autre instance a mémorisé la même clé entre-temps
+            logger.warn("Clé d'idempotence {} déjà mémorisée pour le client {}", entite.getCle(), entite.getClientId());
+        }
+
+        return ReponseMemorisee.depuis(entite);
+    }
+
+    private ReponseMemorisee lireCache(String cleCache) {
+        synchronized (reponses) {
+            ReponseMemorisee reponse = reponses.get(cleCache);
+            return reponse != null && !reponse.estExpiree() ? reponse : null;
+        }
+    }
+
+    private void garderEnCache(String cleCache, ReponseMemorisee reponse) {
+        synchronized (reponses) {
+            ReponseMemorisee precedente = reponses.put(cleCache, reponse);
+            if (precedente != null) {
+                octetsMemorises -= precedente.taille();
+            }
+            octetsMemorises += reponse.taille();
+
+            Iterator<ReponseMemorisee> anciennes = reponses.values().iterator();
+            while (anciennes.hasNext() && (reponses.size() > capaciteCache || octetsMemorises > octetsMaxCache)) {
+                octetsMemorises -= anciennes.next().taille();
+                anciennes.remove();
+            }
+        }
+    }
+
+    private String empreinte(String operation, Object requete) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(operation.getBytes(StandardCharsets.UTF_8));
+            sha256.update(objectMapper.writeValueAsBytes(requete));
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Impossible de calculer l'empreinte de la requête", e);
+        }
+    }
+
+    private ReponseMemorisee attendre(CompletableFuture<ReponseMemorisee> future) {
+        try {
+            return future.get(attenteMaxSecondes, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Attente de la requête originale interrompue");
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw new RuntimeException("La requête originale est toujours en cours de traitement");
+        }
+    }
+
+    private ResponseEntity<?> rejouer(ReponseMemorisee reponse, String operation, String empreinte) {
+        if (!reponse.operation().equals(operation)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(MessageResponse.builder()
+                    .success(false)
+                    .message("Cette clé d'idempotence a déjà été utilisée pour une autre opération")
+                    .build());
+        }
+        if (reponse.empreinte() != null && !reponse.empreinte().equals(empreinte)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(MessageResponse.builder()
+                    .success(false)
+                    .message("Cette clé d'idempotence a déjà été utilisée pour une requête différente")
+                    .build());
+        }
+        if (reponse.statutHttp() == 0) {
+            // Opération validée mais réponse jamais enregistrée (arrêt entre les deux)
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(MessageResponse.builder()
+                    .success(false)
+                    .message("Cette requête a déjà été traitée, sa réponse n'est plus disponible")
+                    .build());
+        }
+
+        logger.info("Rejeu idempotent de l'opération {}", operation);
+        return ResponseEntity.status(reponse.statutHttp())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(EN_TETE_REJEU, "true")
+                .body(reponse.corps());
+    }
+
+    private record ReponseMemorisee(String operation, String empreinte, int statutHttp, String corps,
+                                    LocalDateTime dateExpiration) {
+
+        static ReponseMemorisee depuis(CleIdempotence cle) {
+            return new ReponseMemorisee(cle.getOperation(), cle.getEmpreinte(), cle.getStatutHttp(),
+                    cle.getReponse(), cle.getDateExpiration());
+        }
+
+        boolean estExpiree() {
+            return dateExpiration.isBefore(LocalDateTime.now());
+        }
+
+        long taille() {
+            // Estimation de l'empreinte mémoire : le corps domine
+            return 128L + (corps != null ? corps.length() * 2L : 0);
+        }
+    }
+}
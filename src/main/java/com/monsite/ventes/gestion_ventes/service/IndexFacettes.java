@@ -0,0 +1,280 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index de facettes en mémoire : chaque offre reçoit un numéro compact, et chaque valeur de facette
+ * (catégorie, vendeur, tranche de prix, en stock) est un bitmap de ces numéros. Un filtre est un OU
+ * des bitmaps d'une même facette et un ET entre facettes ; un comptage est la cardinalité d'une intersection.
+ * Lectures concurrentes, écritures sérialisées.
+ */
+class IndexFacettes {
+
+    private final Map<Long, Integer> numeros = new HashMap<>();
+    private final List<Offre> offres = new ArrayList<>();
+    private final Deque<Integer> numerosLibres = new ArrayDeque<>();
+
+    private final BitSet actives = new BitSet();
+    private final BitSet enStock = new BitSet();
+    private final Map<Long, BitSet> parCategorie = new HashMap<>();
+    private final Map<Long, BitSet> parVendeur = new HashMap<>();
+    private final Map<Long, BitSet> parProduit = new HashMap<>();
+    private final BitSet[] parTranche;
+
+    private final Map<Long, String> nomsCategories = new HashMap<>();
+    private final Map<Long, String> nomsVendeurs = new HashMap<>();
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    IndexFacettes(int nombreTranches) {
+        this.parTranche = new BitSet[nombreTranches];
+        for (int i = 0; i < nombreTranches; i++) {
+            parTranche[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Indexe une offre (ou remplace sa version précédente) ; tranche vaut -1 sans prix
+     */
+    void indexer(Offre offre, String categorieNom, String vendeurNom, boolean disponible) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(offre.id());
+            Integer libre = numerosLibres.poll();
+            int numero = libre != null ? libre : offres.size();
+            if (libre != null) {
+                offres.set(numero, offre);
+            } else {
+                offres.add(offre);
+            }
+            numeros.put(offre.id(), numero);
+
+            actives.set(numero);
+            enStock.set(numero, disponible);
+            parProduit.computeIfAbsent(offre.produitId(), id -> new BitSet()).set(numero);
+            parVendeur.computeIfAbsent(offre.vendeurId(), id -> new BitSet()).set(numero);
+            nomsVendeurs.put(offre.vendeurId(), vendeurNom);
+            if (offre.categorieId() != null) {
+                parCategorie.computeIfAbsent(offre.categorieId(), id -> new BitSet()).set(numero);
+                nomsCategories.put(offre.categorieId(), categorieNom);
+            }
+            if (offre.tranche() >= 0) {
+                parTranche[offre.tranche()].set(numero);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    void retirer(Long offreId) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(offreId);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Met à jour la disponibilité de toutes les offres d'un produit
+     */
+    void definirStock(Long produitId, boolean disponible) {
+        verrou.writeLock().lock();
+        try {
+            BitSet offresProduit = parProduit.get(produitId);
+            if (offresProduit == null) {
+                return;
+            }
+            if (disponible) {
+                enStock.or(offresProduit);
+            } else {
+                enStock.andNot(offresProduit);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Identifiants des offres indexées d'un produit, d'un vendeur ou d'une catégorie
+     */
+    List<Long> offresDe(Collection<Long> produitIds, Collection<Long> vendeurIds, Collection<Long> categorieIds) {
+        verrou.readLock().lock();
+        try {
+            BitSet concernees = new BitSet();
+            produitIds.forEach(id -> ou(concernees, parProduit.get(id)));
+            vendeurIds.forEach(id -> ou(concernees, parVendeur.get(id)));
+            categorieIds.forEach(id -> ou(concernees, parCategorie.get(id)));
+            List<Long> ids = new ArrayList<>(concernees.cardinality());
+            concernees.stream().forEach(numero -> ids.add(offres.get(numero).id()));
+            return ids;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    int taille() {
+        verrou.readLock().lock();
+        try {
+            return numeros.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nombre d'offres retenues par le filtre, et pour chaque valeur de facette le nombre d'offres
+     * qu'on obtiendrait en la sélectionnant : le filtre de la facette elle-même n'y est pas appliqué.
+     * Un filtre null ou vide ne restreint pas sa facette.
+     */
+    Comptage compter(Collection<Long> categorieIds, Collection<Long> vendeurIds,
+                     Collection<Integer> tranches, boolean enStockSeulement) {
+        verrou.readLock().lock();
+        try {
+            BitSet filtreCategories = union(parCategorie, categorieIds);
+            BitSet filtreVendeurs = union(parVendeur, vendeurIds);
+            BitSet filtreTranches = unionTranches(tranches);
+            BitSet filtreStock = enStockSeulement ? enStock : null;
+
+            Comptage comptage = new Comptage();
+            comptage.total = intersection(filtreCategories, filtreVendeurs, filtreTranches, filtreStock).cardinality();
+            comptage.categories = compterValeurs(parCategorie,
+                    intersection(null, filtreVendeurs, filtreTranches, filtreStock));
+            comptage.vendeurs = compterValeurs(parVendeur,
+                    intersection(filtreCategories, null, filtreTranches, filtreStock));
+
+            BitSet horsTranches = intersection(filtreCategories, filtreVendeurs, null, filtreStock);
+            comptage.tranches = new int[parTranche.length];
+            for (int i = 0; i < parTranche.length; i++) {
+                comptage.tranches[i] = cardinaliteCommune(parTranche[i], horsTranches);
+            }
+            comptage.enStock = cardinaliteCommune(enStock,
+                    intersection(filtreCategories, filtreVendeurs, filtreTranches, null));
+            comptage.nomsCategories = new HashMap<>();
+            comptage.categories.keySet().forEach(id -> comptage.nomsCategories.put(id, nomsCategories.get(id)));
+            comptage.nomsVendeurs = new HashMap<>();
+            comptage.vendeurs.keySet().forEach(id -> comptage.nomsVendeurs.put(id, nomsVendeurs.get(id)));
+            return comptage;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private BitSet intersection(BitSet... filtres) {
+        BitSet resultat = (BitSet) actives.clone();
+        for (BitSet filtre : filtres) {
+            if (filtre != null) {
+                resultat.and(filtre);
+            }
+        }
+        return resultat;
+    }
+
+    private static BitSet union(Map<Long, BitSet> bitmaps, Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return null;
+        }
+        BitSet resultat = new BitSet();
+        ids.forEach(id -> ou(resultat, bitmaps.get(id)));
+        return resultat;
+    }
+
+    private BitSet unionTranches(Collection<Integer> tranches) {
+        if (tranches == null || tranches.isEmpty()) {
+            return null;
+        }
+        BitSet resultat = new BitSet();
+        for (Integer tranche : tranches) {
+            if (tranche != null && tranche >= 0 && tranche < parTranche.length) {
+                resultat.or(parTranche[tranche]);
+            }
+        }
+        return resultat;
+    }
+
+    private static Map<Long, Integer> compterValeurs(Map<Long, BitSet> bitmaps, BitSet base) {
+        Map<Long, Integer> nombres = new LinkedHashMap<>();
+        bitmaps.forEach((id, bitmap) -> {
+            int nombre = cardinaliteCommune(bitmap, base);
+            if (nombre > 0) {
+                nombres.put(id, nombre);
+            }
+        });
+        return nombres;
+    }
+
+    // Sans copie : parcourt les bits de a (sur toutes les valeurs d'une facette, chaque offre une seule fois)
+    private static int cardinaliteCommune(BitSet a, BitSet b) {
+        int nombre = 0;
+        for (int numero = a.nextSetBit(0); numero >= 0; numero = a.nextSetBit(numero + 1)) {
+            if (b.get(numero)) {
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
+    private static void ou(BitSet cible, BitSet source) {
+        if (source != null) {
+            cible.or(source);
+        }
+    }
+
+    private void retirerSansVerrou(Long offreId) {
+        Integer numero = numeros.remove(offreId);
+        if (numero == null) {
+            return;
+        }
+        Offre offre = offres.get(numero);
+        actives.clear(numero);
+        enStock.clear(numero);
+        effacer(parProduit, offre.produitId(), numero);
+        effacer(parVendeur, offre.vendeurId(), numero);
+        if (offre.categorieId() != null) {
+            effacer(parCategorie, offre.categorieId(), numero);
+        }
+        if (offre.tranche() >= 0) {
+            parTranche[offre.tranche()].clear(numero);
+        }
+        offres.set(numero, null);
+        numerosLibres.push(numero);
+    }
+
+    private static void effacer(Map<Long, BitSet> bitmaps, Long id, int numero) {
+        BitSet bitmap = bitmaps.get(id);
+        if (bitmap != null) {
+            bitmap.clear(numero);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Attributs d'une offre indexée
+     */
+    record Offre(Long id, Long produitId, Long vendeurId, Long categorieId, int tranche) {
+    }
+
+    /**
+     * Résultat d'un comptage, figé hors verrou
+     */
+    static class Comptage {
+        int total;
+        Map<Long, Integer> categories;
+        Map<Long, Integer> vendeurs;
+        int[] tranches;
+        int enStock;
+        Map<Long, String> nomsCategories;
+        Map<Long, String> nomsVendeurs;
+    }
+}
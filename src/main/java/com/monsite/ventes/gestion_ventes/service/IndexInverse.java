@@ -0,0 +1,205 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé en mémoire : pour chaque terme, les documents qui le contiennent avec un poids
+ * (occurrences pondérées par champ). Le classement suit BM25 ; le dictionnaire est trié pour
+ * répondre aux requêtes par préfixe. Lectures concurrentes, écritures sérialisées.
+ */
+class IndexInverse {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Un terme complété depuis un préfixe compte un peu moins qu'un terme saisi en entier
+    private static final double POIDS_PREFIXE = 0.8;
+    private static final int EXPANSIONS_PREFIXE_MAX = 64;
+
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private final Map<Long, Double> longueurs = new HashMap<>();
+    private double longueurTotale;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    /**
+     * Termes pondérés d'un document en construction
+     */
+    static Map<String, Float> termes() {
+        return new HashMap<>();
+    }
+
+    static void ajouterChamp(Map<String, Float> termes, String texte, float poids) {
+        for (String terme : AnalyseurTexte.analyser(texte)) {
+            termes.merge(terme, poids, Float::sum);
+        }
+    }
+
+    /**
+     * Indexe un document (ou remplace sa version précédente)
+     */
+    void indexer(Long id, Map<String, Float> termes) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(id);
+            if (termes.isEmpty()) {
+                return;
+            }
+            documents.put(id, termes);
+            double longueur = 0;
+            for (Map.Entry<String, Float> entree : termes.entrySet()) {
+                postings.computeIfAbsent(entree.getKey(), t -> new HashMap<>()).put(id, entree.getValue());
+                longueur += entree.getValue();
+            }
+            longueurs.put(id, longueur);
+            longueurTotale += longueur;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    void retirer(Long id) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(id);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    void vider() {
+        verrou.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            longueurs.clear();
+            longueurTotale = 0;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    int taille() {
+        verrou.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documents contenant tous les termes de la requête, du plus pertinent au moins pertinent.
+     * Avec dernierPrefixe, le dernier mot est complété (saisie en cours).
+     */
+    List<Long> rechercher(String requete, boolean dernierPrefixe, int limite) {
+        List<String> mots = AnalyseurTexte.decouper(requete);
+        String prefixe = dernierPrefixe && !mots.isEmpty() ? mots.get(mots.size() - 1) : null;
+        List<String> termes = AnalyseurTexte.analyser(prefixe != null
+                ? String.join(" ", mots.subList(0, mots.size() - 1))
+                : requete);
+        if (termes.isEmpty() && prefixe == null) {
+            return List.of();
+        }
+
+        verrou.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (String terme : termes) {
+                scores = intersecter(scores, scoresTerme(List.of(terme), 1.0));
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            if (prefixe != null) {
+                scores = intersecter(scores, scoresTerme(completer(prefixe), POIDS_PREFIXE));
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limite)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private Collection<String> completer(String prefixe) {
+        List<String> termes = new ArrayList<>();
+        // Le préfixe lui-même est pris comme un terme complet (racinisé) s'il existe
+        String racine = AnalyseurTexte.raciniser(prefixe);
+        if (postings.containsKey(racine)) {
+            termes.add(racine);
+        }
+        for (String terme : postings.subMap(prefixe, true, prefixe + Character.MAX_VALUE, true).keySet()) {
+            if (termes.size() >= EXPANSIONS_PREFIXE_MAX) {
+                break;
+            }
+            if (!terme.equals(racine)) {
+                termes.add(terme);
+            }
+        }
+        return termes;
+    }
+
+    /**
+     * Score BM25 de chaque document pour un mot de la requête (le meilleur de ses variantes)
+     */
+    private Map<Long, Double> scoresTerme(Collection<String> variantes, double facteur) {
+        Map<Long, Double> scores = new HashMap<>();
+        int nombreDocuments = documents.size();
+        double longueurMoyenne = nombreDocuments > 0 ? longueurTotale / nombreDocuments : 1;
+
+        for (String variante : variantes) {
+            Map<Long, Float> liste = postings.get(variante);
+            if (liste == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (nombreDocuments - liste.size() + 0.5) / (liste.size() + 0.5));
+            liste.forEach((id, poids) -> {
+                double longueur = longueurs.get(id);
+                double score = facteur * idf * (poids * (K1 + 1))
+                        / (poids + K1 * (1 - B + B * longueur / longueurMoyenne));
+                scores.merge(id, score, Math::max);
+            });
+        }
+        return scores;
+    }
+
+    private Map<Long, Double> intersecter(Map<Long, Double> scores, Map<Long, Double> scoresTerme) {
+        if (scores == null) {
+            return scoresTerme;
+        }
+        scores.keySet().retainAll(scoresTerme.keySet());
+        scores.replaceAll((id, score) -> score + scoresTerme.get(id));
+        return scores;
+    }
+
+    private void retirerSansVerrou(Long id) {
+        Map<String, Float> anciens = documents.remove(id);
+        if (anciens == null) {
+            return;
+        }
+        for (String terme : anciens.keySet()) {
+            Map<Long, Float> liste = postings.get(terme);
+            if (liste != null) {
+                liste.remove(id);
+                if (liste.isEmpty()) {
+                    postings.remove(terme);
+                }
+            }
+        }
+        longueurTotale -= longueurs.remove(id);
+    }
+}
@@ -0,0 +1,98 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monsite.ventes.gestion_ventes.dto.VersionRessource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Instantanés des réponses publiques les plus demandées (page d'accueil du catalogue, catégories,
+ * produits vedettes) : le JSON est sérialisé et compressé une seule fois par version de la ressource,
+ * puis servi tel quel depuis la mémoire. Les instantanés du catalogue contiennent le stock et suivent
+ * donc aussi ses mouvements : le rendu est refait après les ventes, d'où une compression rapide.
+ * Pendant qu'une nouvelle version est rendue, les autres requêtes reçoivent l'instantané précédent
+ * avec ses propres validateurs.
+ */
+@Service
+public class InstantanesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstantanesService.class);
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Instantane> instantanes = new ConcurrentHashMap<>();
+    private final Set<String> enConstruction = ConcurrentHashMap.newKeySet();
+
+    public InstantanesService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Instantané de la ressource pour cette version, rendu si absent ou d'une version antérieure.
+     * La version doit être lue avant les données, comme pour les réponses conditionnelles.
+     */
+    public Instantane lire(String nom, VersionRessource version, Supplier<?> corps) {
+        Instantane courant = instantanes.get(nom);
+        if (courant != null && courant.version().etag().equals(version.etag())) {
+            return courant;
+        }
+        // Un seul rendu à la fois par ressource : les autres servent l'ancienne version en attendant
+        if (!enConstruction.add(nom)) {
+            if (courant != null) {
+                return courant;
+            }
+            return rendre(version, corps);
+        }
+        try {
+            Instantane rendu = rendre(version, corps);
+            instantanes.put(nom, rendu);
+            return rendu;
+        } finally {
+            enConstruction.remove(nom);
+        }
+    }
+
+    private Instantane rendre(VersionRessource version, Supplier<?> corps) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(corps.get());
+            Instantane instantane = new Instantane(version, json, gzip(json));
+            logger.debug("Instantané {} rendu : {} octets, {} compressés", version.etag(),
+                    json.length, instantane.gzip().length);
+            return instantane;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Erreur lors de la sérialisation de l'instantané: " + e.getMessage());
+        }
+    }
+
+    private static byte[] gzip(byte[] donnees) {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(donnees.length / 4 + 64);
+        // Niveau rapide : une nouvelle version arrive à chaque mouvement de stock
+        try (GZIPOutputStream gzip = new GZIPOutputStream(sortie) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            gzip.write(donnees);
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur lors de la compression de l'instantané: " + e.getMessage());
+        }
+        return sortie.toByteArray();
+    }
+
+    /**
+     * Réponse figée : validateurs, JSON brut et sa version gzip
+     */
+    public record Instantane(VersionRessource version, byte[] json, byte[] gzip) {
+    }
+}
@@ -0,0 +1,529 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.entity.MouvementStock;
+import com.monsite.ventes.gestion_ventes.entity.MouvementStock.MotifMouvement;
+import com.monsite.ventes.gestion_ventes.entity.Produit;
+import com.monsite.ventes.gestion_ventes.repository.MouvementStockRepository;
+import com.monsite.ventes.gestion_ventes.repository.ProduitRepository;
+import com.monsite.ventes.gestion_ventes.service.AbonneCatalogue.Portee;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Point d'entrée unique pour les mouvements de stock.
+ * Les produits ordinaires sont décrémentés directement sur la ligne produits (verrou optimiste).
+ * Les produits marqués « stock chaud » ont leur stock tenu en mémoire dans un compteur segmenté :
+ * chaque vente est un CAS sur une cellule et une insertion dans le journal mouvements_stock,
+ * sans écriture sur la ligne produits. La consolidation périodique reporte le journal sur Produit.quantite.
+ * Invariant : compteur = quantite + mouvements non consolidés - ventes en cours de transaction.
+ */
+@Service
+public class InventaireService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventaireService.class);
+
+    // Écart entre deux cellules du compteur (8 longs = 64 octets) pour éviter le faux partage
+    private static final int PAS_CELLULE = 8;
+
+    private static final int TAILLE_TRANCHE_STOCKS = 1000;
+
+    private final ProduitRepository produitRepository;
+    private final MouvementStockRepository mouvementStockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<AbonneCatalogue> abonnes;
+
+    // Compteurs des produits en stock chaud
+    private final Map<Long, StockSegmente> compteurs = new ConcurrentHashMap<>();
+
+    // Nombre de modifications du stock depuis le démarrage (validateurs HTTP du catalogue), segmenté comme les compteurs
+    private final LongAdder modificationsStock = new LongAdder();
+    private long modificationsVues;
+    private long derniereModificationStock = System.currentTimeMillis();
+
+    // Sérialise les reports du journal (consolidation, désactivation) au sein de l'instance
+    private final ReentrantLock verrouConsolidation = new ReentrantLock();
+
+    @Value("${inventaire.stock-chaud.actif:false}")
+    private boolean modeActif;
+
+    @Value("${inventaire.stock-chaud.segments:16}")
+    private int segments;
+
+    @Value("${inventaire.consolidation.taille-lot:1000}")
+    private int tailleLotConsolidation;
+
+    public InventaireService(ProduitRepository produitRepository,
+                             MouvementStockRepository mouvementStockRepository,
+                             PlatformTransactionManager transactionManager,
+                             ObjectProvider<AbonneCatalogue> abonnes) {
+        this.produitRepository = produitRepository;
+        this.mouvementStockRepository = mouvementStockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.abonnes = abonnes;
+    }
+
+    /**
+     * Reconstruit les compteurs à partir de la quantité consolidée et du journal non encore reporté
+     */
+    @PostConstruct
+    public void restaurerCompteurs() {
+        if (!modeActif) {
+            return;
+        }
+
+        verrouConsolidation.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Produit produit : produitRepository.findByStockChaudTrue()) {
+                    long stock = produit.getQuantite() + mouvementStockRepository.sommeNonReconciliee(produit.getId());
+                    compteurs.put(produit.getId(), new StockSegmente(segments, stock));
+                }
+            });
+        } finally {
+            verrouConsolidation.unlock();
+        }
+
+        if (!compteurs.isEmpty()) {
+            logger.info("{} compteur(s) de stock chaud restauré(s) depuis le journal", compteurs.size());
+        }
+    }
+
+    public boolean estChaud(Long produitId) {
+        return compteurs.containsKey(produitId);
+    }
+
+    /**
+     * Stock vendable d'un produit
+     */
+    public int getStockDisponible(Produit produit) {
+        StockSegmente compteur = compteurs.get(produit.getId());
+        if (compteur == null) {
+            return produit.getQuantite();
+        }
+        return (int) Math.max(0, compteur.total());
+    }
+
+    /**
+     * Stock vendable d'un produit dont la quantité en base est déjà connue (copie en mémoire)
+     */
+    public int getStockDisponible(Long produitId, int quantiteConnue) {
+        StockSegmente compteur = compteurs.get(produitId);
+        if (compteur == null) {
+            return quantiteConnue;
+        }
+        return (int) Math.max(0, compteur.total());
+    }
+
+    /**
+     * Signale une modification du stock, y compris faite hors de ce service (mise à jour groupée en JPQL).
+     * Le signal est répété après le commit pour qu'une lecture pendant la transaction ne garde pas l'ancien état ;
+     * les abonnés du catalogue sont prévenus produit par produit après le commit.
+     */
+    public void signalerModificationStock(Collection<Long> produitIds) {
+        ApresCommit.maintenantEtApresCommit(modificationsStock::increment);
+        ApresCommit.executer(() -> prevenirAbonnes(produitIds));
+    }
+
+    /**
+     * Stock vendable par produit (quantité en base, ou compteur pour les produits chauds)
+     */
+    public Map<Long, Integer> getStocksDisponibles(Collection<Long> produitIds) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        List<Long> ids = new ArrayList<>(new HashSet<>(produitIds));
+        for (int debut = 0; debut < ids.size(); debut += TAILLE_TRANCHE_STOCKS) {
+            List<Long> tranche = ids.subList(debut, Math.min(debut + TAILLE_TRANCHE_STOCKS, ids.size()));
+            for (Object[] ligne : produitRepository.findStocksByIds(tranche)) {
+                Long produitId = (Long) ligne[0];
+                int quantite = ligne[1] != null ? (Integer) ligne[1] : 0;
+                stocks.put(produitId, (Boolean) ligne[2] ? getStockDisponible(produitId, quantite) : quantite);
+            }
+        }
+        return stocks;
+    }
+
+    private void prevenirAbonnes(Collection<Long> produitIds) {
+        abonnes.orderedStream().forEach(abonne ->
+                produitIds.forEach(produitId -> abonne.catalogueModifie(Portee.STOCK, produitId)));
+    }
+
+    public long getVersionStock() {
+        return modificationsStock.sum();
+    }
+
+    /**
+     * Date (ms) à laquelle une modification du stock a été observée pour la dernière fois
+     */
+    public synchronized long getDerniereModificationStock() {
+        long modifications = modificationsStock.sum();
+        if (modifications != modificationsVues) {
+            modificationsVues = modifications;
+            derniereModificationStock = System.currentTimeMillis();
+        }
+        return derniereModificationStock;
+    }
+
+    /**
+     * Retire du stock une quantité vendue. Pour un produit chaud, le retrait est annulé
+     * si la transaction n'est pas validée.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void retirer(Produit produit, int quantite) {
+        signalerModificationStock(List.of(produit.getId()));
+        StockSegmente compteur = compteurs.get(produit.getId());
+        if (compteur == null) {
+            produit.setQuantite(produit.getQuantite() - quantite);
+            return;
+        }
+
+        if (!compteur.essayerRetirer(quantite)) {
+            throw new RuntimeException("Stock insuffisant pour le produit '" + produit.getNom() + "'");
+        }
+        journaliser(produit.getId(), -quantite, MotifMouvement.VENTE);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Le stock chaud a été désactivé pendant la vente : elle est rejouée sur la quantité en base
+                if (compteurs.get(produit.getId()) != compteur) {
+                    throw new OptimisticLockingFailureException(
+                            "Mode de stock modifié pendant la vente du produit " + produit.getId());
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    compteur.ajouter(quantite);
+                }
+            }
+        });
+    }
+
+    /**
+     * Remet en stock une quantité (annulation). Pour un produit chaud, le compteur
+     * n'est crédité qu'après validation de la transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restituer(Produit produit, int quantite) {
+        signalerModificationStock(List.of(produit.getId()));
+        StockSegmente compteur = compteurs.get(produit.getId());
+        if (compteur == null) {
+            produit.setQuantite(produit.getQuantite() + quantite);
+            return;
+        }
+
+        journaliser(produit.getId(), quantite, MotifMouvement.RESTITUTION);
+        crediterApresCommit(compteur, quantite);
+    }
+
+    /**
+     * Remet en stock des produits chauds en lot : [produitId -> quantite]
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restituerProduitsChauds(Map<Long, Long> quantitesParProduit) {
+        signalerModificationStock(List.copyOf(quantitesParProduit.keySet()));
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<MouvementStock> mouvements = quantitesParProduit.entrySet().stream()
+                .map(e -> nouveauMouvement(e.getKey(), e.getValue().intValue(), MotifMouvement.RESTITUTION, maintenant))
+                .collect(Collectors.toList());
+        mouvementStockRepository.saveAll(mouvements);
+
+        quantitesParProduit.forEach((produitId, quantite) -> {
+            StockSegmente compteur = compteurs.get(produitId);
+            if (compteur != null) {
+                crediterApresCommit(compteur, quantite);
+            }
+        });
+    }
+
+    /**
+     * Fixe le stock d'un produit (saisie administrateur). Pour un produit chaud,
+     * l'écart avec le stock connu est enregistré comme ajustement dans le journal.
+     */
+    @Transactional
+    public void definirStock(Produit produit, int nouvelleQuantite) {
+        signalerModificationStock(List.of(produit.getId()));
+        StockSegmente compteur = compteurs.get(produit.getId());
+        if (compteur == null) {
+            produit.setQuantite(nouvelleQuantite);
+            return;
+        }
+
+        long stockConnu = produitRepository.findQuantiteById(produit.getId())
+                + mouvementStockRepository.sommeNonReconciliee(produit.getId());
+        int ecart = (int) (nouvelleQuantite - stockConnu);
+        if (ecart != 0) {
+            journaliser(produit.getId(), ecart, MotifMouvement.AJUSTEMENT);
+            crediterApresCommit(compteur, ecart);
+        }
+    }
+
+    /**
+     * Active ou désactive le stock chaud d'un produit.
+     * La ligne produit est verrouillée et sa version incrémentée : une vente en cours sur le stock
+     * en base échoue à l'écriture du produit, une vente en cours sur le compteur échoue avant le commit
+     * si ce compteur a été retiré ; toutes deux sont rejouées (@ReessaiSurConflit) sur le nouveau mode.
+     * Une vente validée juste après la désactivation reste journalisée et est reportée par la consolidation.
+     */
+    public MessageResponse changerModeStock(Long produitId, boolean chaud) {
+        if (chaud && !modeActif) {
+            throw new RuntimeException("Le mode stock chaud est désactivé (inventaire.stock-chaud.actif)");
+        }
+
+        verrouConsolidation.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Produit produit = produitRepository.findByIdForUpdate(produitId)
+                        .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
+                signalerModificationStock(List.of(produitId));
+
+                if (chaud) {
+                    activer(produit);
+                } else {
+                    desactiver(produit);
+                }
+            });
+        } finally {
+            verrouConsolidation.unlock();
+        }
+
+        logger.info("Stock chaud {} pour le produit {}", chaud ? "activé" : "désactivé", produitId);
+        return MessageResponse.builder()
+                .success(true)
+                .message(chaud ? "Stock chaud activé pour ce produit" : "Stock chaud désactivé pour ce produit")
+                .build();
+    }
+
+    /**
+     * Reporte le journal des mouvements sur Produit.quantite (une mise à jour par produit et par lot)
+     */
+    @Scheduled(fixedDelayString = "${inventaire.consolidation.intervalle-ms:1000}")
+    public void consolider() {
+        verrouConsolidation.lock();
+        try {
+            Integer reportes;
+            do {
+                reportes = transactionTemplate.execute(status -> consoliderLot());
+            } while (reportes != null && reportes == tailleLotConsolidation);
+        } catch (Exception e) {
+            logger.warn("Échec de la consolidation du stock: {}", e.getMessage());
+        } finally {
+            verrouConsolidation.unlock();
+        }
+    }
+
+    private int consoliderLot() {
+        List<MouvementStock> mouvements = mouvementStockRepository.findByReconcilieFalseOrderByIdAsc(
+                PageRequest.of(0, tailleLotConsolidation));
+        if (mouvements.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Integer> ecarts = new HashMap<>();
+        for (MouvementStock mouvement : mouvements) {
+            ecarts.merge(mouvement.getProduitId(), mouvement.getQuantite(), Integer::sum);
+        }
+
+        ecarts.forEach((produitId, ecart) -> {
+            if (ecart != 0) {
+                produitRepository.ajouterQuantite(produitId, ecart);
+            }
+        });
+        signalerModificationStock(List.copyOf(ecarts.keySet()));
+        // Marquage par identifiant : un mouvement validé après la lecture n'est jamais marqué sans être reporté
+        mouvementStockRepository.marquerReconcilies(mouvements.stream()
+                .map(MouvementStock::getId)
+                .collect(Collectors.toList()));
+
+        logger.debug("{} mouvement(s) de stock consolidé(s) sur {} produit(s)", mouvements.size(), ecarts.size());
+        return mouvements.size();
+    }
+
+    private void activer(Produit produit) {
+        Long produitId = produit.getId();
+        if (compteurs.containsKey(produitId)) {
+            return;
+        }
+
+        long stock = produit.getQuantite() + mouvementStockRepository.sommeNonReconciliee(produitId);
+        StockSegmente compteur = new StockSegmente(segments, stock);
+        produit.setStockChaud(true);
+
+        // Le compteur est publié avant le commit, pendant que la ligne produit est verrouillée
+        compteurs.put(produitId, compteur);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    compteurs.remove(produitId, compteur);
+                }
+            }
+        });
+    }
+
+    private void desactiver(Produit produit) {
+        Long produitId = produit.getId();
+        StockSegmente compteur = compteurs.remove(produitId);
+
+        // Report immédiat du journal pour que la quantité en base redevienne la référence
+        List<MouvementStock> mouvements = mouvementStockRepository.findByProduitIdAndReconcilieFalse(produitId);
+        int ecart = mouvements.stream().mapToInt(MouvementStock::getQuantite).sum();
+        produit.setQuantite(produit.getQuantite() + ecart);
+        produit.setStockChaud(false);
+        if (!mouvements.isEmpty()) {
+            mouvementStockRepository.marquerReconcilies(mouvements.stream()
+                    .map(MouvementStock::getId)
+                    .collect(Collectors.toList()));
+        }
+
+        if (compteur != null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        compteurs.putIfAbsent(produitId, compteur);
+                    }
+                }
+            });
+        }
+    }
+
+    private void journaliser(Long produitId, int quantite, MotifMouvement motif) {
+        mouvementStockRepository.save(nouveauMouvement(produitId, quantite, motif, LocalDateTime.now()));
+    }
+
+    private MouvementStock nouveauMouvement(Long produitId, int quantite, MotifMouvement motif, LocalDateTime date) {
+        MouvementStock mouvement = new MouvementStock();
+        mouvement.setProduitId(produitId);
+        mouvement.setQuantite(quantite);
+        mouvement.setMotif(motif);
+        mouvement.setReconcilie(false);
+        mouvement.setDateCreation(date);
+        return mouvement;
+    }
+
+    private void crediterApresCommit(StockSegmente compteur, long quantite) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                compteur.ajouter(quantite);
+            }
+        });
+    }
+
+    /**
+     * Compteur de stock réparti sur plusieurs cellules indépendantes.
+     * Un retrait tente un CAS sur une cellule tirée au hasard puis sur les suivantes ;
+     * si aucune cellule ne suffit seule, les cellules sont regroupées sous verrou.
+     */
+    static final class StockSegmente {
+
+        private final AtomicLongArray cellules;
+        private final int nombre;
+
+        /** Impair pendant un regroupement ; modifié uniquement sous le verrou du compteur */
+        private volatile long regroupements;
+
+        StockSegmente(int nombre, long stockInitial) {
+            this.nombre = Math.max(1, nombre);
+            this.cellules = new AtomicLongArray(this.nombre * PAS_CELLULE);
+
+            if (stockInitial <= 0) {
+                cellules.set(0, stockInitial);
+                return;
+            }
+            long part = stockInitial / this.nombre;
+            long reste = stockInitial % this.nombre;
+            for (int i = 0; i < this.nombre; i++) {
+                cellules.set(i * PAS_CELLULE, part + (i < reste ? 1 : 0));
+            }
+        }
+
+        boolean essayerRetirer(long quantite) {
+            int depart = ThreadLocalRandom.current().nextInt(nombre);
+            for (int k = 0; k < nombre; k++) {
+                int index = ((depart + k) % nombre) * PAS_CELLULE;
+                long valeur;
+                while ((valeur = cellules.get(index)) >= quantite) {
+                    if (cellules.compareAndSet(index, valeur, valeur - quantite)) {
+                        return true;
+                    }
+                }
+            }
+            return retirerApresRegroupement(quantite);
+        }
+
+        void ajouter(long quantite) {
+            cellules.addAndGet(ThreadLocalRandom.current().nextInt(nombre) * PAS_CELLULE, quantite);
+        }
+
+        long total() {
+            long avant = regroupements;
+            if ((avant & 1) == 0) {
+                long total = somme();
+                if (regroupements == avant) {
+                    return total;
+                }
+            }
+            // Un regroupement vide les cellules avant de les recréditer : on attend qu'il soit terminé
+            synchronized (this) {
+                return somme();
+            }
+        }
+
+        private long somme() {
+            long total = 0;
+            for (int i = 0; i < nombre; i++) {
+                total += cellules.get(i * PAS_CELLULE);
+            }
+            return total;
+        }
+
+        private synchronized boolean retirerApresRegroupement(long quantite) {
+            regroupements++;
+            try {
+                return regrouperEtRetirer(quantite);
+            } finally {
+                regroupements++;
+            }
+        }
+
+        private boolean regrouperEtRetirer(long quantite) {
+            long somme = 0;
+            for (int i = 0; i < nombre; i++) {
+                somme += cellules.getAndSet(i * PAS_CELLULE, 0);
+            }
+            boolean suffisant = somme >= quantite;
+            cellules.addAndGet(0, suffisant ? somme - quantite : somme);
+            return suffisant;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.service.AbonneCatalogue.Portee;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * File des écritures du catalogue notées après commit par un index en mémoire, vidée par lots
+ * au passage suivant. Un lot dont l'application échoue est remis en file pour le passage d'après.
+ */
+final class ModificationsCatalogue {
+
+    private final Queue<Modification> modifications = new ConcurrentLinkedQueue<>();
+
+    void noter(Portee portee, Long id) {
+        if (id != null) {
+            modifications.add(new Modification(portee, id));
+        }
+    }
+
+    boolean estVide() {
+        return modifications.isEmpty();
+    }
+
+    /**
+     * Retire de la file toutes les modifications notées, regroupées par portée
+     */
+    Lot vider() {
+        Lot lot = new Lot();
+        Modification modification;
+        while ((modification = modifications.poll()) != null) {
+            lot.ids(modification.portee()).add(modification.id());
+        }
+        return lot;
+    }
+
+    /**
+     * Remet en file un lot qui n'a pas pu être appliqué (avec les ids ajoutés en cours de route)
+     */
+    void remettre(Lot lot) {
+        lot.ids.forEach((portee, ids) -> ids.forEach(id -> modifications.add(new Modification(portee, id))));
+    }
+
+    // Une liste IN vide n'est pas portable : un id impossible la remplace
+    static Collection<Long> nonVide(Set<Long> ids) {
+        return ids.isEmpty() ? List.of(-1L) : ids;
+    }
+
+    /**
+     * Identifiants modifiés par portée ; les ensembles sont modifiables par l'appelant
+     */
+    static final class Lot {
+        private final Map<Portee, Set<Long>> ids = new EnumMap<>(Portee.class);
+
+        Set<Long> ids(Portee portee) {
+            return ids.computeIfAbsent(portee, p -> new HashSet<>());
+        }
+    }
+
+    private record Modification(Portee portee, Long id) {
+    }
+}
@@ -0,0 +1,193 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox;
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox.StatutEvenement;
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox.TypeEvenement;
+import com.monsite.ventes.gestion_ventes.repository.EvenementOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox transactionnelle : les événements sont écrits dans la transaction de la modification
+ * métier, puis distribués par lots aux abonnés par une tâche planifiée.
+ * Un événement n'est marqué traité qu'après livraison à tous ses abonnés (au moins une fois).
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    private final EvenementOutboxRepository evenementOutboxRepository;
+    private final ObjectProvider<AbonneEvenement> abonnes;
+    private final ObjectMapper objectMapper;
+
+    @Value("${outbox.taille-lot:100}")
+    private int tailleLot;
+
+    @Value("${outbox.tentatives-max:10}")
+    private int tentativesMax;
+
+    @Value("${outbox.retention-jours:7}")
+    private long retentionJours;
+
+    public OutboxService(EvenementOutboxRepository evenementOutboxRepository,
+                         ObjectProvider<AbonneEvenement> abonnes,
+                         ObjectMapper objectMapper) {
+        this.evenementOutboxRepository = evenementOutboxRepository;
+        this.abonnes = abonnes;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Enregistre un événement. Doit être appelé dans la transaction de la modification métier
+     * pour que l'événement et la modification soient validés (ou annulés) ensemble.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publier(TypeEvenement type, Long agregatId, Map<String, Object> donnees) {
+        EvenementOutbox evenement = new EvenementOutbox();
+        evenement.setType(type);
+        evenement.setAgregatId(agregatId);
+        evenement.setTypeAgregat(type.getAgregat());
+        evenement.setDonnees(serialiser(donnees));
+        evenement.setStatut(StatutEvenement.EN_ATTENTE);
+        evenement.setTentatives(0);
+        evenement.setDateCreation(LocalDateTime.now());
+        evenement.setDateDisponibilite(LocalDateTime.now());
+        evenementOutboxRepository.save(evenement);
+    }
+
+    /**
+     * Enregistre un lot d'événements du même type (insertions groupées en JDBC batch)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publierLot(TypeEvenement type, Map<Long, Map<String, Object>> donneesParAgregat) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<EvenementOutbox> evenements = donneesParAgregat.entrySet().stream()
+                .map(e -> {
+                    EvenementOutbox evenement = new EvenementOutbox();
+                    evenement.setType(type);
+                    evenement.setAgregatId(e.getKey());
+                    evenement.setTypeAgregat(type.getAgregat());
+                    evenement.setDonnees(serialiser(e.getValue()));
+                    evenement.setStatut(StatutEvenement.EN_ATTENTE);
+                    evenement.setTentatives(0);
+                    evenement.setDateCreation(maintenant);
+                    evenement.setDateDisponibilite(maintenant);
+                    return evenement;
+                })
+                .collect(Collectors.toList());
+        evenementOutboxRepository.saveAll(evenements);
+    }
+
+    /**
+     * Lit les données d'un événement
+     */
+    public Map<String, Object> lireDonnees(EvenementOutbox evenement) {
+        if (evenement.getDonnees() == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(evenement.getDonnees(),
+                    objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Données d'événement illisibles", e);
+        }
+    }
+
+    /**
+     * Distribue les événements en attente par lots, jusqu'à épuisement de l'outbox.
+     * Un lot contient au plus un événement par agrégat : les suivants sont pris au lot d'après,
+     * une fois le précédent traité (ou différé, ce qui les retient).
+     */
+    @Scheduled(fixedDelayString = "${outbox.intervalle-ms:1000}")
+    public void distribuer() {
+        List<AbonneEvenement> abonnesActifs = abonnes.orderedStream().collect(Collectors.toList());
+
+        List<EvenementOutbox> lot;
+        do {
+            lot = evenementOutboxRepository.findDistribuables(LocalDateTime.now(), PageRequest.of(0, tailleLot));
+
+            for (EvenementOutbox evenement : lot) {
+                livrer(evenement, abonnesActifs);
+            }
+
+            if (!lot.isEmpty()) {
+                evenementOutboxRepository.saveAll(lot);
+                logger.debug("{} événement(s) de l'outbox distribué(s)", lot.size());
+            }
+        } while (!lot.isEmpty());
+    }
+
+    /**
+     * Supprime les événements traités au-delà de la durée de rétention
+     */
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:3600000}")
+    public void purgerEvenementsTraites() {
+        int supprimes = evenementOutboxRepository.deleteTraitesAvant(LocalDateTime.now().minusDays(retentionJours));
+        if (supprimes > 0) {
+            logger.info("{} événement(s) traité(s) supprimé(s) de l'outbox", supprimes);
+        }
+    }
+
+    private void livrer(EvenementOutbox evenement, List<AbonneEvenement> abonnesActifs) {
+        try {
+            for (AbonneEvenement abonne : abonnesActifs) {
+                if (abonne.getTypesEcoutes().contains(evenement.getType())) {
+                    abonne.traiter(evenement);
+                }
+            }
+            evenement.setStatut(StatutEvenement.TRAITE);
+            evenement.setDateTraitement(LocalDateTime.now());
+            evenement.setDerniereErreur(null);
+        } catch (Exception e) {
+            int tentatives = evenement.getTentatives() + 1;
+            evenement.setTentatives(tentatives);
+            evenement.setDerniereErreur(tronquer(e.getMessage()));
+
+            if (tentatives >= tentativesMax) {
+                evenement.setStatut(StatutEvenement.ECHEC);
+                evenement.setDateTraitement(LocalDateTime.now());
+                logger.error("Événement {} ({}) abandonné après {} tentatives: {}",
+                        evenement.getId(), evenement.getType(), tentatives, e.getMessage());
+            } else {
+                // Nouvelle tentative avec un délai exponentiel (plafonné à 10 minutes)
+                long delaiSecondes = Math.min(600, 1L << Math.min(tentatives, 10));
+                evenement.setDateDisponibilite(LocalDateTime.now().plusSeconds(delaiSecondes));
+                logger.warn("Échec de livraison de l'événement {} ({}), nouvelle tentative dans {}s: {}",
+                        evenement.getId(), evenement.getType(), delaiSecondes, e.getMessage());
+            }
+        }
+    }
+
+    private String serialiser(Map<String, Object> donnees) {
+        if (donnees == null || donnees.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(donnees);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Impossible de sérialiser l'événement", e);
+        }
+    }
+
+    private String tronquer(String message) {
+        if (message == null) {
+            return "Erreur inconnue";
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
@@ -0,0 +1,143 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.dto.AvisResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageCurseurResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageProduitResponse;
+import com.monsite.ventes.gestion_ventes.dto.VendeurProduitResponse;
+import com.monsite.ventes.gestion_ventes.dto.VersionRessource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Page d'un produit vendeur assemblée en un aller-retour : les sous-requêtes indépendantes (fiche,
+ * avis, histogramme des notes) partent en parallèle, celles qui dépendent du produit (offres
+ * concurrentes, stock) partent dès que la fiche est connue.
+ */
+@Service
+public class PageProduitService {
+
+    private final VendeurProduitService vendeurProduitService;
+    private final AvisService avisService;
+    private final InventaireService inventaireService;
+    private final CatalogueCacheService catalogueCacheService;
+    private final ThreadPoolTaskExecutor executeur;
+
+    @Value("${catalogue.page-produit.avis-par-page:10}")
+    private int avisParPage;
+
+    @Value("${catalogue.page-produit.delai-max-ms:3000}")
+    private long delaiMaxMs;
+
+    public PageProduitService(VendeurProduitService vendeurProduitService,
+                              AvisService avisService,
+                              InventaireService inventaireService,
+                              CatalogueCacheService catalogueCacheService,
+                              @Qualifier("executeurPageProduit") ThreadPoolTaskExecutor executeur) {
+        this.vendeurProduitService = vendeurProduitService;
+        this.avisService = avisService;
+        this.inventaireService = inventaireService;
+        this.catalogueCacheService = catalogueCacheService;
+        this.executeur = executeur;
+    }
+
+    /**
+     * Validateurs HTTP de la page : ceux du catalogue (offres et stock) et ceux des avis du produit
+     */
+    public VersionRessource getVersionPage(Long vendeurProduitId) {
+        VersionRessource catalogue = catalogueCacheService.getVersionCatalogue();
+        VersionRessource avis = avisService.getVersionAvis(vendeurProduitId);
+        return new VersionRessource("\"p" + sansGuillemets(catalogue.etag()) + "-" + sansGuillemets(avis.etag()) + "\"",
+                Math.max(catalogue.derniereModification(), avis.derniereModification()));
+    }
+
+    /**
+     * Page complète d'un produit vendeur approuvé, ou null s'il n'est pas (ou plus) au catalogue.
+     * IllegalStateException si l'exécuteur est saturé ou si la page n'est pas prête dans le délai.
+     * Les tâches encore en cours à la sortie sont annulées avec interruption de leur thread.
+     */
+    public PageProduitResponse getPage(Long vendeurProduitId) {
+        List<Future<?>> taches = new ArrayList<>();
+        try {
+            return assembler(vendeurProduitId, taches);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Trop de pages produit en cours de chargement, réessayez dans un instant");
+        } finally {
+            taches.forEach(tache -> tache.cancel(true));
+        }
+    }
+
+    private PageProduitResponse assembler(Long vendeurProduitId, List<Future<?>> taches) {
+        long echeance = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMaxMs);
+
+        // Chaque tâche est notée dès son lancement : un refus de l'exécuteur annule celles déjà parties
+        Future<VendeurProduitResponse> offre = lancer(taches,
+                () -> vendeurProduitService.getProduitApprouve(vendeurProduitId));
+        Future<PageCurseurResponse<AvisResponse>> avis = lancer(taches,
+                () -> avisService.getPageAvis(vendeurProduitId, null, avisParPage));
+        Future<Map<Integer, Long>> histogramme = lancer(taches,
+                () -> avisService.getHistogrammeNotes(vendeurProduitId));
+
+        VendeurProduitResponse fiche = attendre(offre, echeance);
+        if (fiche == null) {
+            return null;
+        }
+
+        Future<List<VendeurProduitResponse>> concurrentes = lancer(taches,
+                () -> vendeurProduitService.getOffresConcurrentes(fiche.getProduitId(), vendeurProduitId));
+        Future<Integer> stock = lancer(taches,
+                () -> inventaireService.getStocksDisponibles(List.of(fiche.getProduitId()))
+                        .getOrDefault(fiche.getProduitId(), 0));
+
+        Map<Integer, Long> notes = attendre(histogramme, echeance);
+        long nombreAvis = notes.values().stream().mapToLong(Long::longValue).sum();
+        long sommeNotes = notes.entrySet().stream().mapToLong(entree -> entree.getKey() * entree.getValue()).sum();
+        double moyenne = nombreAvis > 0 ? Math.round(sommeNotes * 10.0 / nombreAvis) / 10.0 : 0.0;
+
+        return PageProduitResponse.builder()
+                .offre(fiche)
+                .offresConcurrentes(attendre(concurrentes, echeance))
+                .stock(attendre(stock, echeance))
+                .moyenne(moyenne)
+                .nombreAvis(nombreAvis)
+                .histogrammeNotes(notes)
+                .avis(attendre(avis, echeance))
+                .build();
+    }
+
+    private <T> Future<T> lancer(List<Future<?>> taches, Callable<T> appel) {
+        Future<T> tache = executeur.submit(appel);
+        taches.add(tache);
+        return tache;
+    }
+
+    private static <T> T attendre(Future<T> tache, long echeance) {
+        try {
+            return tache.get(Math.max(0, echeance - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("La page du produit n'a pas pu être chargée à temps");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Chargement de la page du produit interrompu");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new RuntimeException("Erreur lors du chargement de la page du produit: "
+                    + (cause != null ? cause.getMessage() : e.getMessage()));
+        }
+    }
+
+    private static String sansGuillemets(String etag) {
+        return etag.substring(1, etag.length() - 1);
+    }
+}
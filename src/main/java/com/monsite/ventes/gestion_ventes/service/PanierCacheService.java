@@ -0,0 +1,597 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.entity.Client;
+import com.monsite.ventes.gestion_ventes.entity.LignePanier;
+import com.monsite.ventes.gestion_ventes.entity.Panier;
+import com.monsite.ventes.gestion_ventes.entity.Produit;
+import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
+import com.monsite.ventes.gestion_ventes.repository.ClientRepository;
+import com.monsite.ventes.gestion_ventes.repository.PanierRepository;
+import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Paniers tenus en mémoire, par client, avec écriture différée en base.
+ * Les lectures et modifications se font sur la copie en mémoire (sous le verrou du panier) ;
+ * les paniers modifiés sont écrits périodiquement, plusieurs modifications successives
+ * ne donnant lieu qu'à une seule écriture. Le cache est borné : seuls les paniers
+ * déjà écrits peuvent être évincés (LRU).
+ * Plusieurs instances peuvent tenir le même panier : la date de modification en base sert de version.
+ * Une copie non modifiée est revérifiée au plus une fois par intervalle de revalidation et rechargée
+ * si une autre instance a écrit le panier ; une copie modifiée est fusionnée à l'écriture (seules ses
+ * propres modifications sont reportées) puis rechargée.
+ */
+@Service
+public class PanierCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PanierCacheService.class);
+
+    // Nombre de suppressions mémorisées par panier pour le calcul des différences
+    private static final int SUPPRESSIONS_MAX = 200;
+
+    private final PanierRepository panierRepository;
+    private final ClientRepository clientRepository;
+    private final VendeurProduitRepository vendeurProduitRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int capacite;
+    private final long revalidationMs;
+    private final Map<Long, PanierEnMemoire> paniers;
+
+    // Clients dont le panier a des modifications non écrites
+    private final Set<Long> modifies = ConcurrentHashMap.newKeySet();
+
+    public PanierCacheService(PanierRepository panierRepository,
+                              ClientRepository clientRepository,
+                              VendeurProduitRepository vendeurProduitRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${panier.cache.capacite:10000}") int capacite,
+                              @Value("${panier.cache.revalidation-ms:5000}") long revalidationMs) {
+        this.panierRepository = panierRepository;
+        this.clientRepository = clientRepository;
+        this.vendeurProduitRepository = vendeurProduitRepository;
+        // Écriture toujours dans sa propre transaction, y compris depuis une lecture transactionnelle
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.capacite = capacite;
+        this.revalidationMs = revalidationMs;
+        this.paniers = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PanierEnMemoire> eldest) {
+                return size() > PanierCacheService.this.capacite && evincer(eldest.getValue());
+            }
+        };
+    }
+
+    /**
+     * Lit le panier du client sans le modifier
+     */
+    public <T> T lire(Long clientId, Function<PanierEnMemoire, T> lecture) {
+        while (true) {
+            PanierEnMemoire panier = charger(clientId);
+            panier.verrou.lock();
+            try {
+                if (!panier.evince) {
+                    return lecture.apply(panier);
+                }
+            } finally {
+                panier.verrou.unlock();
+            }
+        }
+    }
+
+    /**
+     * Modifie le panier du client en mémoire ; l'écriture en base est différée.
+     * La modification s'exécute avec la nouvelle version du panier ; elle doit valider
+     * ses paramètres avant de toucher aux lignes (une exception annule le changement de version).
+     */
+    public <T> T modifier(Long clientId, Function<PanierEnMemoire, T> modification) {
+        while (true) {
+            PanierEnMemoire panier = charger(clientId);
+            panier.verrou.lock();
+            try {
+                if (panier.evince) {
+                    continue;
+                }
+                panier.version++;
+                T resultat;
+                try {
+                    resultat = modification.apply(panier);
+                } catch (RuntimeException e) {
+                    panier.version--;
+                    throw e;
+                }
+                panier.dateModification = LocalDateTime.now();
+                panier.sale = true;
+                modifies.add(clientId);
+                return resultat;
+            } finally {
+                panier.verrou.unlock();
+            }
+        }
+    }
+
+    /**
+     * Écrit immédiatement le panier du client s'il a des modifications en attente
+     * (avant une lecture du panier en base, par exemple la réservation du stock)
+     */
+    public void ecrire(Long clientId) {
+        PanierEnMemoire panier;
+        synchronized (paniers) {
+            panier = paniers.get(clientId);
+        }
+        if (panier != null && !ecrire(panier)) {
+            throw new RuntimeException("Impossible d'enregistrer le panier, veuillez réessayer");
+        }
+    }
+
+    /**
+     * Vide la copie en mémoire après validation de la transaction qui a vidé le panier en base (commande)
+     */
+    public void viderApresCommit(Long clientId) {
+        Runnable vider = () -> {
+            PanierEnMemoire panier;
+            synchronized (paniers) {
+                panier = paniers.get(clientId);
+            }
+            if (panier != null) {
+                modifier(clientId, p -> {
+                    p.vider();
+                    return null;
+                });
+            }
+        };
+
+        ApresCommit.executer(vider);
+    }
+
+    /**
+     * Identifiants des paniers actuellement en mémoire (paniers actifs, exclus de la purge)
+     */
+    public Set<Long> getPanierIdsEnMemoire() {
+        synchronized (paniers) {
+            return paniers.values().stream()
+                    .map(PanierEnMemoire::getId)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Écrit en base les paniers modifiés depuis le dernier passage
+     */
+    @Scheduled(fixedDelayString = "${panier.cache.flush-interval-ms:2000}")
+    public void ecrirePaniersModifies() {
+        if (modifies.isEmpty()) {
+            return;
+        }
+
+        int ecrits = 0;
+        for (Long clientId : new ArrayList<>(modifies)) {
+            PanierEnMemoire panier;
+            synchronized (paniers) {
+                panier = paniers.get(clientId);
+            }
+            if (panier == null) {
+                modifies.remove(clientId);
+                continue;
+            }
+            if (ecrire(panier)) {
+                ecrits++;
+            }
+        }
+        logger.debug("{} panier(s) écrit(s) en base", ecrits);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        ecrirePaniersModifies();
+    }
+
+    private PanierEnMemoire charger(Long clientId) {
+        while (true) {
+            PanierEnMemoire panier;
+            synchronized (paniers) {
+                panier = paniers.get(clientId);
+            }
+            if (panier == null) {
+                break;
+            }
+            if (estAJour(panier)) {
+                return panier;
+            }
+        }
+
+        PanierEnMemoire charge = transactionTemplate.execute(status -> lireEnBase(clientId));
+        synchronized (paniers) {
+            PanierEnMemoire existant = paniers.putIfAbsent(clientId, charge);
+            return existant != null ? existant : charge;
+        }
+    }
+
+    private PanierEnMemoire lireEnBase(Long clientId) {
+        // Un panier chargé redevient actif : sa date est rafraîchie avant la lecture. La purge ne supprime
+        // que les paniers encore inactifs, et la ligne verrouillée ici la fait attendre puis l'écarter ;
+        // si la purge est passée avant, le panier n'existe plus et un panier vide est créé.
+        LocalDateTime maintenant = LocalDateTime.now();
+        panierRepository.rafraichirDateModification(clientId, maintenant, maintenant.minusDays(1));
+        Panier panier = panierRepository.findByClientIdWithDetails(clientId)
+                .orElseGet(() -> creerPanier(clientId));
+
+        // Numérotation des versions au-delà de toute version d'un chargement précédent du même panier
+        PanierEnMemoire enMemoire = new PanierEnMemoire(clientId, panier.getClient().getNom(),
+                System.currentTimeMillis() * 1000);
+        enMemoire.id = panier.getId();
+        enMemoire.dateCreation = panier.getDateCreation();
+        enMemoire.dateModification = panier.getDateModification();
+        enMemoire.dateEnBase = panier.getDateModification();
+        enMemoire.dateVerification = System.currentTimeMillis();
+
+        List<Long> vendeurProduitIds = panier.getLignesPanier().stream()
+                .map(l -> l.getVendeurProduit().getId())
+                .toList();
+        Map<Long, VendeurProduit> details = new HashMap<>();
+        if (!vendeurProduitIds.isEmpty()) {
+            vendeurProduitRepository.findAllByIdWithDetails(vendeurProduitIds)
+                    .forEach(vp -> details.put(vp.getId(), vp));
+        }
+
+        for (LignePanier ligne : panier.getLignesPanier()) {
+            LigneEnMemoire copie = LigneEnMemoire.depuis(details.get(ligne.getVendeurProduit().getId()));
+            copie.setId(ligne.getId());
+            copie.setQuantite(ligne.getQuantite());
+            copie.setPrixUnitaire(ligne.getPrixUnitaire());
+            copie.setVersionModification(enMemoire.version);
+            enMemoire.lignes.put(copie.getVendeurProduitId(), copie);
+        }
+        return enMemoire;
+    }
+
+    /**
+     * Indique si la copie non modifiée correspond encore au panier en base ; sinon elle est retirée
+     * de la mémoire. La base n'est consultée qu'une fois par intervalle de revalidation.
+     */
+    private boolean estAJour(PanierEnMemoire panier) {
+        long maintenant = System.currentTimeMillis();
+        if (maintenant - panier.dateVerification < revalidationMs) {
+            return true;
+        }
+
+        panier.verrou.lock();
+        try {
+            if (panier.evince) {
+                return false;
+            }
+            if (panier.sale) {
+                // La copie modifiée sera confrontée à la base lors de son écriture
+                return true;
+            }
+            LocalDateTime enBase = panierRepository.findDateModificationById(panier.id).orElse(null);
+            panier.dateVerification = maintenant;
+            if (memeDate(enBase, panier.dateEnBase)) {
+                return true;
+            }
+            logger.debug("Panier du client {} modifié par une autre instance, rechargement", panier.clientId);
+            retirer(panier);
+            return false;
+        } finally {
+            panier.verrou.unlock();
+        }
+    }
+
+    /**
+     * Écrit le panier s'il est modifié ; retourne false en cas d'échec (nouvel essai au prochain passage).
+     * Si une autre instance a écrit le panier entre-temps, la copie est retirée après l'écriture.
+     */
+    private boolean ecrire(PanierEnMemoire panier) {
+        panier.verrou.lock();
+        try {
+            if (!panier.sale) {
+                return true;
+            }
+            long version = panier.version;
+            Boolean modifieAilleurs = transactionTemplate.execute(status -> synchroniser(panier));
+            panier.sale = false;
+            panier.versionEcrite = version;
+            panier.dateVerification = System.currentTimeMillis();
+            modifies.remove(panier.clientId);
+            if (Boolean.TRUE.equals(modifieAilleurs)) {
+                retirer(panier);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.warn("Échec de l'écriture du panier du client {}: {}", panier.clientId, e.getMessage());
+            return false;
+        } finally {
+            panier.verrou.unlock();
+        }
+    }
+
+    /**
+     * Reporte l'état en mémoire sur les lignes en base : mises à jour, insertions et suppressions.
+     * Si le panier a été écrit par une autre instance depuis le dernier chargement ou la dernière écriture,
+     * seules les modifications faites depuis sont reportées ; retourne alors true.
+     */
+    private boolean synchroniser(PanierEnMemoire enMemoire) {
+        // Le panier a pu être purgé comme abandonné pendant qu'il était chargé : il est alors recréé
+        Panier panier = panierRepository.findByClientIdWithDetails(enMemoire.clientId)
+                .orElse(null);
+        boolean recree = panier == null;
+        boolean modifieAilleurs = recree || !memeDate(panier.getDateModification(), enMemoire.dateEnBase);
+        if (recree) {
+            panier = creerPanier(enMemoire.clientId);
+        }
+        enMemoire.id = panier.getId();
+
+        Map<Long, LignePanier> existantes = new HashMap<>();
+        for (LignePanier ligne : panier.getLignesPanier()) {
+            existantes.put(ligne.getVendeurProduit().getId(), ligne);
+        }
+
+        Collection<LigneEnMemoire> aEcrire;
+        if (modifieAilleurs && !recree && enMemoire.differencePossible(enMemoire.versionEcrite)) {
+            Set<Long> retirees = new HashSet<>(enMemoire.getSuppressionsDepuis(enMemoire.versionEcrite));
+            panier.getLignesPanier().removeIf(l -> retirees.contains(l.getVendeurProduit().getId()));
+            aEcrire = enMemoire.getLignesModifieesDepuis(enMemoire.versionEcrite);
+        } else {
+            panier.getLignesPanier().removeIf(l -> !enMemoire.lignes.containsKey(l.getVendeurProduit().getId()));
+            aEcrire = enMemoire.lignes.values();
+        }
+
+        Map<LigneEnMemoire, LignePanier> nouvelles = new HashMap<>();
+        for (LigneEnMemoire copie : aEcrire) {
+            LignePanier ligne = existantes.get(copie.getVendeurProduitId());
+            if (ligne == null) {
+                ligne = new LignePanier();
+                ligne.setPanier(panier);
+                ligne.setVendeurProduit(vendeurProduitRepository.getReferenceById(copie.getVendeurProduitId()));
+                panier.getLignesPanier().add(ligne);
+                nouvelles.put(copie, ligne);
+            }
+            ligne.setQuantite(copie.getQuantite());
+            ligne.setPrixUnitaire(copie.getPrixUnitaire());
+        }
+
+        panier.setDateModification(enMemoire.dateModification);
+        panierRepository.saveAndFlush(panier);
+        enMemoire.dateEnBase = panier.getDateModification();
+
+        // Identifiants attribués aux nouvelles lignes
+        nouvelles.forEach((copie, ligne) -> copie.setId(ligne.getId()));
+        return modifieAilleurs;
+    }
+
+    private Panier creerPanier(Long clientId) {
+        Client client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new RuntimeException("Client non trouvé"));
+        Panier panier = new Panier();
+        panier.setClient(client);
+        panier.setLignesPanier(new ArrayList<>());
+        panier.setDateCreation(LocalDateTime.now());
+        panier.setDateModification(LocalDateTime.now());
+        return panierRepository.save(panier);
+    }
+
+    /**
+     * Appelé sous le verrou du panier : la copie est retirée, le prochain accès rechargera le panier depuis la base
+     */
+    private void retirer(PanierEnMemoire panier) {
+        panier.evince = true;
+        modifies.remove(panier.clientId);
+        synchronized (paniers) {
+            paniers.remove(panier.clientId, panier);
+        }
+    }
+
+    /**
+     * Comparaison à la milliseconde : la base peut arrondir les fractions de seconde.
+     * Une différence d'arrondi ne provoque qu'un rechargement inutile.
+     */
+    private static boolean memeDate(LocalDateTime enBase, LocalDateTime connue) {
+        return enBase != null && connue != null
+                && enBase.truncatedTo(ChronoUnit.MILLIS).equals(connue.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    /**
+     * Appelé sous le verrou du cache : un panier en cours d'utilisation ou non écrit n'est pas évincé
+     */
+    private boolean evincer(PanierEnMemoire panier) {
+        if (!panier.verrou.tryLock()) {
+            return false;
+        }
+        try {
+            if (panier.sale) {
+                return false;
+            }
+            panier.evince = true;
+            return true;
+        } finally {
+            panier.verrou.unlock();
+        }
+    }
+
+    /**
+     * Copie en mémoire du panier d'un client. Ne doit être lue ou modifiée que dans lire() ou modifier().
+     */
+    @Getter
+    public static final class PanierEnMemoire {
+        private final Long clientId;
+        private final String clientNom;
+        private Long id;
+        private LocalDateTime dateCreation;
+        private LocalDateTime dateModification;
+        private long version;
+        // Version de la copie lors du dernier chargement ou de la dernière écriture
+        @Getter(AccessLevel.NONE)
+        private long versionEcrite;
+        // Date de modification en base lors du dernier chargement ou de la dernière écriture
+        @Getter(AccessLevel.NONE)
+        private LocalDateTime dateEnBase;
+        @Getter(AccessLevel.NONE)
+        private volatile long dateVerification;
+        // Plus ancienne version à partir de laquelle une différence peut être calculée
+        @Getter(AccessLevel.NONE)
+        private long versionMinimale;
+        // Lignes par produit vendeur, dans l'ordre d'ajout
+        private final Map<Long, LigneEnMemoire> lignes = new LinkedHashMap<>();
+        // Produits vendeurs retirés, avec la version de leur retrait
+        @Getter(AccessLevel.NONE)
+        private final Map<Long, Long> suppressions = new LinkedHashMap<>();
+
+        @Getter(AccessLevel.NONE)
+        private final ReentrantLock verrou = new ReentrantLock();
+        @Getter(AccessLevel.NONE)
+        private boolean sale;
+        @Getter(AccessLevel.NONE)
+        private boolean evince;
+
+        PanierEnMemoire(Long clientId, String clientNom, long version) {
+            this.clientId = clientId;
+            this.clientNom = clientNom;
+            this.version = version;
+            this.versionEcrite = version;
+            this.versionMinimale = version;
+        }
+
+        public Collection<LigneEnMemoire> getLignes() {
+            return lignes.values();
+        }
+
+        public LigneEnMemoire getLigne(Long vendeurProduitId) {
+            return lignes.get(vendeurProduitId);
+        }
+
+        public void ajouterLigne(LigneEnMemoire ligne) {
+            ligne.setVersionModification(version);
+            lignes.put(ligne.getVendeurProduitId(), ligne);
+            suppressions.remove(ligne.getVendeurProduitId());
+        }
+
+        /**
+         * Marque une ligne existante comme modifiée dans la version courante
+         */
+        public void toucher(LigneEnMemoire ligne) {
+            ligne.setVersionModification(version);
+        }
+
+        public LigneEnMemoire retirerLigne(Long vendeurProduitId) {
+            LigneEnMemoire retiree = lignes.remove(vendeurProduitId);
+            if (retiree != null) {
+                noterSuppression(vendeurProduitId);
+            }
+            return retiree;
+        }
+
+        public void vider() {
+            lignes.keySet().forEach(this::noterSuppression);
+            lignes.clear();
+        }
+
+        /**
+         * Indique si les modifications depuis la version donnée peuvent être décrites par une différence
+         */
+        public boolean differencePossible(long versionConnue) {
+            return versionConnue >= versionMinimale && versionConnue <= version;
+        }
+
+        public List<LigneEnMemoire> getLignesModifieesDepuis(long versionConnue) {
+            return lignes.values().stream()
+                    .filter(l -> l.getVersionModification() > versionConnue)
+                    .toList();
+        }
+
+        public List<Long> getSuppressionsDepuis(long versionConnue) {
+            return suppressions.entrySet().stream()
+                    .filter(e -> e.getValue() > versionConnue)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+
+        private void noterSuppression(Long vendeurProduitId) {
+            suppressions.remove(vendeurProduitId);
+            suppressions.put(vendeurProduitId, version);
+            if (suppressions.size() > SUPPRESSIONS_MAX) {
+                // Historique tronqué : les clients plus anciens recevront le panier complet
+                suppressions.clear();
+                versionMinimale = version;
+            }
+        }
+
+        public BigDecimal getMontantTotal() {
+            return lignes.values().stream()
+                    .map(LigneEnMemoire::getSousTotal)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        public int getNombreProduits() {
+            return lignes.values().stream().mapToInt(LigneEnMemoire::getQuantite).sum();
+        }
+    }
+
+    /**
+     * Ligne de panier avec les informations d'affichage du produit vendeur
+     */
+    @Getter
+    @Setter
+    public static final class LigneEnMemoire {
+        private Long id;
+        private Long vendeurProduitId;
+        private Long produitId;
+        private String produitNom;
+        private String produitTitre;
+        private String produitImage;
+        private String vendeurNom;
+        private int quantite;
+        private BigDecimal prixUnitaire;
+        private long versionModification;
+        // Quantité en base du produit lors du dernier chargement (complétée par le stock chaud à l'affichage)
+        private int stockConnu;
+
+        public static LigneEnMemoire depuis(VendeurProduit vp) {
+            Produit produit = vp.getProduit();
+            LigneEnMemoire ligne = new LigneEnMemoire();
+            ligne.setVendeurProduitId(vp.getId());
+            ligne.setProduitId(produit.getId());
+            ligne.setProduitNom(produit.getNom());
+            ligne.setProduitTitre(vp.getTitre() != null ? vp.getTitre() : produit.getNom());
+            ligne.setProduitImage(vp.getImage() != null ? vp.getImage() : produit.getImage());
+            ligne.setVendeurNom(vp.getVendeur().getNom());
+            ligne.setPrixUnitaire(vp.getPrixVendeur());
+            ligne.setStockConnu(produit.getQuantite());
+            return ligne;
+        }
+
+        public BigDecimal getSousTotal() {
+            if (prixUnitaire == null) {
+                return BigDecimal.ZERO;
+            }
+            return prixUnitaire.multiply(BigDecimal.valueOf(quantite));
+        }
+    }
+}
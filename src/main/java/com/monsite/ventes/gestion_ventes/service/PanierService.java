@@ -1,20 +1,22 @@
 package com.monsite.ventes.gestion_ventes.service;
 
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.PanierDeltaResponse;
 import com.monsite.ventes.gestion_ventes.dto.PanierRequest;
 import com.monsite.ventes.gestion_ventes.dto.PanierResponse;
-import com.monsite.ventes.gestion_ventes.entity.*;
-import com.monsite.ventes.gestion_ventes.repository.*;
+import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
+import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import com.monsite.ventes.gestion_ventes.service.PanierCacheService.LigneEnMemoire;
+import com.monsite.ventes.gestion_ventes.service.PanierCacheService.PanierEnMemoire;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,41 +24,38 @@ public class PanierService {
 
     private static final Logger logger = LoggerFactory.getLogger(PanierService.class);
 
-    private final PanierRepository panierRepository;
-    private final LignePanierRepository lignePanierRepository;
-    private final ClientRepository clientRepository;
-    private final VendeurProduitRepository vendeurProduitRepository;
+    private static final int OPERATIONS_MAX = 100;
 
-    public PanierService(PanierRepository panierRepository,
-                         LignePanierRepository lignePanierRepository,
-                         ClientRepository clientRepository,
-                         VendeurProduitRepository vendeurProduitRepository) {
-        this.panierRepository = panierRepository;
-        this.lignePanierRepository = lignePanierRepository;
-        this.clientRepository = clientRepository;
+    private final PanierCacheService panierCacheService;
+    private final VendeurProduitRepository vendeurProduitRepository;
+    private final ReservationStockService reservationStockService;
+    private final InventaireService inventaireService;
+
+    public PanierService(PanierCacheService panierCacheService,
+                         VendeurProduitRepository vendeurProduitRepository,
+                         ReservationStockService reservationStockService,
+                         InventaireService inventaireService) {
+        this.panierCacheService = panierCacheService;
         this.vendeurProduitRepository = vendeurProduitRepository;
+        this.reservationStockService = reservationStockService;
+        this.inventaireService = inventaireService;
     }
 
     /**
      * Récupère le panier d'un client (le crée s'il n'existe pas)
      */
-    @Transactional
     public PanierResponse getPanier(Long clientId) {
         logger.info("Récupération du panier pour le client ID: {}", clientId);
-        
-        Panier panier = getOrCreatePanier(clientId);
-        return toPanierResponse(panier);
+
+        return panierCacheService.lire(clientId, this::toPanierResponse);
     }
 
     /**
      * Ajoute un produit au panier
      */
-    @Transactional
     public PanierResponse ajouterProduit(Long clientId, PanierRequest.AjouterProduit request) {
-        logger.info("=== DEBUT ajouterProduit ===");
-        logger.info("Client ID: {}", clientId);
-        logger.info("VendeurProduit ID: {}", request.getVendeurProduitId());
-        logger.info("Quantite: {}", request.getQuantite());
+        logger.info("Ajout du produit {} (quantité {}) au panier du client {}",
+                request.getVendeurProduitId(), request.getQuantite(), clientId);
 
         // Validation des paramètres
         if (request.getVendeurProduitId() == null) {
@@ -66,138 +65,204 @@ public class PanierService {
             throw new RuntimeException("La quantité doit être supérieure à 0");
         }
 
-        Panier panier = getOrCreatePanier(clientId);
-        logger.info("Panier récupéré/créé - ID: {}", panier.getId());
-
-        VendeurProduit vendeurProduit = vendeurProduitRepository.findById(request.getVendeurProduitId())
-                .orElseThrow(() -> new RuntimeException("Produit vendeur non trouvé"));
+        VendeurProduit vendeurProduit = chargerVendeurProduit(request.getVendeurProduitId());
 
         if (!vendeurProduit.isEstApprouve()) {
             throw new RuntimeException("Ce produit n'est pas disponible à la vente");
         }
 
         // Vérifier le stock disponible
-        int stockDisponible = vendeurProduit.getProduit().getQuantite();
+        int stockDisponible = inventaireService.getStockDisponible(vendeurProduit.getProduit());
         if (stockDisponible <= 0) {
             throw new RuntimeException("Ce produit est en rupture de stock");
         }
 
-        // Vérifier si le produit existe déjà dans le panier
-        Optional<LignePanier> lignePanierExistante = lignePanierRepository
-                .findByPanierIdAndVendeurProduitId(panier.getId(), request.getVendeurProduitId());
+        return panierCacheService.modifier(clientId, panier -> {
+            LigneEnMemoire ligne = panier.getLigne(vendeurProduit.getId());
+            int nouvelleQuantite = (ligne != null ? ligne.getQuantite() : 0) + request.getQuantite();
 
-        if (lignePanierExistante.isPresent()) {
-            // Mettre à jour la quantité
-            LignePanier ligne = lignePanierExistante.get();
-            int nouvelleQuantite = ligne.getQuantite() + request.getQuantite();
-            
             if (nouvelleQuantite > stockDisponible) {
                 throw new RuntimeException("Stock insuffisant. Disponible: " + stockDisponible);
             }
-            
-            ligne.setQuantite(nouvelleQuantite);
-            lignePanierRepository.save(ligne);
-            logger.info("Ligne de panier mise à jour - ID: {}, nouvelle quantité: {}", ligne.getId(), nouvelleQuantite);
-        } else {
-            // Créer une nouvelle ligne de panier
-            if (request.getQuantite() > stockDisponible) {
-                throw new RuntimeException("Stock insuffisant. Disponible: " + stockDisponible);
-            }
-
-            LignePanier nouvelleLigne = new LignePanier();
-            nouvelleLigne.setPanier(panier);
-            nouvelleLigne.setVendeurProduit(vendeurProduit);
-            nouvelleLigne.setQuantite(request.getQuantite());
-            nouvelleLigne.setPrixUnitaire(vendeurProduit.getPrixVendeur());
-            
-            // Sauvegarder explicitement la nouvelle ligne
-            LignePanier savedLigne = lignePanierRepository.save(nouvelleLigne);
-            logger.info("Nouvelle ligne de panier créée - ID: {}, Produit: {}, Quantité: {}", 
-                    savedLigne.getId(), request.getVendeurProduitId(), request.getQuantite());
-        }
 
-        panier.setDateModification(LocalDateTime.now());
-        panierRepository.save(panier);
-        
-        logger.info("=== FIN ajouterProduit - Panier sauvegardé avec succès ===");
+            if (ligne == null) {
+                ligne = LigneEnMemoire.depuis(vendeurProduit);
+                panier.ajouterLigne(ligne);
+            } else {
+                // Informations d'affichage et stock rafraîchis à chaque ajout
+                ligne.setStockConnu(vendeurProduit.getProduit().getQuantite());
+                panier.toucher(ligne);
+            }
+            ligne.setQuantite(nouvelleQuantite);
+            logger.info("Panier du client {} : produit {} en quantité {}", clientId, vendeurProduit.getId(), nouvelleQuantite);
 
-        // Recharger le panier avec les détails
-        return getPanier(clientId);
+            return toPanierResponse(panier);
+        });
     }
 
     /**
      * Modifie la quantité d'un produit dans le panier
      */
-    @Transactional
     public PanierResponse modifierQuantite(Long clientId, PanierRequest.ModifierQuantite request) {
         logger.info("Modification de la quantité du produit {} pour le client {}", 
                 request.getVendeurProduitId(), clientId);
 
-        Panier panier = panierRepository.findByClientId(clientId)
-                .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
-
-        LignePanier ligne = lignePanierRepository
-                .findByPanierIdAndVendeurProduitId(panier.getId(), request.getVendeurProduitId())
-                .orElseThrow(() -> new RuntimeException("Produit non trouvé dans le panier"));
-
-        if (request.getQuantite() <= 0) {
-            // Supprimer la ligne si quantité <= 0
-            panier.getLignesPanier().remove(ligne);
-            lignePanierRepository.delete(ligne);
-        } else {
-            // Vérifier le stock
-            int stockDisponible = ligne.getVendeurProduit().getProduit().getQuantite();
+        // Le stock est vérifié en base ; le panier n'est verrouillé que pour la modification en mémoire
+        Integer stockDisponible = null;
+        if (request.getQuantite() > 0) {
+            VendeurProduit vendeurProduit = chargerVendeurProduit(request.getVendeurProduitId());
+            stockDisponible = inventaireService.getStockDisponible(vendeurProduit.getProduit());
             if (request.getQuantite() > stockDisponible) {
                 throw new RuntimeException("Stock insuffisant. Disponible: " + stockDisponible);
             }
-            ligne.setQuantite(request.getQuantite());
-            lignePanierRepository.save(ligne);
         }
+        Integer stockVerifie = stockDisponible;
+
+        return panierCacheService.modifier(clientId, panier -> {
+            LigneEnMemoire ligne = panier.getLigne(request.getVendeurProduitId());
+            if (ligne == null) {
+                throw new RuntimeException("Produit non trouvé dans le panier");
+            }
 
-        panier.setDateModification(LocalDateTime.now());
-        panierRepository.save(panier);
+            if (request.getQuantite() <= 0) {
+                // Supprimer la ligne si quantité <= 0
+                panier.retirerLigne(request.getVendeurProduitId());
+            } else {
+                ligne.setQuantite(request.getQuantite());
+                ligne.setStockConnu(stockVerifie);
+                panier.toucher(ligne);
+            }
 
-        return getPanier(clientId);
+            return toPanierResponse(panier);
+        });
     }
 
     /**
      * Supprime un produit du panier
      */
-    @Transactional
     public PanierResponse supprimerProduit(Long clientId, Long vendeurProduitId) {
         logger.info("Suppression du produit {} du panier du client {}", vendeurProduitId, clientId);
 
-        Panier panier = panierRepository.findByClientId(clientId)
-                .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
+        return panierCacheService.modifier(clientId, panier -> {
+            if (panier.retirerLigne(vendeurProduitId) == null) {
+                throw new RuntimeException("Produit non trouvé dans le panier");
+            }
+            return toPanierResponse(panier);
+        });
+    }
 
-        LignePanier ligne = lignePanierRepository
-                .findByPanierIdAndVendeurProduitId(panier.getId(), vendeurProduitId)
-                .orElseThrow(() -> new RuntimeException("Produit non trouvé dans le panier"));
+    /**
+     * Applique un lot d'opérations au panier en une seule fois : le stock de tous les produits concernés
+     * est lu en une requête, puis toutes les opérations sont validées avant d'être appliquées (tout ou rien).
+     * Une modification ne porte que sur un produit déjà dans le panier ; un ajout crée la ligne si besoin.
+     * Avec une version connue, seule la différence depuis cette version est renvoyée.
+     */
+    public PanierDeltaResponse appliquerLot(Long clientId, PanierRequest.Lot lot) {
+        List<PanierRequest.Operation> operations = lot.getOperations();
+        if (operations == null || operations.isEmpty()) {
+            throw new RuntimeException("Aucune opération à appliquer");
+        }
+        if (operations.size() > OPERATIONS_MAX) {
+            throw new RuntimeException("Trop d'opérations dans le lot (" + OPERATIONS_MAX + " maximum)");
+        }
+        for (PanierRequest.Operation operation : operations) {
+            if (operation.getType() == null || operation.getVendeurProduitId() == null) {
+                throw new RuntimeException("Chaque opération doit préciser son type et l'ID du produit");
+            }
+            if (operation.getType() == PanierRequest.TypeOperation.AJOUTER
+                    && (operation.getQuantite() == null || operation.getQuantite() <= 0)) {
+                throw new RuntimeException("La quantité doit être supérieure à 0");
+            }
+            if (operation.getType() == PanierRequest.TypeOperation.MODIFIER && operation.getQuantite() == null) {
+                throw new RuntimeException("La quantité est requise pour une modification");
+            }
+        }
+
+        // Une seule lecture pour tous les produits ajoutés ou modifiés
+        Set<Long> aVerifier = operations.stream()
+                .filter(o -> o.getType() != PanierRequest.TypeOperation.SUPPRIMER && o.getQuantite() > 0)
+                .map(PanierRequest.Operation::getVendeurProduitId)
+                .collect(Collectors.toSet());
+        Map<Long, VendeurProduit> vendeurProduits = new HashMap<>();
+        if (!aVerifier.isEmpty()) {
+            vendeurProduitRepository.findAllByIdWithDetails(aVerifier)
+                    .forEach(vp -> vendeurProduits.put(vp.getId(), vp));
+        }
+        for (Long id : aVerifier) {
+            VendeurProduit vendeurProduit = vendeurProduits.get(id);
+            if (vendeurProduit == null) {
+                throw new RuntimeException("Produit vendeur non trouvé: " + id);
+            }
+            if (!vendeurProduit.isEstApprouve()) {
+                throw new RuntimeException("Le produit '" + vendeurProduit.getTitre() + "' n'est pas disponible à la vente");
+            }
+        }
+
+        return panierCacheService.modifier(clientId, panier -> {
+            // Quantités finales par produit vendeur, dans l'ordre des opérations
+            Map<Long, Integer> quantites = new LinkedHashMap<>();
+            for (PanierRequest.Operation operation : operations) {
+                Long id = operation.getVendeurProduitId();
+                LigneEnMemoire ligne = panier.getLigne(id);
+                int courante = quantites.getOrDefault(id, ligne != null ? ligne.getQuantite() : 0);
+                if (operation.getType() == PanierRequest.TypeOperation.MODIFIER && courante == 0) {
+                    // Comme modifierQuantite : seule une ligne présente (ou ajoutée plus tôt dans le lot) se modifie
+                    throw new RuntimeException("Produit non trouvé dans le panier: " + id);
+                }
+                int finale = switch (operation.getType()) {
+                    case AJOUTER -> courante + operation.getQuantite();
+                    case MODIFIER -> Math.max(0, operation.getQuantite());
+                    case SUPPRIMER -> 0;
+                };
+                quantites.put(id, finale);
+            }
 
-        panier.getLignesPanier().remove(ligne);
-        lignePanierRepository.delete(ligne);
+            for (Map.Entry<Long, Integer> entree : quantites.entrySet()) {
+                if (entree.getValue() > 0) {
+                    VendeurProduit vendeurProduit = vendeurProduits.get(entree.getKey());
+                    int stockDisponible = inventaireService.getStockDisponible(vendeurProduit.getProduit());
+                    if (entree.getValue() > stockDisponible) {
+                        throw new RuntimeException("Stock insuffisant pour le produit '" + vendeurProduit.getTitre()
+                                + "'. Disponible: " + stockDisponible);
+                    }
+                }
+            }
 
-        panier.setDateModification(LocalDateTime.now());
-        panierRepository.save(panier);
+            for (Map.Entry<Long, Integer> entree : quantites.entrySet()) {
+                Long id = entree.getKey();
+                LigneEnMemoire ligne = panier.getLigne(id);
+                if (entree.getValue() == 0) {
+                    panier.retirerLigne(id);
+                } else if (ligne == null) {
+                    ligne = LigneEnMemoire.depuis(vendeurProduits.get(id));
+                    ligne.setQuantite(entree.getValue());
+                    panier.ajouterLigne(ligne);
+                } else {
+                    ligne.setQuantite(entree.getValue());
+                    ligne.setStockConnu(vendeurProduits.get(id).getProduit().getQuantite());
+                    panier.toucher(ligne);
+                }
+            }
 
-        return getPanier(clientId);
+            logger.info("Lot de {} opération(s) appliqué au panier du client {} (version {})",
+                    operations.size(), clientId, panier.getVersion());
+            return toPanierDeltaResponse(panier, lot.getVersionConnue());
+        });
     }
 
     /**
      * Vide le panier
      */
-    @Transactional
     public MessageResponse viderPanier(Long clientId) {
         logger.info("Vidage du panier du client {}", clientId);
 
-        Optional<Panier> panierOpt = panierRepository.findByClientId(clientId);
-        
-        if (panierOpt.isPresent()) {
-            Panier panier = panierOpt.get();
+        panierCacheService.modifier(clientId, panier -> {
             panier.vider();
-            panierRepository.save(panier);
-        }
-        // Si le panier n'existe pas, on ne fait rien (pas d'erreur)
+            return null;
+        });
+
+        // Un panier vidé n'a plus de stock à retenir
+        reservationStockService.liberer(clientId);
 
         return MessageResponse.builder()
                 .success(true)
@@ -205,67 +270,73 @@ public class PanierService {
                 .build();
     }
 
-    /**
-     * Récupère ou crée le panier d'un client
-     */
-    private Panier getOrCreatePanier(Long clientId) {
-        Optional<Panier> panierOpt = panierRepository.findByClientIdWithDetails(clientId);
-        
-        if (panierOpt.isPresent()) {
-            return panierOpt.get();
+    private VendeurProduit chargerVendeurProduit(Long vendeurProduitId) {
+        List<VendeurProduit> trouves = vendeurProduitRepository.findAllByIdWithDetails(List.of(vendeurProduitId));
+        if (trouves.isEmpty()) {
+            throw new RuntimeException("Produit vendeur non trouvé");
         }
+        return trouves.get(0);
+    }
 
-        // Créer un nouveau panier pour le client
-        Client client = clientRepository.findById(clientId)
-                .orElseThrow(() -> new RuntimeException("Client non trouvé"));
-
-        Panier nouveauPanier = new Panier();
-        nouveauPanier.setClient(client);
-        nouveauPanier.setLignesPanier(new ArrayList<>());
-        nouveauPanier.setDateCreation(LocalDateTime.now());
-        nouveauPanier.setDateModification(LocalDateTime.now());
+    private PanierDeltaResponse toPanierDeltaResponse(PanierEnMemoire panier, Long versionConnue) {
+        if (versionConnue == null || !panier.differencePossible(versionConnue)) {
+            return PanierDeltaResponse.builder()
+                    .version(panier.getVersion())
+                    .complet(true)
+                    .panier(toPanierResponse(panier))
+                    .montantTotal(panier.getMontantTotal())
+                    .nombreProduits(panier.getNombreProduits())
+                    .build();
+        }
 
-        return panierRepository.save(nouveauPanier);
+        return PanierDeltaResponse.builder()
+                .version(panier.getVersion())
+                .complet(false)
+                .lignesModifiees(panier.getLignesModifieesDepuis(versionConnue).stream()
+                        .map(this::toLignePanierResponse)
+                        .collect(Collectors.toList()))
+                .lignesSupprimees(panier.getSuppressionsDepuis(versionConnue))
+                .montantTotal(panier.getMontantTotal())
+                .nombreProduits(panier.getNombreProduits())
+                .build();
     }
 
     /**
-     * Convertit un Panier en PanierResponse
+     * Convertit le panier en mémoire en PanierResponse
      */
-    private PanierResponse toPanierResponse(Panier panier) {
-        List<PanierResponse.LignePanierResponse> lignesResponse = panier.getLignesPanier().stream()
+    private PanierResponse toPanierResponse(PanierEnMemoire panier) {
+        List<PanierResponse.LignePanierResponse> lignesResponse = panier.getLignes().stream()
                 .map(this::toLignePanierResponse)
                 .collect(Collectors.toList());
 
         return PanierResponse.builder()
                 .id(panier.getId())
-                .clientId(panier.getClient().getId())
-                .clientNom(panier.getClient().getNom())
+                .clientId(panier.getClientId())
+                .clientNom(panier.getClientNom())
                 .lignesPanier(lignesResponse)
                 .montantTotal(panier.getMontantTotal())
                 .nombreProduits(panier.getNombreProduits())
                 .dateCreation(panier.getDateCreation())
                 .dateModification(panier.getDateModification())
+                .version(panier.getVersion())
                 .build();
     }
 
     /**
-     * Convertit une LignePanier en LignePanierResponse
+     * Convertit une ligne du panier en LignePanierResponse
      */
-    private PanierResponse.LignePanierResponse toLignePanierResponse(LignePanier ligne) {
-        VendeurProduit vp = ligne.getVendeurProduit();
-        Produit produit = vp.getProduit();
-
+    private PanierResponse.LignePanierResponse toLignePanierResponse(LigneEnMemoire ligne) {
         return PanierResponse.LignePanierResponse.builder()
                 .id(ligne.getId())
-                .vendeurProduitId(vp.getId())
-                .produitNom(produit.getNom())
-                .produitTitre(vp.getTitre() != null ? vp.getTitre() : produit.getNom())
-                .produitImage(vp.getImage() != null ? vp.getImage() : produit.getImage())
-                .vendeurNom(vp.getVendeur().getNom())
+                .vendeurProduitId(ligne.getVendeurProduitId())
+                .produitNom(ligne.getProduitNom())
+                .produitTitre(ligne.getProduitTitre())
+                .produitImage(ligne.getProduitImage())
+                .vendeurNom(ligne.getVendeurNom())
                 .quantite(ligne.getQuantite())
                 .prixUnitaire(ligne.getPrixUnitaire())
                 .sousTotal(ligne.getSousTotal())
-                .stockDisponible(produit.getQuantite())
+                .stockDisponible(inventaireService.getStockDisponible(ligne.getProduitId(), ligne.getStockConnu()))
                 .build();
     }
 }
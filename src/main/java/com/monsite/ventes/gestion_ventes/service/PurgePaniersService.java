@@ -0,0 +1,182 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.entity.ArchivePaniers;
+import com.monsite.ventes.gestion_ventes.entity.Panier;
+import com.monsite.ventes.gestion_ventes.repository.ArchivePaniersRepository;
+import com.monsite.ventes.gestion_ventes.repository.LignePanierRepository;
+import com.monsite.ventes.gestion_ventes.repository.PanierRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Purge des paniers abandonnés : les paniers non modifiés depuis un certain nombre de jours
+ * sont supprimés par petits lots (lignes puis paniers, en requêtes groupées), chaque lot laissant
+ * un résumé dans archives_paniers. La purge tourne en heures creuses, sur son propre thread, et marque
+ * une pause entre les lots.
+ */
+@Service
+public class PurgePaniersService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PurgePaniersService.class);
+
+    private final PanierRepository panierRepository;
+    private final LignePanierRepository lignePanierRepository;
+    private final ArchivePaniersRepository archivePaniersRepository;
+    private final PanierCacheService panierCacheService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+    private final ExecutorService executeur = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "purge-paniers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${panier.purge.actif:true}")
+    private boolean actif;
+
+    @Value("${panier.purge.age-jours:90}")
+    private long ageJours;
+
+    @Value("${panier.purge.taille-lot:500}")
+    private int tailleLot;
+
+    @Value("${panier.purge.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${panier.purge.lots-max:200}")
+    private int lotsMax;
+
+    public PurgePaniersService(PanierRepository panierRepository,
+                               LignePanierRepository lignePanierRepository,
+                               ArchivePaniersRepository archivePaniersRepository,
+                               PanierCacheService panierCacheService,
+                               PlatformTransactionManager transactionManager) {
+        this.panierRepository = panierRepository;
+        this.lignePanierRepository = lignePanierRepository;
+        this.archivePaniersRepository = archivePaniersRepository;
+        this.panierCacheService = panierCacheService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeur.shutdownNow();
+    }
+
+    /**
+     * Déclenche la purge sur son propre thread : les pauses entre lots ne retiennent pas le planificateur
+     */
+    @Scheduled(cron = "${panier.purge.cron:0 30 3 * * *}")
+    public void declencherPurge() {
+        if (!actif || !enCours.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executeur.execute(() -> {
+                try {
+                    purgerPaniersAbandonnes();
+                } finally {
+                    enCours.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enCours.set(false);
+        }
+    }
+
+    private void purgerPaniersAbandonnes() {
+        try {
+            LocalDateTime limite = LocalDateTime.now().minusDays(ageJours);
+            int totalSupprimes = 0;
+            LocalDateTime apresDate = null;
+            Long apresId = null;
+
+            for (int lot = 0; lot < lotsMax; lot++) {
+                PageRequest page = PageRequest.of(0, tailleLot);
+                List<Object[]> lignes = apresId == null
+                        ? panierRepository.findAbandonnes(limite, page)
+                        : panierRepository.findAbandonnesApres(limite, apresDate, apresId, page);
+                if (lignes.isEmpty()) {
+                    break;
+                }
+                // Le curseur avance sur le lot brut : les paniers gardés ne sont pas relus au lot suivant
+                Object[] derniere = lignes.get(lignes.size() - 1);
+                apresId = (Long) derniere[0];
+                apresDate = (LocalDateTime) derniere[1];
+
+                // Les paniers chargés en mémoire sont actifs, même si leur date en base est ancienne
+                Set<Long> actifs = panierCacheService.getPanierIdsEnMemoire();
+                List<Long> ids = lignes.stream()
+                        .map(ligne -> (Long) ligne[0])
+                        .filter(id -> !actifs.contains(id))
+                        .collect(Collectors.toList());
+                if (!ids.isEmpty()) {
+                    Integer supprimes = transactionTemplate.execute(status -> purgerLot(ids, limite));
+                    totalSupprimes += supprimes != null ? supprimes : 0;
+                }
+
+                if (lignes.size() < tailleLot) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+
+            if (totalSupprimes > 0) {
+                logger.info("{} panier(s) abandonné(s) depuis le {} purgé(s)", totalSupprimes, limite.toLocalDate());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Échec de la purge des paniers abandonnés: {}", e.getMessage());
+        }
+    }
+
+    private int purgerLot(List<Long> candidats, LocalDateTime limite) {
+        // Les paniers chargés en mémoire depuis la lecture du lot ont une date rafraîchie : ils sont écartés ici
+        List<Long> ids = panierRepository.verrouillerAbandonnes(candidats, limite).stream()
+                .map(Panier::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        Object[] resume = panierRepository.resumerLignes(ids, limite).get(0);
+
+        lignePanierRepository.supprimerLignesAbandonnees(ids, limite);
+        int supprimes = panierRepository.supprimerAbandonnes(ids, limite);
+        if (supprimes == 0) {
+            return 0;
+        }
+
+        ArchivePaniers archive = new ArchivePaniers();
+        archive.setDateArchivage(LocalDateTime.now());
+        archive.setDateLimite(limite);
+        archive.setNombrePaniers(supprimes);
+        archive.setNombrePaniersNonVides(((Number) resume[0]).intValue());
+        archive.setNombreLignes(((Number) resume[1]).longValue());
+        archive.setQuantiteTotale(((Number) resume[2]).longValue());
+        archive.setMontantTotal(resume[3] instanceof BigDecimal montant ? montant : new BigDecimal(resume[3].toString()));
+        archivePaniersRepository.save(archive);
+
+        logger.debug("Lot de {} panier(s) abandonné(s) purgé", supprimes);
+        return supprimes;
+    }
+}
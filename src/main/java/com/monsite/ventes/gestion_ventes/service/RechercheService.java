@@ -0,0 +1,215 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.dto.projection.OffreIndexationProjection;
+import com.monsite.ventes.gestion_ventes.repository.ProduitRepository;
+import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recherche plein texte du catalogue, servie par deux index inversés en mémoire :
+ * les produits (nom, description) et les offres vendeur approuvées (titre, description et textes du produit).
+ * Les index sont construits au démarrage puis tenus à jour quasi en temps réel : les écritures du catalogue
+ * sont notées après commit et appliquées par lot toutes les secondes.
+ */
+@Service
+public class RechercheService implements AbonneCatalogue {
+
+    private static final Logger logger = LoggerFactory.getLogger(RechercheService.class);
+
+    private static final float POIDS_TITRE = 3f;
+    private static final float POIDS_NOM_PRODUIT = 2f;
+    private static final float POIDS_DESCRIPTION = 1f;
+    private static final float POIDS_DESCRIPTION_PRODUIT = 0.5f;
+
+    private final ProduitRepository produitRepository;
+    private final VendeurProduitRepository vendeurProduitRepository;
+
+    private final IndexInverse indexProduits = new IndexInverse();
+    private final IndexInverse indexOffres = new IndexInverse();
+
+    // Produit et vendeur de chaque offre indexée, pour retirer les offres d'un produit ou d'un vendeur modifié
+    private final Map<Long, Long> produitDesOffres = new ConcurrentHashMap<>();
+    private final Map<Long, Long> vendeurDesOffres = new ConcurrentHashMap<>();
+
+    // Catégorie de chaque produit indexé : supprimer une catégorie supprime ses produits (cascade)
+    private final Map<Long, Long> categorieDesProduits = new ConcurrentHashMap<>();
+
+    private final ModificationsCatalogue modifications = new ModificationsCatalogue();
+    private volatile boolean pret;
+
+    @Value("${recherche.index.taille-lot:1000}")
+    private int tailleLot;
+
+    public RechercheService(ProduitRepository produitRepository,
+                            VendeurProduitRepository vendeurProduitRepository) {
+        this.produitRepository = produitRepository;
+        this.vendeurProduitRepository = vendeurProduitRepository;
+    }
+
+    /**
+     * Vrai une fois la construction initiale terminée
+     */
+    public boolean estPret() {
+        return pret;
+    }
+
+    /**
+     * Identifiants des produits correspondant au texte, du plus pertinent au moins pertinent.
+     * Le dernier mot est traité comme un préfixe.
+     */
+    public List<Long> rechercherProduits(String texte, int limite) {
+        return indexProduits.rechercher(texte, true, limite);
+    }
+
+    /**
+     * Identifiants des offres approuvées correspondant au texte, du plus pertinent au moins pertinent
+     */
+    public List<Long> rechercherOffres(String texte, int limite) {
+        return indexOffres.rechercher(texte, true, limite);
+    }
+
+    @Override
+    public void catalogueModifie(Portee portee, Long id) {
+        if (portee != Portee.STOCK) {
+            modifications.noter(portee, id);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruire() {
+        indexProduits.vider();
+        indexOffres.vider();
+        produitDesOffres.clear();
+        vendeurDesOffres.clear();
+        categorieDesProduits.clear();
+
+        long apresId = 0L;
+        List<Object[]> produits;
+        do {
+            produits = produitRepository.findTextesApres(apresId, PageRequest.of(0, tailleLot));
+            for (Object[] produit : produits) {
+                indexerProduit(produit);
+                apresId = (Long) produit[0];
+            }
+        } while (produits.size() == tailleLot);
+
+        apresId = 0L;
+        List<OffreIndexationProjection> offres;
+        do {
+            offres = vendeurProduitRepository.findOffresIndexationApres(apresId, PageRequest.of(0, tailleLot));
+            for (OffreIndexationProjection offre : offres) {
+                indexerOffre(offre);
+                apresId = offre.id();
+            }
+        } while (offres.size() == tailleLot);
+
+        pret = true;
+        logger.info("Index de recherche construit : {} produit(s), {} offre(s)",
+                indexProduits.taille(), indexOffres.taille());
+    }
+
+    /**
+     * Applique aux index les écritures du catalogue notées depuis le dernier passage
+     */
+    @Scheduled(fixedDelayString = "${recherche.index.intervalle-ms:1000}")
+    public synchronized void appliquerModifications() {
+        if (!pret || modifications.estVide()) {
+            return;
+        }
+
+        ModificationsCatalogue.Lot lot = modifications.vider();
+        Set<Long> offreIds = lot.ids(Portee.OFFRE);
+        Set<Long> produitIds = lot.ids(Portee.PRODUIT);
+        Set<Long> vendeurIds = lot.ids(Portee.VENDEUR);
+        Set<Long> categorieIds = lot.ids(Portee.CATEGORIE);
+
+        try {
+            // Produits indexés de la catégorie : relus, ceux supprimés en cascade sont retirés avec leurs offres
+            categorieDesProduits.forEach((produitId, categorieId) -> {
+                if (categorieIds.contains(categorieId)) {
+                    produitIds.add(produitId);
+                }
+            });
+
+            if (!produitIds.isEmpty()) {
+                Set<Long> produitsRetires = new HashSet<>(produitIds);
+                for (Object[] produit : produitRepository.findTextesByIds(produitIds)) {
+                    indexerProduit(produit);
+                    produitsRetires.remove((Long) produit[0]);
+                }
+                produitsRetires.forEach(this::retirerProduit);
+            }
+
+            // Offres concernées connues de l'index : celles qui ne sont plus au catalogue en seront retirées
+            Set<Long> offresRetirees = new HashSet<>(offreIds);
+            produitDesOffres.forEach((offreId, produitId) -> {
+                if (produitIds.contains(produitId)) {
+                    offresRetirees.add(offreId);
+                }
+            });
+            vendeurDesOffres.forEach((offreId, vendeurId) -> {
+                if (vendeurIds.contains(vendeurId)) {
+                    offresRetirees.add(offreId);
+                }
+            });
+
+            for (OffreIndexationProjection offre : vendeurProduitRepository.findOffresIndexation(
+                    ModificationsCatalogue.nonVide(offreIds), ModificationsCatalogue.nonVide(produitIds),
+                    ModificationsCatalogue.nonVide(vendeurIds))) {
+                indexerOffre(offre);
+                offresRetirees.remove(offre.id());
+            }
+            offresRetirees.forEach(this::retirerOffre);
+        } catch (Exception e) {
+            logger.warn("Échec de la mise à jour de l'index de recherche: {}", e.getMessage());
+            modifications.remettre(lot);
+        }
+    }
+
+    private void indexerProduit(Object[] produit) {
+        Map<String, Float> termes = IndexInverse.termes();
+        IndexInverse.ajouterChamp(termes, (String) produit[1], POIDS_TITRE);
+        IndexInverse.ajouterChamp(termes, (String) produit[2], POIDS_DESCRIPTION);
+        indexProduits.indexer((Long) produit[0], termes);
+        if (produit[3] != null) {
+            categorieDesProduits.put((Long) produit[0], (Long) produit[3]);
+        } else {
+            categorieDesProduits.remove((Long) produit[0]);
+        }
+    }
+
+    private void retirerProduit(Long produitId) {
+        indexProduits.retirer(produitId);
+        categorieDesProduits.remove(produitId);
+    }
+
+    private void indexerOffre(OffreIndexationProjection offre) {
+        Map<String, Float> termes = IndexInverse.termes();
+        IndexInverse.ajouterChamp(termes, offre.titre(), POIDS_TITRE);
+        IndexInverse.ajouterChamp(termes, offre.produitNom(), POIDS_NOM_PRODUIT);
+        IndexInverse.ajouterChamp(termes, offre.description(), POIDS_DESCRIPTION);
+        IndexInverse.ajouterChamp(termes, offre.produitDescription(), POIDS_DESCRIPTION_PRODUIT);
+        indexOffres.indexer(offre.id(), termes);
+        produitDesOffres.put(offre.id(), offre.produitId());
+        vendeurDesOffres.put(offre.id(), offre.vendeurId());
+    }
+
+    private void retirerOffre(Long offreId) {
+        indexOffres.retirer(offreId);
+        produitDesOffres.remove(offreId);
+        vendeurDesOffres.remove(offreId);
+    }
+}
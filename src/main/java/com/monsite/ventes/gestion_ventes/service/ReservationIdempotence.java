@@ -0,0 +1,107 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.entity.CleIdempotence;
+import com.monsite.ventes.gestion_ventes.repository.CleIdempotenceRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Écrit la clé d'idempotence de la requête en cours dans la transaction d'écriture du service appelé
+ * (la première transaction déclarative, @Transactional) : la clé n'est enregistrée que si cette
+ * transaction est validée, et une clé déjà enregistrée (autre instance) fait échouer la transaction
+ * au lieu de rejouer l'opération. Les transactions annexes ouvertes par programme (TransactionTemplate,
+ * sans nom) et celles imbriquées dans la transaction porteuse ne prennent jamais la clé.
+ * La réponse est complétée ensuite par IdempotenceService.
+ */
+@Component
+class ReservationIdempotence implements TransactionExecutionListener {
+
+    private final ObjectProvider<CleIdempotenceRepository> cleIdempotenceRepository;
+
+    private final ThreadLocal<Reservation> enCours = new ThreadLocal<>();
+
+    ReservationIdempotence(ObjectProvider<CleIdempotenceRepository> cleIdempotenceRepository) {
+        this.cleIdempotenceRepository = cleIdempotenceRepository;
+    }
+
+    /**
+     * Ouvre la réservation de la clé pour les transactions lancées par le thread courant
+     */
+    void ouvrir(CleIdempotence cle) {
+        enCours.set(new Reservation(cle));
+    }
+
+    /**
+     * Ferme la réservation et indique ce qu'il en est advenu
+     */
+    Etat fermer() {
+        Reservation reservation = enCours.get();
+        enCours.remove();
+        if (reservation == null) {
+            return Etat.AUCUNE;
+        }
+        return reservation.ecrite ? Etat.ECRITE : reservation.conflit ? Etat.CONFLIT : Etat.AUCUNE;
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable echec) {
+        Reservation reservation = enCours.get();
+        if (reservation == null || reservation.ecrite || reservation.attachee || echec != null
+                || !transaction.isNewTransaction() || transaction.isNested() || transaction.isReadOnly()
+                || !StringUtils.hasText(transaction.getTransactionName())
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        reservation.attachee = true;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!reservation.ecrite) {
+                    reservation.cle.setId(null);
+                    try {
+                        cleIdempotenceRepository.getObject().saveAndFlush(reservation.cle);
+                    } catch (DataIntegrityViolationException e) {
+                        reservation.conflit = true;
+                        throw e;
+                    }
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    reservation.ecrite = true;
+                } else {
+                    // Transaction annulée : un nouvel essai (@ReessaiSurConflit) reprend la clé
+                    reservation.attachee = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Issue de la réservation : clé écrite avec l'opération, déjà présente en base, ou pas de transaction d'écriture
+     */
+    enum Etat {
+        ECRITE, CONFLIT, AUCUNE
+    }
+
+    private static final class Reservation {
+        private final CleIdempotence cle;
+        private boolean attachee;
+        private boolean ecrite;
+        private boolean conflit;
+
+        private Reservation(CleIdempotence cle) {
+            this.cle = cle;
+        }
+    }
+}
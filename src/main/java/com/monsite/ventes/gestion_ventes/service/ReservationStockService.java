@@ -0,0 +1,346 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.dto.ReservationStockResponse;
+import com.monsite.ventes.gestion_ventes.entity.LignePanier;
+import com.monsite.ventes.gestion_ventes.entity.Panier;
+import com.monsite.ventes.gestion_ventes.entity.Produit;
+import com.monsite.ventes.gestion_ventes.entity.ReservationStock;
+import com.monsite.ventes.gestion_ventes.entity.ReservationStock.StatutReservation;
+import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
+import com.monsite.ventes.gestion_ventes.repository.PanierRepository;
+import com.monsite.ventes.gestion_ventes.repository.ReservationStockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Service de réservation temporaire du stock pendant le checkout.
+ * Les quantités réservées sont tenues en mémoire (un compteur atomique par produit)
+ * et persistées en différé dans la table reservations_stock.
+ * Le compteur n'est pas segmenté comme le stock chaud : une réservation doit vérifier
+ * stock - réservé >= quantité, ce qu'un compteur segmenté ne garantit qu'en sommant tous ses segments.
+ * Les réservations ne sont posées qu'une fois par checkout, la contention par produit reste faible.
+ */
+@Service
+public class ReservationStockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationStockService.class);
+
+    private final ReservationStockRepository reservationStockRepository;
+    private final PanierRepository panierRepository;
+    private final InventaireService inventaireService;
+    private final PanierCacheService panierCacheService;
+
+    // Quantité totale réservée par produit
+    private final Map<Long, AtomicInteger> quantitesReservees = new ConcurrentHashMap<>();
+
+    // Réservations actives par client
+    private final Map<Long, List<ReservationStock>> reservationsParClient = new ConcurrentHashMap<>();
+
+    // Réservations modifiées en attente d'écriture en base
+    private final Queue<ReservationStock> ecrituresEnAttente = new ConcurrentLinkedQueue<>();
+
+    @Value("${reservation.stock.duree-minutes:15}")
+    private long dureeMinutes;
+
+    @Value("${reservation.stock.retention-heures:24}")
+    private long retentionHeures;
+
+    public ReservationStockService(ReservationStockRepository reservationStockRepository,
+                                   PanierRepository panierRepository,
+                                   InventaireService inventaireService,
+                                   PanierCacheService panierCacheService) {
+        this.reservationStockRepository = reservationStockRepository;
+        this.panierRepository = panierRepository;
+        this.inventaireService = inventaireService;
+        this.panierCacheService = panierCacheService;
+    }
+
+    /**
+     * Réserve le contenu du panier du client pour la durée du checkout.
+     * Une réservation précédente du même client est remplacée.
+     */
+    @Transactional(readOnly = true)
+    public ReservationStockResponse reserverPanier(Long clientId) {
+        // Le panier en mémoire peut avoir des modifications pas encore écrites
+        panierCacheService.ecrire(clientId);
+        Panier panier = panierRepository.findByClientIdWithDetails(clientId)
+                .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
+
+        if (panier.getLignesPanier().isEmpty()) {
+            throw new RuntimeException("Le panier est vide");
+        }
+
+        liberer(clientId);
+
+        LocalDateTime expiration = LocalDateTime.now().plusMinutes(dureeMinutes);
+        List<ReservationStock> acquises = new ArrayList<>();
+
+        try {
+            for (LignePanier ligne : panier.getLignesPanier()) {
+                VendeurProduit vendeurProduit = ligne.getVendeurProduit();
+                Produit produit = vendeurProduit.getProduit();
+
+                if (!vendeurProduit.isEstApprouve()) {
+                    throw new RuntimeException("Le produit '" + vendeurProduit.getTitre() + "' n'est pas disponible à la vente");
+                }
+
+                if (!acquerir(produit.getId(), inventaireService.getStockDisponible(produit), ligne.getQuantite())) {
+                    throw new RuntimeException("Stock insuffisant pour le produit '" + vendeurProduit.getTitre() + "'");
+                }
+
+                ReservationStock reservation = new ReservationStock();
+                reservation.setClientId(clientId);
+                reservation.setProduitId(produit.getId());
+                reservation.setVendeurProduitId(vendeurProduit.getId());
+                reservation.setQuantite(ligne.getQuantite());
+                reservation.setDateCreation(LocalDateTime.now());
+                reservation.setDateExpiration(expiration);
+                reservation.setStatut(StatutReservation.ACTIVE);
+                acquises.add(reservation);
+            }
+        } catch (RuntimeException e) {
+            acquises.forEach(this::relacher);
+            throw e;
+        }
+
+        List<ReservationStock> concurrentes = reservationsParClient.put(clientId, acquises);
+        if (concurrentes != null) {
+            // Une autre réservation du même client a été posée entre-temps : on la remplace
+            concurrentes.forEach(r -> {
+                relacher(r);
+                changerStatut(r, StatutReservation.LIBEREE);
+            });
+            ecrituresEnAttente.addAll(concurrentes);
+        }
+        ecrituresEnAttente.addAll(acquises);
+        logger.info("Stock réservé pour le client {} jusqu'à {} ({} lignes)", clientId, expiration, acquises.size());
+
+        return toReservationResponse(clientId, expiration, acquises);
+    }
+
+    /**
+     * Retourne la quantité d'un produit réservée par les autres clients.
+     */
+    public int getQuantiteReserveeParAutres(Long produitId, Long clientId) {
+        AtomicInteger compteur = quantitesReservees.get(produitId);
+        int total = compteur != null ? compteur.get() : 0;
+        if (total == 0) {
+            return 0;
+        }
+
+        int propre = reservationsParClient.getOrDefault(clientId, Collections.emptyList()).stream()
+                .filter(r -> r.getProduitId().equals(produitId))
+                .mapToInt(ReservationStock::getQuantite)
+                .sum();
+        return Math.max(0, total - propre);
+    }
+
+    /**
+     * Libère les réservations d'un client (annulation du checkout).
+     */
+    public void liberer(Long clientId) {
+        terminer(clientId, StatutReservation.LIBEREE);
+    }
+
+    /**
+     * Confirme les réservations d'un client une fois la commande validée en base.
+     * Si une transaction est active, la libération n'a lieu qu'après son commit.
+     */
+    public void confirmerApresCommit(Long clientId) {
+        ApresCommit.executer(() -> terminer(clientId, StatutReservation.CONFIRMEE));
+    }
+
+    /**
+     * Libère les réservations expirées
+     */
+    @Scheduled(fixedDelayString = "${reservation.stock.purge-interval-ms:30000}")
+    public void libererReservationsExpirees() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        Map<Long, List<ReservationStock>> expirees = reservationsParClient.entrySet().stream()
+                .filter(e -> e.getValue().stream().allMatch(r -> r.getDateExpiration().isBefore(maintenant)))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        // Seule la liste observée expirée est terminée : une réservation reposée entre-temps par le client est gardée
+        int terminees = 0;
+        for (Map.Entry<Long, List<ReservationStock>> entree : expirees.entrySet()) {
+            if (terminer(entree.getKey(), entree.getValue(), StatutReservation.EXPIREE)) {
+                terminees++;
+            }
+        }
+
+        if (terminees > 0) {
+            logger.info("{} réservation(s) de stock expirée(s) libérée(s)", terminees);
+        }
+    }
+
+    /**
+     * Écrit en base les réservations modifiées depuis le dernier passage.
+     * Ce sont des copies qui sont écrites : les réservations partagées ne reçoivent en retour que leur identifiant.
+     */
+    @Scheduled(fixedDelayString = "${reservation.stock.flush-interval-ms:5000}")
+    public void ecrireReservations() {
+        Set<ReservationStock> lot = Collections.newSetFromMap(new IdentityHashMap<>());
+        ReservationStock reservation;
+        while ((reservation = ecrituresEnAttente.poll()) != null) {
+            lot.add(reservation);
+        }
+
+        if (lot.isEmpty()) {
+            return;
+        }
+
+        List<ReservationStock> originales = new ArrayList<>(lot);
+        List<ReservationStock> copies = originales.stream().map(this::copier).collect(Collectors.toList());
+        try {
+            List<ReservationStock> ecrites = reservationStockRepository.saveAll(copies);
+            for (int i = 0; i < originales.size(); i++) {
+                ReservationStock originale = originales.get(i);
+                synchronized (originale) {
+                    originale.setId(ecrites.get(i).getId());
+                }
+            }
+            logger.debug("{} réservation(s) de stock écrite(s) en base", lot.size());
+        } catch (Exception e) {
+            logger.warn("Impossible d'écrire les réservations de stock: {}", e.getMessage());
+            ecrituresEnAttente.addAll(lot);
+        }
+    }
+
+    /**
+     * Supprime de la table les réservations terminées depuis plus que la durée de rétention
+     */
+    @Scheduled(fixedDelayString = "${reservation.stock.nettoyage-interval-ms:3600000}")
+    public void supprimerReservationsTerminees() {
+        int supprimees = reservationStockRepository.deleteTermineesAvant(LocalDateTime.now().minusHours(retentionHeures));
+        if (supprimees > 0) {
+            logger.info("{} réservation(s) de stock terminée(s) supprimée(s)", supprimees);
+        }
+    }
+
+    /**
+     * Reconstruit l'état en mémoire à partir des réservations encore actives en base
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restaurerReservations() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<ReservationStock> actives = reservationStockRepository.findByStatut(StatutReservation.ACTIVE);
+
+        for (ReservationStock reservation : actives) {
+            if (reservation.getDateExpiration().isBefore(maintenant)) {
+                changerStatut(reservation, StatutReservation.EXPIREE);
+                ecrituresEnAttente.add(reservation);
+                continue;
+            }
+            quantitesReservees.computeIfAbsent(reservation.getProduitId(), id -> new AtomicInteger())
+                    .addAndGet(reservation.getQuantite());
+            reservationsParClient.computeIfAbsent(reservation.getClientId(), id -> new ArrayList<>())
+                    .add(reservation);
+        }
+
+        logger.info("{} réservation(s) de stock restaurée(s) au démarrage", reservationsParClient.size());
+    }
+
+    private void terminer(Long clientId, StatutReservation statut) {
+        List<ReservationStock> reservations = reservationsParClient.remove(clientId);
+        if (reservations != null) {
+            relacherTout(clientId, reservations, statut);
+        }
+    }
+
+    /**
+     * Termine les réservations données seulement si elles sont toujours celles du client (comparaison par identité)
+     */
+    private boolean terminer(Long clientId, List<ReservationStock> attendues, StatutReservation statut) {
+        boolean[] retirees = {false};
+        reservationsParClient.computeIfPresent(clientId, (id, courantes) -> {
+            if (courantes != attendues) {
+                return courantes;
+            }
+            retirees[0] = true;
+            return null;
+        });
+        if (retirees[0]) {
+            relacherTout(clientId, attendues, statut);
+        }
+        return retirees[0];
+    }
+
+    private void relacherTout(Long clientId, List<ReservationStock> reservations, StatutReservation statut) {
+        for (ReservationStock reservation : reservations) {
+            relacher(reservation);
+            changerStatut(reservation, statut);
+            ecrituresEnAttente.add(reservation);
+        }
+        logger.info("Réservations du client {} terminées ({})", clientId, statut);
+    }
+
+    private void changerStatut(ReservationStock reservation, StatutReservation statut) {
+        synchronized (reservation) {
+            reservation.setStatut(statut);
+        }
+    }
+
+    private ReservationStock copier(ReservationStock reservation) {
+        synchronized (reservation) {
+            return new ReservationStock(reservation.getId(), reservation.getClientId(), reservation.getProduitId(),
+                    reservation.getVendeurProduitId(), reservation.getQuantite(), reservation.getDateCreation(),
+                    reservation.getDateExpiration(), reservation.getStatut());
+        }
+    }
+
+    private boolean acquerir(Long produitId, int stock, int quantite) {
+        AtomicInteger compteur = quantitesReservees.computeIfAbsent(produitId, id -> new AtomicInteger());
+        while (true) {
+            int reserve = compteur.get();
+            if (stock - reserve < quantite) {
+                return false;
+            }
+            if (compteur.compareAndSet(reserve, reserve + quantite)) {
+                return true;
+            }
+        }
+    }
+
+    private void relacher(ReservationStock reservation) {
+        AtomicInteger compteur = quantitesReservees.get(reservation.getProduitId());
+        if (compteur != null) {
+            compteur.addAndGet(-reservation.getQuantite());
+        }
+    }
+
+    private ReservationStockResponse toReservationResponse(Long clientId, LocalDateTime expiration,
+                                                           List<ReservationStock> reservations) {
+        List<ReservationStockResponse.LigneReservationResponse> lignes = reservations.stream()
+                .map(r -> ReservationStockResponse.LigneReservationResponse.builder()
+                        .vendeurProduitId(r.getVendeurProduitId())
+                        .produitId(r.getProduitId())
+                        .quantite(r.getQuantite())
+                        .build())
+                .collect(Collectors.toList());
+
+        return ReservationStockResponse.builder()
+                .clientId(clientId)
+                .dateExpiration(expiration)
+                .lignes(lignes)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.dto.SuggestionResponse;
+import com.monsite.ventes.gestion_ventes.dto.VersionRessource;
+import com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection;
+import com.monsite.ventes.gestion_ventes.entity.Categorie;
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
+import com.monsite.ventes.gestion_ventes.repository.CategorieRepository;
+import com.monsite.ventes.gestion_ventes.repository.LigneCommandeRepository;
+import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import com.monsite.ventes.gestion_ventes.service.TrieSuggestions.Suggestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Suggestions de saisie pour la recherche du catalogue : titres des offres approuvées, noms de produits
+ * et catégories, classés par quantités vendues. Le trie est reconstruit en tâche de fond quand la version
+ * du catalogue change (ou quand il a vieilli, pour suivre les ventes), puis remplacé d'un bloc.
+ */
+@Service
+public class SuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+
+    private static final String TYPE_OFFRE = "OFFRE";
+    private static final String TYPE_PRODUIT = "PRODUIT";
+    private static final String TYPE_CATEGORIE = "CATEGORIE";
+
+    private final VendeurProduitRepository vendeurProduitRepository;
+    private final CategorieRepository categorieRepository;
+    private final LigneCommandeRepository ligneCommandeRepository;
+    private final CatalogueCacheService catalogueCacheService;
+
+    private volatile TrieFige trie;
+
+    @Value("${catalogue.suggestions.taille-lot:1000}")
+    private int tailleLot;
+
+    @Value("${catalogue.suggestions.age-max-minutes:60}")
+    private long ageMaxMinutes;
+
+    public SuggestionService(VendeurProduitRepository vendeurProduitRepository,
+                             CategorieRepository categorieRepository,
+                             LigneCommandeRepository ligneCommandeRepository,
+                             CatalogueCacheService catalogueCacheService) {
+        this.vendeurProduitRepository = vendeurProduitRepository;
+        this.categorieRepository = categorieRepository;
+        this.ligneCommandeRepository = ligneCommandeRepository;
+        this.catalogueCacheService = catalogueCacheService;
+    }
+
+    /**
+     * Validateurs HTTP : ceux du trie servi, qui suit le catalogue avec un léger décalage
+     */
+    public VersionRessource getVersionSuggestions() {
+        TrieFige courant = trie;
+        return courant != null
+                ? new VersionRessource("\"s" + courant.construction() + "\"", courant.construction())
+                : new VersionRessource("\"s0\"", 0L);
+    }
+
+    /**
+     * Meilleures complétions de la saisie (vide tant que le premier trie n'est pas construit)
+     */
+    public List<SuggestionResponse> suggerer(String saisie, int limite) {
+        TrieFige courant = trie;
+        if (courant == null || saisie == null) {
+            return List.of();
+        }
+        int nombre = Math.max(1, Math.min(limite, TrieSuggestions.MEILLEURES_MAX));
+        return courant.trie().completer(saisie, nombre).stream()
+                .map(suggestion -> SuggestionResponse.builder()
+                        .type(suggestion.type())
+                        .id(suggestion.id())
+                        .libelle(suggestion.libelle())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Reconstruit le trie si le catalogue ou les catégories ont changé depuis la dernière construction
+     */
+    @Scheduled(fixedDelayString = "${catalogue.suggestions.verification-ms:2000}")
+    public void verifierVersion() {
+        String version = catalogueCacheService.getVersion() + "/" + catalogueCacheService.getVersionCategories().etag();
+        TrieFige courant = trie;
+        if (courant != null && courant.version().equals(version)
+                && System.currentTimeMillis() - courant.construction() < ageMaxMinutes * 60_000) {
+            return;
+        }
+
+        try {
+            // Version lue avant le chargement : une écriture pendant la construction déclenchera la suivante
+            trie = new TrieFige(version, System.currentTimeMillis(), TrieSuggestions.construire(chargerSuggestions()));
+            logger.debug("Trie de suggestions reconstruit : {} suggestion(s), {} nœud(s)",
+                    trie.trie().taille(), trie.trie().nombreNoeuds());
+        } catch (Exception e) {
+            logger.warn("Échec de la construction des suggestions: {}", e.getMessage());
+        }
+    }
+
+    private List<Suggestion> chargerSuggestions() {
+        Map<Long, Long> ventesParOffre = new HashMap<>();
+        for (Object[] ligne : ligneCommandeRepository.sommeQuantitesParVendeurProduit(StatutCommande.ANNULEE)) {
+            ventesParOffre.put((Long) ligne[0], ((Number) ligne[1]).longValue());
+        }
+
+        // Une suggestion par type et texte normalisé ; les ventes des doublons s'additionnent
+        Map<String, Suggestion> suggestions = new LinkedHashMap<>();
+        Map<Long, Long> ventesParCategorie = new HashMap<>();
+        long apresId = 0L;
+        List<VendeurProduitCatalogueProjection> lignes;
+        do {
+            lignes = vendeurProduitRepository.findCatalogue(apresId, null, null, null, null, false,
+                    PageRequest.of(0, tailleLot));
+            for (VendeurProduitCatalogueProjection ligne : lignes) {
+                long ventes = ventesParOffre.getOrDefault(ligne.id(), 0L);
+                ajouter(suggestions, TYPE_PRODUIT, ligne.produitId(), ligne.produitNom(), ventes);
+                // Un titre identique au nom du produit est déjà proposé par la suggestion du produit
+                if (ligne.titre() != null && !AnalyseurTexte.decouper(ligne.titre())
+                        .equals(AnalyseurTexte.decouper(ligne.produitNom()))) {
+                    ajouter(suggestions, TYPE_OFFRE, ligne.id(), ligne.titre(), ventes);
+                }
+                if (ligne.categorieId() != null) {
+                    ventesParCategorie.merge(ligne.categorieId(), ventes, Long::sum);
+                }
+                apresId = ligne.id();
+            }
+        } while (lignes.size() == tailleLot);
+
+        for (Categorie categorie : categorieRepository.findAll()) {
+            ajouter(suggestions, TYPE_CATEGORIE, categorie.getId(), categorie.getNom(),
+                    ventesParCategorie.getOrDefault(categorie.getId(), 0L));
+        }
+        return new ArrayList<>(suggestions.values());
+    }
+
+    private static void ajouter(Map<String, Suggestion> suggestions, String type, Long id, String libelle, long ventes) {
+        if (libelle == null) {
+            return;
+        }
+        String cle = String.join(" ", AnalyseurTexte.decouper(libelle));
+        if (cle.isEmpty()) {
+            return;
+        }
+        suggestions.merge(type + ":" + cle, new Suggestion(type, id, libelle.trim(), cle, ventes),
+                (existante, nouvelle) -> new Suggestion(type, existante.id(), existante.libelle(), cle,
+                        existante.poids() + nouvelle.poids()));
+    }
+
+    private record TrieFige(String version, long construction, TrieSuggestions trie) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox;
+import com.monsite.ventes.gestion_ventes.entity.EvenementOutbox.TypeEvenement;
+import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
+import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Synchronise avec le service AI les produits approuvés par l'administrateur.
+ * L'envoi est idempotent côté service AI (même identifiant de produit).
+ */
+@Component
+public class SynchronisationAIAbonne implements AbonneEvenement {
+
+    private static final Logger logger = LoggerFactory.getLogger(SynchronisationAIAbonne.class);
+
+    private final VendeurProduitRepository vendeurProduitRepository;
+    private final AISearchService aiSearchService;
+
+    public SynchronisationAIAbonne(VendeurProduitRepository vendeurProduitRepository,
+                                   AISearchService aiSearchService) {
+        this.vendeurProduitRepository = vendeurProduitRepository;
+        this.aiSearchService = aiSearchService;
+    }
+
+    @Override
+    public Set<TypeEvenement> getTypesEcoutes() {
+        return EnumSet.of(TypeEvenement.VENDEUR_PRODUIT_APPROUVE);
+    }
+
+    @Override
+    public void traiter(EvenementOutbox evenement) {
+        List<VendeurProduit> trouves = vendeurProduitRepository.findAllByIdWithDetails(List.of(evenement.getAgregatId()));
+        if (trouves.isEmpty()) {
+            logger.debug("Produit {} supprimé depuis l'événement {}, synchronisation ignorée",
+                    evenement.getAgregatId(), evenement.getId());
+            return;
+        }
+
+        VendeurProduit vendeurProduit = trouves.get(0);
+        if (!vendeurProduit.isEstApprouve()) {
+            return;
+        }
+
+        aiSearchService.envoyerProduit(vendeurProduit);
+    }
+}
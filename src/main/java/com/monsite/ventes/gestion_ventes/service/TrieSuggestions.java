@@ -0,0 +1,186 @@
+package com.monsite.ventes.gestion_ventes.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Trie figé des suggestions de saisie : chaque nœud garde déjà ses meilleures suggestions (par poids),
+ * une complétion ne coûte donc que la descente du préfixe. Les clés sont le texte normalisé entier et
+ * chacun de ses suffixes commençant à un mot, tronqués à une profondeur maximale.
+ * Les nœuds sont rangés à plat dans des tableaux ; la structure est immuable une fois construite.
+ */
+final class TrieSuggestions {
+
+    static final int MEILLEURES_MAX = 10;
+    private static final int PROFONDEUR_MAX = 24;
+    private static final int[] AUCUNE = new int[0];
+
+    private final List<Suggestion> suggestions;
+
+    // Enfants de chaque nœud : plage [premierEnfant, premierEnfant + nombreEnfants) triée par caractère
+    private final char[] caracteres;
+    private final int[] premierEnfant;
+    private final int[] nombreEnfants;
+    private final int[][] meilleures;
+
+    private TrieSuggestions(List<Suggestion> suggestions, char[] caracteres, int[] premierEnfant,
+                            int[] nombreEnfants, int[][] meilleures) {
+        this.suggestions = suggestions;
+        this.caracteres = caracteres;
+        this.premierEnfant = premierEnfant;
+        this.nombreEnfants = nombreEnfants;
+        this.meilleures = meilleures;
+    }
+
+    int taille() {
+        return suggestions.size();
+    }
+
+    int nombreNoeuds() {
+        return caracteres.length;
+    }
+
+    /**
+     * Meilleures complétions du préfixe saisi, de la plus vendue à la moins vendue
+     */
+    List<Suggestion> completer(String saisie, int limite) {
+        String prefixe = String.join(" ", AnalyseurTexte.decouper(saisie));
+        if (prefixe.isEmpty()) {
+            return List.of();
+        }
+
+        int noeud = 0;
+        int profondeur = Math.min(prefixe.length(), PROFONDEUR_MAX);
+        for (int i = 0; i < profondeur; i++) {
+            noeud = enfant(noeud, prefixe.charAt(i));
+            if (noeud < 0) {
+                return List.of();
+            }
+        }
+
+        List<Suggestion> resultat = new ArrayList<>(Math.min(limite, MEILLEURES_MAX));
+        for (int indice : meilleures[noeud]) {
+            Suggestion suggestion = suggestions.get(indice);
+            // Au-delà de la profondeur indexée, la fin du préfixe est vérifiée sur le texte
+            if (prefixe.length() <= PROFONDEUR_MAX || (" " + suggestion.cle()).contains(" " + prefixe)) {
+                resultat.add(suggestion);
+                if (resultat.size() >= limite) {
+                    break;
+                }
+            }
+        }
+        return resultat;
+    }
+
+    private int enfant(int noeud, char caractere) {
+        int debut = premierEnfant[noeud];
+        int position = Arrays.binarySearch(caracteres, debut, debut + nombreEnfants[noeud], caractere);
+        return position >= 0 ? position : -1;
+    }
+
+    /**
+     * Construit le trie ; les suggestions doivent déjà être dédoublonnées
+     */
+    static TrieSuggestions construire(List<Suggestion> suggestions) {
+        Noeud racine = new Noeud('\0');
+        for (int indice = 0; indice < suggestions.size(); indice++) {
+            String cle = suggestions.get(indice).cle();
+            for (int debut = 0; debut < cle.length(); debut++) {
+                if (debut == 0 || cle.charAt(debut - 1) == ' ') {
+                    inserer(racine, cle, debut, indice);
+                }
+            }
+        }
+
+        Comparator<Integer> ordre = Comparator.<Integer>comparingLong(i -> suggestions.get(i).poids()).reversed()
+                .thenComparing(i -> suggestions.get(i).libelle());
+        calculerMeilleures(racine, ordre);
+
+        // Mise à plat en largeur : les enfants d'un nœud sont contigus
+        List<Noeud> ordreLargeur = new ArrayList<>();
+        ordreLargeur.add(racine);
+        for (int i = 0; i < ordreLargeur.size(); i++) {
+            ordreLargeur.addAll(ordreLargeur.get(i).enfants.values());
+        }
+        int nombre = ordreLargeur.size();
+        char[] caracteres = new char[nombre];
+        int[] premierEnfant = new int[nombre];
+        int[] nombreEnfants = new int[nombre];
+        int[][] meilleures = new int[nombre][];
+        int prochain = 1;
+        for (int i = 0; i < nombre; i++) {
+            Noeud noeud = ordreLargeur.get(i);
+            caracteres[i] = noeud.caractere;
+            premierEnfant[i] = prochain;
+            nombreEnfants[i] = noeud.enfants.size();
+            meilleures[i] = noeud.meilleures;
+            prochain += noeud.enfants.size();
+        }
+        return new TrieSuggestions(List.copyOf(suggestions), caracteres, premierEnfant, nombreEnfants, meilleures);
+    }
+
+    private static void inserer(Noeud racine, String cle, int debut, int indice) {
+        Noeud noeud = racine;
+        int fin = Math.min(cle.length(), debut + PROFONDEUR_MAX);
+        for (int i = debut; i < fin; i++) {
+            noeud = noeud.enfants.computeIfAbsent(cle.charAt(i), Noeud::new);
+        }
+        if (noeud.terminales == null) {
+            noeud.terminales = new LinkedHashSet<>();
+        }
+        noeud.terminales.add(indice);
+    }
+
+    /**
+     * Meilleures suggestions de chaque sous-arbre, calculées des feuilles vers la racine (sans récursion)
+     */
+    private static void calculerMeilleures(Noeud racine, Comparator<Integer> ordre) {
+        Deque<Noeud> pile = new ArrayDeque<>();
+        List<Noeud> postfixe = new ArrayList<>();
+        pile.push(racine);
+        while (!pile.isEmpty()) {
+            Noeud noeud = pile.pop();
+            postfixe.add(noeud);
+            noeud.enfants.values().forEach(pile::push);
+        }
+        for (int i = postfixe.size() - 1; i >= 0; i--) {
+            Noeud noeud = postfixe.get(i);
+            Set<Integer> candidates = noeud.terminales != null ? noeud.terminales : new LinkedHashSet<>();
+            for (Noeud enfant : noeud.enfants.values()) {
+                for (int indice : enfant.meilleures) {
+                    candidates.add(indice);
+                }
+            }
+            noeud.terminales = null;
+            noeud.meilleures = candidates.isEmpty() ? AUCUNE : candidates.stream()
+                    .sorted(ordre)
+                    .limit(MEILLEURES_MAX)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Suggestion proposée : le libellé affiché, sa clé normalisée et le poids qui la classe (ventes)
+     */
+    record Suggestion(String type, Long id, String libelle, String cle, long poids) {
+    }
+
+    private static final class Noeud {
+        private final char caractere;
+        private final TreeMap<Character, Noeud> enfants = new TreeMap<>();
+        private Set<Integer> terminales;
+        private int[] meilleures = AUCUNE;
+
+        private Noeud(char caractere) {
+            this.caractere = caractere;
+        }
+    }
+}
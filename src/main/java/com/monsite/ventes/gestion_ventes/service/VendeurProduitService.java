@@ -1,34 +1,63 @@
 package com.monsite.ventes.gestion_ventes.service;
 
 import com.monsite.ventes.gestion_ventes.dto.MessageResponse;
+import com.monsite.ventes.gestion_ventes.dto.PageCurseurResponse;
 import com.monsite.ventes.gestion_ventes.dto.VendeurProduitRequest;
 import com.monsite.ventes.gestion_ventes.dto.VendeurProduitResponse;
+import com.monsite.ventes.gestion_ventes.dto.projection.VendeurProduitCatalogueProjection;
+import com.monsite.ventes.gestion_ventes.entity.Commande.StatutCommande;
 import com.monsite.ventes.gestion_ventes.entity.Produit;
 import com.monsite.ventes.gestion_ventes.entity.Vendeur;
 import com.monsite.ventes.gestion_ventes.entity.VendeurProduit;
+import com.monsite.ventes.gestion_ventes.repository.LigneCommandeRepository;
 import com.monsite.ventes.gestion_ventes.repository.ProduitRepository;
 import com.monsite.ventes.gestion_ventes.repository.VendeurProduitRepository;
 import com.monsite.ventes.gestion_ventes.repository.VendeurRepository;
+import com.monsite.ventes.gestion_ventes.service.CatalogueCacheService.PageCatalogue;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class VendeurProduitService {
 
+    private static final int RESULTATS_RECHERCHE_MAX = 1000;
+
     private final VendeurProduitRepository vendeurProduitRepository;
     private final VendeurRepository vendeurRepository;
     private final ProduitRepository produitRepository;
+    private final InventaireService inventaireService;
+    private final CatalogueCacheService catalogueCacheService;
+    private final RechercheService rechercheService;
+    private final LigneCommandeRepository ligneCommandeRepository;
 
     public VendeurProduitService(VendeurProduitRepository vendeurProduitRepository,
                                   VendeurRepository vendeurRepository,
-                                  ProduitRepository produitRepository) {
+                                  ProduitRepository produitRepository,
+                                  InventaireService inventaireService,
+                                  CatalogueCacheService catalogueCacheService,
+                                  RechercheService rechercheService,
+                                  LigneCommandeRepository ligneCommandeRepository) {
         this.vendeurProduitRepository = vendeurProduitRepository;
         this.vendeurRepository = vendeurRepository;
         this.produitRepository = produitRepository;
+        this.inventaireService = inventaireService;
+        this.catalogueCacheService = catalogueCacheService;
+        this.rechercheService = rechercheService;
+        this.ligneCommandeRepository = ligneCommandeRepository;
     }
 
     @Transactional
@@ -149,6 +178,7 @@ public class VendeurProduitService {
         vendeurProduit.setEstApprouve(false);
 
         vendeurProduitRepository.save(vendeurProduit);
+        catalogueCacheService.invaliderProduitVendeurApresCommit(vendeurProduitId);
 
         return MessageResponse.builder()
                 .success(true)
@@ -171,13 +201,152 @@ public class VendeurProduitService {
     }
 
     public List<VendeurProduitResponse> getProduitsApprouves() {
-        return vendeurProduitRepository.findByEstApprouve(true).stream()
-                .map(this::mapToResponse)
+        PageCatalogue catalogue = catalogueCacheService.lirePage("tous", () -> new PageCatalogue(0,
+                vendeurProduitRepository.findCatalogue(0L, null, null, null, null, false, Pageable.unpaged()), false));
+        return avecStock(catalogue.lignes(), false);
+    }
+
+    /**
+     * Produits vendeur approuvés les plus vendus, du plus vendu au moins vendu.
+     * La sélection suit la version du catalogue (pas chaque vente) ; le stock est relu.
+     */
+    public List<VendeurProduitResponse> getProduitsVedettes(int nombre) {
+        PageCatalogue vedettes = catalogueCacheService.lirePage("vedettes|" + nombre, () -> {
+            List<Long> classement = ligneCommandeRepository.findMeilleuresVentes(StatutCommande.ANNULEE,
+                    PageRequest.of(0, nombre));
+            if (classement.isEmpty()) {
+                return new PageCatalogue(0, List.of(), false);
+            }
+            Map<Long, Integer> rangs = new HashMap<>();
+            for (int i = 0; i < classement.size(); i++) {
+                rangs.put(classement.get(i), i);
+            }
+            return new PageCatalogue(0, vendeurProduitRepository.findCatalogueByIds(classement, null, null,
+                            null, null, false).stream()
+                    .sorted(Comparator.comparing(ligne -> rangs.get(ligne.id())))
+                    .collect(Collectors.toList()), false);
+        });
+        return avecStock(vedettes.lignes(), false);
+    }
+
+    /**
+     * Offres approuvées des autres vendeurs pour le même produit, sans stock (il est commun au produit)
+     */
+    public List<VendeurProduitResponse> getOffresConcurrentes(Long produitId, Long vendeurProduitId) {
+        return vendeurProduitRepository.findAutresOffres(produitId, vendeurProduitId).stream()
+                .map(ligne -> toCatalogueResponse(ligne, null))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Fiche d'un produit vendeur approuvé (description en cache, stock relu)
+     */
+    public VendeurProduitResponse getProduitApprouve(Long vendeurProduitId) {
+        VendeurProduitCatalogueProjection fiche = catalogueCacheService.lireFiche(vendeurProduitId,
+                () -> vendeurProduitRepository.findCatalogueById(vendeurProduitId).orElse(null));
+        if (fiche == null) {
+            return null;
+        }
+        return avecStock(List.of(fiche), false).get(0);
+    }
+
+    /**
+     * Catalogue public paginé par curseur (ordre des id), filtré en SQL.
+     * Avec un texte recherché, l'ordre est celui de la pertinence (index de recherche) et le curseur une position.
+     * Les pages sans filtre de stock viennent du cache du catalogue ; le stock est toujours relu à part.
+     * Les produits épuisés sont retirés de la page quand enStock est demandé (stock chaud en retard en base),
+     * la page peut alors être plus courte que la taille.
+     */
+    public PageCurseurResponse<VendeurProduitResponse> getCatalogue(String curseur, String recherche,
+                                                                    Long categorieId, Long vendeurId,
+                                                                    BigDecimal prixMin, BigDecimal prixMax,
+                                                                    boolean enStock, int taille) {
+        int tailleEffective = Math.max(1, Math.min(taille, 100));
+        if (recherche != null && !recherche.isBlank()) {
+            return rechercherCatalogue(decoderCurseur(curseur).intValue(), recherche, categorieId, vendeurId,
+                    prixMin, prixMax, enStock, tailleEffective);
+        }
+        Long apresId = decoderCurseur(curseur);
+        Supplier<PageCatalogue> chargement = () -> {
+            // Une ligne de plus que demandé pour savoir s'il existe une page suivante
+            List<VendeurProduitCatalogueProjection> lignes = vendeurProduitRepository.findCatalogue(
+                    apresId, categorieId, vendeurId, prixMin, prixMax, enStock,
+                    PageRequest.of(0, tailleEffective + 1));
+            boolean aSuite = lignes.size() > tailleEffective;
+            return new PageCatalogue(0, aSuite ? lignes.subList(0, tailleEffective) : lignes, aSuite);
+        };
+
+        // Les pages filtrées sur le stock changent avec lui : elles ne sont pas mises en cache
+        PageCatalogue page = enStock
+                ? chargement.get()
+                : catalogueCacheService.lirePage(apresId + "|" + categorieId + "|" + vendeurId + "|"
+                        + prixMin + "|" + prixMax + "|" + tailleEffective, chargement);
+
+        List<VendeurProduitCatalogueProjection> lignes = page.lignes();
+        return PageCurseurResponse.<VendeurProduitResponse>builder()
+                .elements(avecStock(lignes, enStock))
+                .curseurSuivant(page.suite() ? encoderCurseur(lignes.get(lignes.size() - 1).id()) : null)
+                .suite(page.suite())
+                .build();
+    }
+
+    private PageCurseurResponse<VendeurProduitResponse> rechercherCatalogue(int position, String recherche,
+                                                                            Long categorieId, Long vendeurId,
+                                                                            BigDecimal prixMin, BigDecimal prixMax,
+                                                                            boolean enStock, int taille) {
+        List<Long> classement = rechercheService.rechercherOffres(recherche, RESULTATS_RECHERCHE_MAX);
+        List<VendeurProduitCatalogueProjection> trouvees = classement.isEmpty()
+                ? List.of()
+                : vendeurProduitRepository.findCatalogueByIds(classement, categorieId, vendeurId,
+                        prixMin, prixMax, enStock);
+
+        // Remise dans l'ordre de pertinence, puis découpage de la page demandée
+        Map<Long, Integer> rangs = new HashMap<>();
+        for (int i = 0; i < classement.size(); i++) {
+            rangs.put(classement.get(i), i);
+        }
+        List<VendeurProduitCatalogueProjection> lignes = trouvees.stream()
+                .sorted(Comparator.comparing(ligne -> rangs.get(ligne.id())))
+                .skip(position)
+                .limit(taille + 1L)
                 .collect(Collectors.toList());
+
+        boolean aSuite = lignes.size() > taille;
+        if (aSuite) {
+            lignes = lignes.subList(0, taille);
+        }
+        return PageCurseurResponse.<VendeurProduitResponse>builder()
+                .elements(avecStock(lignes, enStock))
+                .curseurSuivant(aSuite ? encoderCurseur((long) position + taille) : null)
+                .suite(aSuite)
+                .build();
+    }
+
+    /**
+     * Stock disponible par produit, pour rafraîchir l'affichage sans recharger le catalogue
+     */
+    public Map<Long, Integer> getStocks(Collection<Long> produitIds) {
+        return inventaireService.getStocksDisponibles(produitIds);
+    }
+
+    private List<VendeurProduitResponse> avecStock(List<VendeurProduitCatalogueProjection> lignes, boolean enStock) {
+        Map<Long, Integer> stocks = getStocks(lignes.stream()
+                .map(VendeurProduitCatalogueProjection::produitId)
+                .collect(Collectors.toList()));
+
+        List<VendeurProduitResponse> elements = new ArrayList<>(lignes.size());
+        for (VendeurProduitCatalogueProjection ligne : lignes) {
+            int stock = stocks.getOrDefault(ligne.produitId(), 0);
+            if (enStock && stock <= 0) {
+                continue;
+            }
+            elements.add(toCatalogueResponse(ligne, stock));
+        }
+        return elements;
     }
 
     public List<VendeurProduitResponse> getProduitsEnAttente() {
-        return vendeurProduitRepository.findByEstApprouve(false).stream()
+        return vendeurProduitRepository.findByEstApprouveWithDetails(false).stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
@@ -201,11 +370,46 @@ public class VendeurProduitService {
                 .build();
     }
 
+    private VendeurProduitResponse toCatalogueResponse(VendeurProduitCatalogueProjection ligne, Integer stock) {
+        return VendeurProduitResponse.builder()
+                .id(ligne.id())
+                .vendeurId(ligne.vendeurId())
+                .vendeurNom(ligne.vendeurNom())
+                .produitId(ligne.produitId())
+                .produitNom(ligne.produitNom())
+                .prixOriginal(ligne.prixOriginal())
+                .prixVendeur(ligne.prixVendeur())
+                .image(ligne.image())
+                .description(ligne.description())
+                .titre(ligne.titre())
+                .estApprouve(true)
+                .categorieId(ligne.categorieId())
+                .categorieNom(ligne.categorieNom())
+                .quantiteStock(stock)
+                .build();
+    }
+
+    private String encoderCurseur(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long decoderCurseur(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Curseur de pagination invalide");
+        }
+    }
+
     /**
      * Met à jour le profil du vendeur
      */
     @Transactional
     public void updateVendeurProfil(Vendeur vendeur) {
         vendeurRepository.save(vendeur);
+        catalogueCacheService.invaliderVendeurApresCommit(vendeur.getId());
     }
 }